@@ -11,6 +11,7 @@ import timber.log.Timber.DebugTree;
 
 // NetSDK imports
 import com.company.NetSDK.INetSDK;
+import com.geniecaddie.datacollection.DeviceConnectionEvents;
 
 import java.io.File;
 
@@ -76,12 +77,12 @@ public class DemoApplication extends Application {
         }
 
         Timber.d("NetSDK 초기화 시도...");
-        Timber.d("Disconnect 콜백 객체: null (콜백 제거)");
+        Timber.d("Disconnect 콜백 등록: DeviceConnectionEvents (스트림 감시용)");
 
         try {
             // NetSDK 초기화 시도
             long startTime = System.currentTimeMillis();
-            boolean initResult = INetSDK.Init(null);
+            boolean initResult = INetSDK.Init(DeviceConnectionEvents.DISCONNECT_CALLBACK);
             long endTime = System.currentTimeMillis();
 
             Timber.d("INetSDK.Init() 호출 완료 - 소요시간: %dms", (endTime - startTime));
@@ -90,6 +91,9 @@ public class DemoApplication extends Application {
                 isNetSDKInitialized = true;
                 Timber.i("✅ NetSDK 초기화 성공");
 
+                // 장비 연결이 끊기면 SDK가 로그인을 자동 복구하고 재연결 콜백 호출
+                INetSDK.SetAutoReconnect(DeviceConnectionEvents.RECONNECT_CALLBACK);
+
                 // 추가 정보 확인
                 try {
                     int lastError = INetSDK.GetLastError();
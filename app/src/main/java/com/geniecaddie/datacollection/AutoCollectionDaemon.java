@@ -0,0 +1,338 @@
+package com.geniecaddie.datacollection;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * 무인 자동 수집 (전체 카메라 순회)
+ * - AUTO_COLLECT_ROUND_MS마다 한 바퀴: 오늘 수집 개수가 적은 홀부터 카메라당 N장
+ * - 파일 이름/기록은 수동 캡처와 같은 캡처 목록(CaptureManifest) 사용
+ * - 캡처는 장비 스냅샷만 사용 (세션 풀의 로그인 핸들 + CameraSource.snapshot)
+ *   다음 순서 카메라는 현재 카메라를 찍는 동안 미리 로그인 (CameraSessionPool.prefetch)
+ *   → 스트림/디코딩 없이 카메라가 인코딩한 원본 JPEG을 받으므로 화면의 카메라와 무관하게 동작
+ *   장비 스냅샷을 지원하지 않는 소스(파일 재생/합성 영상)에서는 해당 카메라를 건너뜀
+ * - 최근 캡처와 거의 같은 이미지는 CaptureDeduplicator가 지우고 개수에 넣지 않음 (정지 화면 반복 저장 방지)
+ * - 홀별 일일 할당량(AUTO_COLLECT_DAILY_QUOTA)을 넘은 홀은 건너뛰고, 적은 홀부터 채워 균형 유지
+ * - 예산: 수집 스레드 CPU 사용률 상한(AUTO_COLLECT_CPU_BUDGET) 초과 시 쉬었다가 진행,
+ *   저장 공간이 AUTO_COLLECT_MIN_FREE_MB 미만이거나 오늘 저장량이 AUTO_COLLECT_DAILY_MB를 넘으면 그 바퀴 중단
+ */
+public class AutoCollectionDaemon {
+    private static final String TAG = "AutoCollection";
+
+    private static final long COUNTS_WAIT_MS = 2000;               // UI 스레드에서 카운트 받아오기 대기
+    private static final long SHUTDOWN_WAIT_MS = 3000;             // 종료 시 진행 중인 스냅샷 대기 상한
+
+    /**
+     * 수집 결과와 홀별 카운트 (UI 스레드에서 호출)
+     */
+    public interface Listener {
+        /** 오늘 홀별 수집 개수 ("1W" → 개수) */
+        Map<String, Integer> getTodayHoleCounts();
+
+        /** 저장 후 캡처 목록에 기록된 항목 */
+        void onAutoCaptured(CaptureManifest.Entry entry);
+    }
+
+    private final CameraSessionPool sessionPool;
+    private final CameraSource source;
+    private final CaptureDeduplicator deduplicator;
+    private final CaptureManifest manifest;
+    private final Listener listener;
+    private final File storageDir;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ScheduledFuture<?> roundTask;
+    private volatile boolean running = false;
+
+    // 저장량 (수집 스레드 전용, 날짜가 바뀌면 초기화)
+    private String bytesDay = "";
+    private long bytesToday = 0;
+
+    public AutoCollectionDaemon(CameraSessionPool sessionPool, CameraSource source, CaptureDeduplicator deduplicator,
+                                CaptureManifest manifest, File storageDir, Listener listener) {
+        this.sessionPool = sessionPool;
+        this.source = source;
+        this.deduplicator = deduplicator;
+        this.manifest = manifest;
+        this.storageDir = storageDir;
+        this.listener = listener;
+    }
+
+    /**
+     * 자동 수집 시작 (첫 바퀴는 바로 시작)
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        roundTask = scheduler.scheduleWithFixedDelay(this::runRound,
+            0, CameraConfig.AUTO_COLLECT_ROUND_MS, TimeUnit.MILLISECONDS);
+        Timber.tag(TAG).i("자동 수집 시작 - %d분마다, 카메라당 %d장, 홀당 하루 %d장",
+            CameraConfig.AUTO_COLLECT_ROUND_MS / 60000, CameraConfig.AUTO_COLLECT_SHOTS_PER_CAMERA,
+            CameraConfig.AUTO_COLLECT_DAILY_QUOTA);
+    }
+
+    /**
+     * 자동 수집 중지 (진행 중인 스냅샷 1장은 끝까지 수행)
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (roundTask != null) {
+            roundTask.cancel(false);
+            roundTask = null;
+        }
+        Timber.tag(TAG).i("자동 수집 중지");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 종료 (Activity onDestroy, 캡처 목록/세션 풀 종료 전에 호출)
+     * 진행 중인 스냅샷이 끝나 세션을 반납할 때까지 기다림 (스냅샷은 중단할 수 없으므로 상한만 둠)
+     */
+    public void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+        try {
+            if (!scheduler.awaitTermination(SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                Timber.tag(TAG).w("자동 수집 스레드 종료 대기 시간 초과");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    // ========== 수집 (scheduler 스레드) ==========
+
+    private void runRound() {
+        long roundStart = SystemClock.elapsedRealtime();
+        Map<String, Integer> counts = fetchCounts();
+        if (counts == null) {
+            Timber.tag(TAG).w("홀별 카운트 조회 실패 - 이번 바퀴 건너뜀");
+            return;
+        }
+
+        List<Integer> order = orderByDeficit(counts);
+        int captured = 0;
+        int skipped = 0;
+
+        // 할당량이 남은 카메라만
+        List<Integer> targets = new ArrayList<>();
+        for (int cameraIndex : order) {
+            String holeKey = CameraConfig.getCamera(cameraIndex).getHoleKey();
+            if (getCount(counts, holeKey) < CameraConfig.AUTO_COLLECT_DAILY_QUOTA) {
+                targets.add(cameraIndex);
+            }
+        }
+
+        for (int i = 0; i < targets.size(); i++) {
+            if (!running || !hasStorageBudget()) {
+                break;
+            }
+
+            int cameraIndex = targets.get(i);
+            CameraInfo camera = CameraConfig.getCamera(cameraIndex);
+            String holeKey = camera.getHoleKey();
+            int remaining = CameraConfig.AUTO_COLLECT_DAILY_QUOTA - getCount(counts, holeKey);
+            int shots = Math.min(CameraConfig.AUTO_COLLECT_SHOTS_PER_CAMERA, remaining);
+            if (shots <= 0) {
+                continue;   // 할당량 소진
+            }
+            if (i + 1 < targets.size()) {
+                sessionPool.prefetch(CameraConfig.getCamera(targets.get(i + 1)));
+            }
+
+            int taken = collectCamera(camera, shots);
+            captured += taken;
+            if (taken == 0) {
+                skipped++;
+            }
+            counts.put(holeKey, getCount(counts, holeKey) + taken);
+        }
+
+        Timber.tag(TAG).i("자동 수집 바퀴 완료 - %d장, 실패/건너뜀 카메라 %d대, %dms",
+            captured, skipped, SystemClock.elapsedRealtime() - roundStart);
+    }
+
+    /**
+     * 카메라 1대에서 N장 (장비 스냅샷)
+     *
+     * @return 저장한 장 수
+     */
+    private int collectCamera(CameraInfo camera, int shots) {
+        long loginHandle = sessionPool.acquire(camera);
+        if (loginHandle == 0) {
+            Timber.tag(TAG).w("%s 로그인 실패 - 건너뜀", camera.getName());
+            return 0;
+        }
+
+        int taken = 0;
+        try {
+            for (int shot = 0; shot < shots && running; shot++) {
+                if (shot > 0 && !pause(CameraConfig.AUTO_COLLECT_SHOT_GAP_MS)) {
+                    break;
+                }
+
+                long wallStart = SystemClock.elapsedRealtime();
+                long cpuStart = SystemClock.currentThreadTimeMillis();
+                final CaptureManifest.Entry entry = manifest.newEntry(camera, CaptureManifest.SOURCE_AUTO);
+                String filePath = manifest.pathFor(entry);
+                boolean success = source.snapshot(loginHandle, camera, filePath);
+                boolean duplicate = success && deduplicator.checkFileAndDelete(camera.getName(), filePath);
+                long cpuMs = SystemClock.currentThreadTimeMillis() - cpuStart;
+                long wallMs = SystemClock.elapsedRealtime() - wallStart;
+
+                if (!success) {
+                    Timber.tag(TAG).w("%s 장비 스냅샷 실패 - 카메라 건너뜀", camera.getName());
+                    break;
+                }
+                if (!running) {
+                    // 스냅샷 중에 종료됨 - 닫혔을 수 있는 캡처 목록에 기록하지 않고 파일도 남기지 않음
+                    if (!duplicate && !new File(filePath).delete()) {
+                        Timber.tag(TAG).w("종료 중 스냅샷 파일 삭제 실패: %s", filePath);
+                    }
+                    break;
+                }
+                if (duplicate) {
+                    throttle(cpuMs, wallMs);
+                    continue;   // 이전 캡처와 같은 화면
+                }
+
+                taken++;
+                CaptureManifest.readFileInfo(filePath, entry);
+                entry.commit();
+                bytesToday += entry.fileLength;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onAutoCaptured(entry);
+                    }
+                });
+
+                throttle(cpuMs, wallMs);
+            }
+        } finally {
+            sessionPool.release(camera);
+        }
+        return taken;
+    }
+
+    /**
+     * CPU 예산 유지: 사용한 CPU 시간 / (작업 + 휴식 시간)이 예산 이하가 되도록 쉼
+     */
+    private void throttle(long cpuMs, long wallMs) {
+        long restMs = (long) (cpuMs / CameraConfig.AUTO_COLLECT_CPU_BUDGET) - wallMs;
+        if (restMs > 0) {
+            Timber.tag(TAG).d("CPU 예산 초과 - %dms 휴식 (CPU %dms / %dms)", restMs, cpuMs, wallMs);
+            pause(restMs);
+        }
+    }
+
+    /**
+     * 휴식 (shutdownNow의 인터럽트로 바로 깨어남)
+     *
+     * @return 계속 수집해도 되면 true
+     */
+    private boolean pause(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return running;
+    }
+
+    private boolean hasStorageBudget() {
+        String today = new SimpleDateFormat("yyyyMMdd", Locale.US).format(new Date());
+        if (!today.equals(bytesDay)) {
+            bytesDay = today;
+            bytesToday = 0;
+        }
+
+        long freeMb = storageDir.getUsableSpace() / (1024 * 1024);
+        if (freeMb < CameraConfig.AUTO_COLLECT_MIN_FREE_MB) {
+            Timber.tag(TAG).w("저장 공간 부족 (%dMB) - 이번 바퀴 중단", freeMb);
+            return false;
+        }
+        if (bytesToday / (1024 * 1024) >= CameraConfig.AUTO_COLLECT_DAILY_MB) {
+            Timber.tag(TAG).w("오늘 저장 예산 초과 (%dMB) - 이번 바퀴 중단", bytesToday / (1024 * 1024));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 오늘 개수가 적은 홀부터 (같으면 CAMERAS 순서)
+     */
+    private List<Integer> orderByDeficit(final Map<String, Integer> counts) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < CameraConfig.getCameraCount(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int countA = getCount(counts, CameraConfig.getCamera(a).getHoleKey());
+                int countB = getCount(counts, CameraConfig.getCamera(b).getHoleKey());
+                return countA != countB ? Integer.compare(countA, countB) : Integer.compare(a, b);
+            }
+        });
+        return order;
+    }
+
+    /**
+     * 홀별 카운트는 UI 스레드가 소유하므로 UI 스레드에서 복사본을 받아옴
+     */
+    private Map<String, Integer> fetchCounts() {
+        FutureTask<Map<String, Integer>> task = new FutureTask<>(new Callable<Map<String, Integer>>() {
+            @Override
+            public Map<String, Integer> call() {
+                return new HashMap<>(listener.getTodayHoleCounts());
+            }
+        });
+        mainHandler.post(task);
+        try {
+            return task.get(COUNTS_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            task.cancel(false);
+            return null;
+        }
+    }
+
+    private static int getCount(Map<String, Integer> counts, String holeKey) {
+        Integer count = counts.get(holeKey);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,292 @@
+package com.geniecaddie.datacollection;
+
+import android.os.SystemClock;
+
+import com.company.PlaySDK.IPlaySDK;
+import com.company.PlaySDK.IPlaySDKCallBack;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfInt;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * 연속 캡처 후 가장 선명한 프레임 선택
+ * - 재생 중인 포트의 디코딩 프레임(CameraConnectionManager의 프레임 탭, 화면 표시 유지)에서 N프레임을
+ *   미리 할당한 슬롯(I420)에 복사만 하고 바로 반환
+ * - 점수 계산은 호출 스레드에서 프레임이 도착하는 대로 진행 (마지막 프레임 도착 직후 선택 가능)
+ *   선명도: 휘도 Laplacian 분산, 노출: 평균 밝기(중간값에서 멀수록 감점) + 대비(표준편차가 낮으면 감점)
+ * - 최고 점수 프레임은 CaptureDeduplicator로 최근 캡처와 비교 후, 중복이 아니면 JPEG 인코딩
+ *   → 같은 BGR 프레임에서 만든 학습용 축소본과 함께 SnapshotWriter로 비동기 저장 (ThumbnailWriter)
+ *
+ * 슬롯과 OpenCV Mat은 해상도가 바뀔 때만 다시 할당 (프레임마다 할당하지 않음)
+ * 호출 스레드는 하나(카메라 명령 스레드)라고 가정
+ */
+public class BurstCapture {
+    private static final String TAG = "BurstCapture";
+
+    // === 대기 ===
+    private static final long FRAME_WAIT_MS = 1000;                 // 프레임 간 최대 대기 (I-프레임 간격 고려)
+
+    // === 노출 점수 ===
+    private static final double TARGET_LUMA = 118;
+    private static final double MIN_CONTRAST = 40;                  // 휘도 표준편차가 이보다 낮으면 감점
+    private static final double MIN_EXPOSURE_FACTOR = 0.2;
+
+    /**
+     * 디코딩 프레임 1개 (I420, 연속 메모리)
+     */
+    private static class Slot {
+        byte[] yuv = new byte[0];
+        int stamp;                      // 장비 프레임 시각 (ms)
+        double sharpness;
+        double luma;
+        double score;
+    }
+
+    private final SnapshotWriter snapshotWriter;
+    private final CaptureDeduplicator deduplicator;
+    private final ThumbnailWriter thumbnailWriter;
+    private final Slot[] slots;
+    private final Semaphore arrived = new Semaphore(0);
+
+    // 콜백 ↔ 호출 스레드 (armed가 false면 콜백은 바로 반환)
+    private volatile boolean armed = false;
+    private volatile int width;
+    private volatile int height;
+    private int framesWanted;
+    private int framesCaptured;         // 콜백 스레드 전용
+
+    // OpenCV 작업 버퍼 (호출 스레드 전용, 첫 캡처 시 생성 - OpenCV 라이브러리가 없으면 연속 캡처만 비활성)
+    private Mat luma;
+    private Mat i420;
+    private Mat laplacian;
+    private Mat bgr;
+    private MatOfDouble mean;
+    private MatOfDouble stdDev;
+    private MatOfByte jpeg;
+    private final double[] value = new double[1];
+
+    public BurstCapture(SnapshotWriter snapshotWriter, CaptureDeduplicator deduplicator,
+                        ThumbnailWriter thumbnailWriter, int maxFrames) {
+        this.snapshotWriter = snapshotWriter;
+        this.deduplicator = deduplicator;
+        this.thumbnailWriter = thumbnailWriter;
+        this.slots = new Slot[Math.max(1, maxFrames)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * 디코딩 프레임 (디코딩 콜백 스레드, 캡처 중이 아니면 바로 반환)
+     */
+    void onDecodedFrame(IPlaySDKCallBack.FRAME_DECODE_INFO decodeInfo, IPlaySDKCallBack.FRAME_INFO_EX frameInfo) {
+        if (!armed || decodeInfo.pVideoDataY == null) {
+            return;
+        }
+        // 도중에 해상도가 바뀐 프레임은 제외
+        if (decodeInfo.nWidth[0] != width || decodeInfo.nHeight[0] != height) {
+            return;
+        }
+
+        Slot slot = slots[framesCaptured];
+        copyI420(decodeInfo, slot.yuv, width, height);
+        slot.stamp = frameInfo.nStamp;
+        framesCaptured++;
+        if (framesCaptured >= framesWanted) {
+            armed = false;
+        }
+        arrived.release();
+    }
+
+    /**
+     * 연속 캡처 후 최고 점수 프레임 저장 (비동기)
+     * 호출 전에 포트에 프레임 탭이 붙어 있어야 함
+     *
+     * @param frames 연속 프레임 수 (최대 생성 시 지정한 수)
+     * @param cameraKey 중복 비교 대상 카메라
+     * @param entry 캡처 목록 항목 (선택한 프레임의 해상도/시각/선명도를 채움, 저장 후 기록)
+     * @return FAILED면 호출자가 단일 캡처로 대체
+     */
+    public CaptureResult capture(int port, int frames, int jpegQuality, String cameraKey, String filePath,
+                                 CaptureManifest.Entry entry) {
+        int[] w = new int[1];
+        int[] h = new int[1];
+        if (IPlaySDK.PLAYGetPictureSize(port, w, h) == 0 || w[0] <= 0 || h[0] <= 0) {
+            Timber.tag(TAG).w("프레임 크기 조회 실패 - 연속 캡처 생략");
+            return CaptureResult.FAILED;
+        }
+
+        long startTime = SystemClock.elapsedRealtime();
+        try {
+            prepare(w[0], h[0]);
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("OpenCV 라이브러리 없음 - 연속 캡처 생략");
+            return CaptureResult.FAILED;
+        }
+
+        framesWanted = Math.max(1, Math.min(frames, slots.length));
+        framesCaptured = 0;
+        arrived.drainPermits();
+        armed = true;
+
+        // 도착하는 대로 점수 계산
+        int best = -1;
+        int scored = 0;
+        try {
+            for (; scored < framesWanted; scored++) {
+                if (!arrived.tryAcquire(FRAME_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    Timber.tag(TAG).w("연속 캡처 프레임 대기 시간 초과 (%d/%d)", scored, framesWanted);
+                    break;
+                }
+                score(slots[scored]);
+                if (best < 0 || slots[scored].score > slots[best].score) {
+                    best = scored;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            armed = false;
+        }
+
+        if (best < 0) {
+            return CaptureResult.FAILED;
+        }
+
+        long selectedAt = SystemClock.elapsedRealtime();
+        Slot slot = slots[best];
+        luma.put(0, 0, slot.yuv, 0, width * height);
+        if (deduplicator.check(cameraKey, luma)) {
+            return CaptureResult.DUPLICATE;
+        }
+        entry.source = CaptureManifest.SOURCE_BURST;
+        entry.width = width;
+        entry.height = height;
+        entry.deviceStampMs = slot.stamp;
+        entry.sharpness = (float) slot.sharpness;
+        if (!encodeAndWrite(slot, jpegQuality, filePath, entry)) {
+            return CaptureResult.FAILED;
+        }
+
+        Timber.tag(TAG).i("연속 캡처 - %d프레임 중 %d번 선택 (선명도 %.0f, 밝기 %.0f, 점수 %.0f), 수집 %dms + 인코딩 %dms",
+            scored, best + 1, slot.sharpness, slot.luma, slot.score,
+            selectedAt - startTime, SystemClock.elapsedRealtime() - selectedAt);
+        return CaptureResult.SAVED;
+    }
+
+    public void release() {
+        armed = false;
+        if (luma != null) {
+            luma.release();
+            i420.release();
+            laplacian.release();
+            bgr.release();
+            mean.release();
+            stdDev.release();
+            jpeg.release();
+            luma = null;
+            laplacian = null;
+        }
+    }
+
+    /**
+     * 해상도가 바뀌었을 때만 슬롯/Mat 재할당
+     */
+    private void prepare(int w, int h) {
+        int size = w * h * 3 / 2;
+        for (Slot slot : slots) {
+            if (slot.yuv.length != size) {
+                slot.yuv = new byte[size];
+            }
+        }
+        if (laplacian == null) {
+            laplacian = new Mat();
+            bgr = new Mat();
+            mean = new MatOfDouble();
+            stdDev = new MatOfDouble();
+            jpeg = new MatOfByte();
+        }
+        if (luma == null || w != width || h != height) {
+            if (luma != null) {
+                luma.release();
+                i420.release();
+            }
+            luma = new Mat(h, w, CvType.CV_8UC1);
+            i420 = new Mat(h * 3 / 2, w, CvType.CV_8UC1);
+        }
+        width = w;
+        height = h;
+    }
+
+    private void score(Slot slot) {
+        luma.put(0, 0, slot.yuv, 0, width * height);
+
+        Core.meanStdDev(luma, mean, stdDev);
+        mean.get(0, 0, value);
+        slot.luma = value[0];
+        stdDev.get(0, 0, value);
+        double contrast = value[0];
+
+        Imgproc.Laplacian(luma, laplacian, CvType.CV_16S);
+        Core.meanStdDev(laplacian, mean, stdDev);
+        stdDev.get(0, 0, value);
+        slot.sharpness = value[0] * value[0];
+
+        double exposure = 1.0 - Math.abs(slot.luma - TARGET_LUMA) / TARGET_LUMA;
+        exposure *= Math.min(1.0, contrast / MIN_CONTRAST);
+        slot.score = slot.sharpness * Math.max(MIN_EXPOSURE_FACTOR, exposure);
+    }
+
+    private boolean encodeAndWrite(Slot slot, int jpegQuality, String filePath, CaptureManifest.Entry entry) {
+        i420.put(0, 0, slot.yuv);
+        Imgproc.cvtColor(i420, bgr, Imgproc.COLOR_YUV2BGR_I420);
+
+        MatOfInt params = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, jpegQuality);
+        boolean encoded = Imgcodecs.imencode(".jpg", bgr, jpeg, params);
+        params.release();
+        if (!encoded) {
+            Timber.tag(TAG).w("JPEG 인코딩 실패");
+            return false;
+        }
+
+        int length = (int) jpeg.total();
+        byte[] buffer = snapshotWriter.acquire(length);
+        if (buffer == null) {
+            return false;
+        }
+        jpeg.get(0, 0, buffer);
+        return thumbnailWriter.write(buffer, length, bgr, filePath, entry);
+    }
+
+    /**
+     * 평면별 stride를 제거해 I420 연속 배열로 복사
+     */
+    private static void copyI420(IPlaySDKCallBack.FRAME_DECODE_INFO info, byte[] dst, int w, int h) {
+        int offset = copyPlane(info.pVideoDataY, info.nStride[0], dst, 0, w, h);
+        offset = copyPlane(info.pVideoDataU, info.nStride[1], dst, offset, w / 2, h / 2);
+        copyPlane(info.pVideoDataV, info.nStride[2], dst, offset, w / 2, h / 2);
+    }
+
+    private static int copyPlane(byte[] src, int stride, byte[] dst, int offset, int w, int h) {
+        if (stride == w) {
+            System.arraycopy(src, 0, dst, offset, w * h);
+            return offset + w * h;
+        }
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(src, row * stride, dst, offset, w);
+            offset += w;
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,332 @@
+package com.geniecaddie.datacollection;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.SurfaceView;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * 카메라 명령 직렬 실행기
+ * - 전환/캡처/연결 종료를 단일 스레드 큐에서 순서대로 실행
+ *   → CameraConnectionManager의 핸들/포트 상태는 이 스레드에서만 바뀜
+ * - 전환 합치기: 아직 실행되지 않은 전환이 큐 끝에 있으면 새 전환으로 교체 (마지막 탭만 실행)
+ *   캡처 뒤에 들어온 전환은 캡처를 앞지르지 않음 (탭 순서 유지)
+ * - 연결 종료 요청은 대기 중인 전환을 모두 취소
+ * - 실행 중인 연결은 중단하지 않음 (끝난 뒤 최신 요청이 바로 이어서 실행)
+ *
+ * 상태 전이: IDLE → CONNECTING → PLAYING ⇄ CAPTURING, PLAYING/IDLE → DISCONNECTING → IDLE
+ */
+public class CameraCommandExecutor {
+    private static final String TAG = "CameraCommand";
+
+    // 종료 대기 상한 (UI 스레드에서 기다리므로 ANR 기준 5초보다 한참 짧게)
+    private static final long DISCONNECT_WAIT_MS = 1000;
+    private static final long SHUTDOWN_WAIT_MS = 2000;
+
+    public enum State {
+        IDLE,
+        CONNECTING,
+        PLAYING,
+        CAPTURING,
+        DISCONNECTING
+    }
+
+    /**
+     * 명령 결과 리스너 (UI 스레드에서 호출)
+     */
+    public interface Listener {
+        /** 최신 전환 요청의 결과만 전달 (그 사이 더 새로운 전환이 들어왔으면 생략) */
+        void onSwitchFinished(int cameraIndex, boolean success);
+
+        /** entry는 캡처를 시작하지 못했으면 null */
+        void onCaptureFinished(CaptureManifest.Entry entry, CaptureResult result);
+    }
+
+    private abstract static class Command {
+        abstract void run();
+
+        void cancel() {
+        }
+    }
+
+    private final CameraConnectionManager connectionManager;
+    private final SurfaceView surfaceView;
+    private final CaptureManifest manifest;
+    private final Listener listener;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 대기 중인 명령 (queue로 동기화), 큐에 든 명령 수 = worker에 넣은 runNext 작업 수
+    private final ArrayDeque<Command> queue = new ArrayDeque<>();
+    private volatile State state = State.IDLE;
+
+    public CameraCommandExecutor(CameraConnectionManager connectionManager, SurfaceView surfaceView,
+                                 CaptureManifest manifest, Listener listener) {
+        this.connectionManager = connectionManager;
+        this.surfaceView = surfaceView;
+        this.manifest = manifest;
+        this.listener = listener;
+    }
+
+    /**
+     * 카메라 전환 요청 (큐 끝의 대기 중인 전환은 대체됨)
+     */
+    public void requestSwitch(final int cameraIndex, final CameraInfo camera, final boolean useSubStream,
+                              final SwitchLatencyTracker.Span span) {
+        enqueue(new SwitchCommand(cameraIndex, camera, useSubStream, span));
+    }
+
+    /**
+     * 현재 프레임 캡처 요청 (앞서 요청된 전환이 끝난 뒤 실행)
+     * 파일 이름/목록 항목은 실행 시점의 카메라 기준으로 만듦
+     */
+    public void requestCapture() {
+        enqueue(new Command() {
+            @Override
+            void run() {
+                CameraInfo camera = connectionManager.getCurrentCamera();
+                if (state != State.PLAYING || camera == null) {
+                    Timber.tag(TAG).w("캡처 취소 - 재생 중 아님 (%s)", state);
+                    postCaptureFinished(null, CaptureResult.FAILED);
+                    return;
+                }
+
+                setState(State.CAPTURING);
+                CaptureManifest.Entry entry = manifest.newEntry(camera, CaptureManifest.SOURCE_DEVICE);
+                CaptureResult result = connectionManager.captureFrame(entry, manifest.pathFor(entry));
+                setState(connectionManager.isConnected() ? State.PLAYING : State.IDLE);
+                postCaptureFinished(entry, result);
+            }
+        });
+    }
+
+    /**
+     * 연결 종료 요청 (대기 중인 전환 취소, 비동기)
+     */
+    public void requestDisconnect() {
+        cancelPendingSwitches();
+        enqueue(new DisconnectCommand(null));
+    }
+
+    /**
+     * 카메라와 무관한 백그라운드 작업 (통계 파일 저장 등)
+     * 앞선 명령이 끝난 뒤 같은 스레드에서 실행 - 종료 시 shutdown이 끝날 때까지 기다림
+     */
+    public void requestTask(final Runnable task) {
+        enqueue(new Command() {
+            @Override
+            void run() {
+                task.run();
+            }
+        });
+    }
+
+    /**
+     * 연결 종료 후 대기 (Surface 파괴 - 화면이 사라지기 전에 렌더링 중지)
+     * 실행 중인 연결이 길어지면 DISCONNECT_WAIT_MS 후 반환하고 종료는 큐에서 이어서 진행
+     */
+    public void disconnectAndWait() {
+        cancelPendingSwitches();
+        CountDownLatch done = new CountDownLatch(1);
+        enqueue(new DisconnectCommand(done));
+        try {
+            if (!done.await(DISCONNECT_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                Timber.tag(TAG).w("연결 종료 대기 시간 초과 (%s) - 큐에서 계속 진행", state);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 대기 중인 명령이 없고 연결도 없는 상태
+     */
+    public boolean isIdle() {
+        synchronized (queue) {
+            return state == State.IDLE && queue.isEmpty();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 종료 (Activity onDestroy, connectionManager.release 전에 호출)
+     */
+    public void shutdown() {
+        cancelPendingSwitches();
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                Timber.tag(TAG).w("명령 스레드 종료 대기 시간 초과 (%s)", state);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    // ========== 큐 ==========
+
+    private void enqueue(Command command) {
+        synchronized (queue) {
+            if (command instanceof SwitchCommand && queue.peekLast() instanceof SwitchCommand) {
+                // 아직 시작하지 않은 전환을 교체 (runNext 작업 수는 그대로)
+                Command replaced = queue.pollLast();
+                replaced.cancel();
+                queue.addLast(command);
+                return;
+            }
+            queue.addLast(command);
+        }
+
+        try {
+            worker.execute(this::runNext);
+        } catch (RejectedExecutionException e) {
+            Timber.tag(TAG).w("종료된 실행기에 명령 요청 - 무시");
+            synchronized (queue) {
+                queue.remove(command);
+            }
+            command.cancel();
+        }
+    }
+
+    private void runNext() {
+        Command command;
+        synchronized (queue) {
+            command = queue.pollFirst();
+        }
+        if (command == null) {
+            return;     // 취소로 비워진 자리
+        }
+
+        try {
+            command.run();
+        } catch (Exception e) {
+            Timber.tag(TAG).e(e, "카메라 명령 실행 중 예외 발생");
+            setState(connectionManager.isConnected() ? State.PLAYING : State.IDLE);
+        }
+    }
+
+    private void cancelPendingSwitches() {
+        synchronized (queue) {
+            Iterator<Command> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Command command = iterator.next();
+                if (command instanceof SwitchCommand) {
+                    iterator.remove();
+                    command.cancel();
+                }
+            }
+        }
+    }
+
+    private boolean hasPendingSwitch() {
+        synchronized (queue) {
+            for (Command command : queue) {
+                if (command instanceof SwitchCommand) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private void setState(State next) {
+        if (state != next) {
+            Timber.tag(TAG).d("상태 %s → %s", state, next);
+            state = next;
+        }
+    }
+
+    private void postCaptureFinished(final CaptureManifest.Entry entry, final CaptureResult result) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onCaptureFinished(entry, result);
+            }
+        });
+    }
+
+    // ========== 명령 ==========
+
+    private class SwitchCommand extends Command {
+        final int cameraIndex;
+        final CameraInfo camera;
+        final boolean useSubStream;
+        final SwitchLatencyTracker.Span span;
+
+        SwitchCommand(int cameraIndex, CameraInfo camera, boolean useSubStream, SwitchLatencyTracker.Span span) {
+            this.cameraIndex = cameraIndex;
+            this.camera = camera;
+            this.useSubStream = useSubStream;
+            this.span = span;
+        }
+
+        @Override
+        void run() {
+            setState(State.CONNECTING);
+            final boolean success = connectionManager.connectAndPlay(camera, surfaceView, useSubStream, span);
+            setState(success ? State.PLAYING : State.IDLE);
+
+            if (hasPendingSwitch()) {
+                Timber.tag(TAG).d("카메라 %d 전환 완료 - 더 최신 전환이 대기 중이므로 결과 보고 생략", cameraIndex);
+                return;
+            }
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onSwitchFinished(cameraIndex, success);
+                }
+            });
+        }
+
+        @Override
+        void cancel() {
+            Timber.tag(TAG).d("카메라 %d 전환 요청 취소 (실행 전)", cameraIndex);
+            if (span != null) {
+                span.abandon();
+            }
+        }
+    }
+
+    private class DisconnectCommand extends Command {
+        final CountDownLatch done;
+
+        DisconnectCommand(CountDownLatch done) {
+            this.done = done;
+        }
+
+        @Override
+        void run() {
+            try {
+                if (connectionManager.isConnected() || state != State.IDLE) {
+                    setState(State.DISCONNECTING);
+                    connectionManager.disconnect();
+                }
+                setState(State.IDLE);
+            } finally {
+                if (done != null) {
+                    done.countDown();
+                }
+            }
+        }
+
+        @Override
+        void cancel() {
+            if (done != null) {
+                done.countDown();
+            }
+        }
+    }
+}
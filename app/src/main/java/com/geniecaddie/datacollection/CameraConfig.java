@@ -11,6 +11,71 @@ public class CameraConfig {
     public static final String USERNAME = "admin";
     public static final String PASSWORD = "genie0801";
 
+    // 프리뷰 모드 (true: 서브 스트림으로 미리보기, 캡처는 장비 스냅샷으로 원본 해상도)
+    public static final boolean USE_SUB_STREAM_PREVIEW = true;
+
+    // 하드웨어 디코딩 우선 사용 (실패/화면 깨짐 포맷은 DecodeEnginePolicy가 소프트웨어로 기록)
+    public static final boolean USE_HW_DECODE = true;
+
+    // 재생 프로파일 (REALTIME: 버퍼링 최소 + 늦은 프레임 드롭, DEFAULT: PlaySDK 기본값, SMOOTH: 유창성 우선)
+    public static final PlaybackProfile PLAYBACK_PROFILE = PlaybackProfile.REALTIME;
+
+    // 디코딩 프레임 캡처 JPEG 품질 (1~100, PLAYGetPicJPEG)
+    public static final int SNAPSHOT_JPEG_QUALITY = 95;
+
+    // 연속 캡처 (디코딩 프레임 캡처 시 N프레임 중 가장 선명한 프레임 저장, 1이면 단일 캡처)
+    public static final int BURST_FRAME_COUNT = 5;
+    public static final int BURST_MAX_FRAMES = 8;               // 미리 할당하는 프레임 슬롯 수
+
+    // 학습용 축소본 (캡처마다 같은 프레임에서 가로 THUMBNAIL_WIDTH 사본을 날짜 폴더/THUMBNAIL_DIR에 함께 저장, 0이면 끔)
+    public static final int THUMBNAIL_WIDTH = 640;
+    public static final int THUMBNAIL_JPEG_QUALITY = 90;
+    public static final String THUMBNAIL_DIR = "thumb";
+
+    // 저장 방식 (FILES: 캡처마다 JPEG 파일, SHARDS: 날짜 폴더/shards의 tar 묶음에 이어 쓰기 - 내보내기/미디어 스캔 부담 감소)
+    public static final String STORAGE_FILES = "files";
+    public static final String STORAGE_SHARDS = "shards";
+    public static final String STORAGE_BACKEND = STORAGE_FILES;
+    public static final long SHARD_MAX_BYTES = 256L * 1024 * 1024;     // 이 크기를 넘기면 봉인 후 새 샤드
+
+    // 일별 통계 파일 저장 (이 시간 안의 캡처는 한 번의 저장으로 합침)
+    public static final long DAILY_STATS_WRITE_DELAY_MS = 2000;
+
+    // 중복 캡처 제거 (카메라별 최근 해시와 64비트 dHash 해밍 거리 비교)
+    public static final boolean DEDUPE_ENABLED = true;
+    public static final int DEDUPE_HAMMING_THRESHOLD = 4;       // 이 거리 이하면 중복 (0~64)
+    public static final int DEDUPE_RECENT_PER_CAMERA = 32;      // 카메라별 보관 해시 수
+
+    // 움직임 감지 캡처 (디코딩 프레임 배경 차분, 관심 영역에 움직임이 생기면 스냅샷)
+    public static final boolean MOTION_TRIGGER_ENABLED = false;
+    public static final int MOTION_FRAME_SKIP = 5;              // N프레임마다 1장 분석 (25fps → 5fps)
+    public static final float[] MOTION_ROI = {0.2f, 0.3f, 0.6f, 0.6f};  // 관심 영역 (x, y, w, h 비율)
+    public static final double MOTION_MIN_FOREGROUND = 0.005;   // 관심 영역 중 전경 비율 하한
+    public static final int MOTION_CONFIRM_FRAMES = 2;          // 연속 감지 분석 횟수
+    public static final long MOTION_COOLDOWN_MS = 3000;         // 트리거 후 재트리거 금지 시간
+
+    // 예측 프리페치 (다음에 누를 가능성이 높은 카메라를 미리 로그인)
+    public static final int PREFETCH_CAMERA_COUNT = 2;
+    public static final boolean PREFETCH_SUB_STREAM = true;     // 예측 카메라 서브 스트림을 디코딩 없이 미리 수신
+    public static final int MAX_IDLE_SESSIONS = 4;              // 스트림 없이 유지하는 프리페치 로그인 세션 상한 (시작 시 워밍 세션 제외)
+
+    // 카메라 소스 (NETSDK: 실제 장비, FILE_REPLAY: Download/REPLAY_DIR의 녹화 파일, SYNTHETIC: 합성 영상)
+    public static final String SOURCE_NETSDK = "netsdk";
+    public static final String SOURCE_FILE_REPLAY = "file_replay";
+    public static final String SOURCE_SYNTHETIC = "synthetic";
+    public static final String CAMERA_SOURCE = SOURCE_NETSDK;
+    public static final String REPLAY_DIR = "CameraReplay";     // <카메라 이름>.dav / .h264 (서브: <이름>_sub.*)
+    public static final float REPLAY_SPEED = 1.0f;              // 1.0 = 실시간, 2.0 = 2배속
+
+    // 무인 자동 수집 (스냅샷 버튼 길게 누르기로 시작/중지, 장비 스냅샷만 사용)
+    public static final long AUTO_COLLECT_ROUND_MS = 10 * 60 * 1000L;  // 전체 카메라 순회 간격
+    public static final int AUTO_COLLECT_SHOTS_PER_CAMERA = 3;
+    public static final long AUTO_COLLECT_SHOT_GAP_MS = 2000;           // 같은 카메라 연속 촬영 간격
+    public static final int AUTO_COLLECT_DAILY_QUOTA = 200;             // 홀(티)별 하루 목표 개수
+    public static final double AUTO_COLLECT_CPU_BUDGET = 0.1;           // 수집 스레드 CPU 사용률 상한
+    public static final long AUTO_COLLECT_MIN_FREE_MB = 1024;           // 남은 저장 공간 하한
+    public static final long AUTO_COLLECT_DAILY_MB = 2048;              // 하루 저장량 상한
+
     // 18개 카메라 정보
     public static final CameraInfo[] CAMERAS = {
         // 1홀
@@ -60,6 +125,18 @@ public class CameraConfig {
         return null;
     }
 
+    /**
+     * 카메라 인덱스 (목록에 없으면 -1)
+     */
+    public static int indexOf(CameraInfo camera) {
+        for (int i = 0; i < CAMERAS.length; i++) {
+            if (CAMERAS[i] == camera) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * 홀 번호와 티 타입으로 카메라 찾기
      * @param hole 홀 번호 (1~9)
@@ -1,41 +1,123 @@
 package com.geniecaddie.datacollection;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.view.SurfaceView;
 
-import com.company.NetSDK.CB_fRealDataCallBackEx;
-import com.company.NetSDK.EM_LOCAL_MODE;
-import com.company.NetSDK.EM_LOGIN_SPAC_CAP_TYPE;
-import com.company.NetSDK.INetSDK;
-import com.company.NetSDK.NET_IN_LOGIN_WITH_HIGHLEVEL_SECURITY;
-import com.company.NetSDK.NET_OUT_LOGIN_WITH_HIGHLEVEL_SECURITY;
-import com.company.NetSDK.SDK_RealPlayType;
 import com.company.PlaySDK.Constants;
 import com.company.PlaySDK.IPlaySDK;
+import com.company.PlaySDK.IPlaySDKCallBack;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import timber.log.Timber;
 
 /**
  * 카메라 연결 매니저
- * - NetSDK: 카메라 로그인 및 실시간 스트림 요청
+ * - CameraSessionPool: 로그인 세션 대여/반납 (PlaySDK 포트 준비와 병렬 진행)
+ * - CameraSource: 실시간 스트림 요청 / 장비 스냅샷 (NetSDK 장비, 녹화 파일, 합성 영상)
  * - PlaySDK: 스트림 디코딩 및 렌더링
  */
 public class CameraConnectionManager {
     private static final String TAG = "CameraConnection";
 
-    // NetSDK
-    private static final int STREAM_BUF_SIZE = 2 * 1024 * 1024; // 2MB
-    private static final int RAW_AUDIO_VIDEO_MIX_DATA = 0;
+    // 연결 파이프라인 (로그인 대기 상한 - NetSDK 기본 로그인 타임아웃보다 길게)
+    private static final long LOGIN_WAIT_MS = 10 * 1000;
+
+    /**
+     * 연결 단계별 소요 시간 (로그인과 포트 준비의 겹침 확인용)
+     */
+    private static class ConnectTimings {
+        long teardownMs;            // 이전 스트림 정리
+        volatile long loginMs;      // 세션 획득 (loginExecutor)
+        long portMs;                // 포트 할당 + OpenStream + PLAYPlay
+        long waitMs;                // 포트 준비 후 로그인 합류 대기
+        long pipelineMs;            // 병렬 구간 전체
+        long realPlayMs;            // RealPlayEx + 콜백 등록
+
+        @Override
+        public String toString() {
+            long overlap = Math.max(0, loginMs + portMs - pipelineMs);
+            return String.format(Locale.US,
+                "정리 %dms, 로그인 %dms ∥ 포트 %dms → 병렬 %dms (대기 %dms, 겹침 %dms), RealPlay %dms",
+                teardownMs, loginMs, portMs, pipelineMs, waitMs, overlap, realPlayMs);
+        }
+    }
 
     private Context context;
+    private final CameraSessionPool sessionPool;
+    private final CameraSource source;
+    private final PlayPortReaper portReaper;
+    private final CameraPrefetcher prefetcher;
+    private final DecodeEnginePolicy decodePolicy;
+    private DecodeEnginePolicy.StreamObserver streamObserver;
+    private final StreamBufferSizer bufferSizer;
+    private StreamBufferSizer.Measurement bufferMeasurement;
+    private final PlaybackLatencyProbe latencyProbe = new PlaybackLatencyProbe();
+    private final SnapshotWriter snapshotWriter = new SnapshotWriter();
+    private final ThumbnailWriter thumbnailWriter = new ThumbnailWriter(snapshotWriter);
+    private final CaptureDeduplicator deduplicator;
+    private final BurstCapture burstCapture;
+    private final MotionTrigger motionTrigger = new MotionTrigger();
+    private final StreamFeeder streamFeeder = new StreamFeeder();
+    private final ExecutorService loginExecutor = Executors.newSingleThreadExecutor();
     private long loginHandle = 0;
-    private long realHandle = 0;
+    private volatile long realHandle = 0;
     private int playPort = -1;
-    private CB_fRealDataCallBackEx realDataCallback;
+    private volatile CameraSource.DataSink activeSink;     // 현재 스트림의 sink (이전 스트림의 늦은 데이터 걸러냄)
+    private IPlaySDKCallBack.fpEncChangeCBFunEx encChangeCallback;
+    private int tappedPort = -1;                            // 프레임 탭이 붙은 포트 (포트당 디코딩 콜백은 1개)
+    private volatile SwitchLatencyTracker.Span activeSpan;
     private CameraInfo currentCamera;
 
-    public CameraConnectionManager(Context context) {
+    // 프리뷰 모드: true면 서브 스트림(저해상도)으로 미리보기, 캡처는 장비 스냅샷으로 원본 해상도
+    private volatile boolean subStreamPreview = CameraConfig.USE_SUB_STREAM_PREVIEW;
+    private boolean playingSubStream = false;
+
+    // 재생 프로파일 (다음 연결부터 적용)
+    private volatile PlaybackProfile playbackProfile = CameraConfig.PLAYBACK_PROFILE;
+
+    // 디코딩 프레임 캡처 JPEG 품질 (1~100)
+    private volatile int jpegQuality = CameraConfig.SNAPSHOT_JPEG_QUALITY;
+
+    // 연속 캡처 프레임 수 (1 이하면 단일 캡처)
+    private volatile int burstFrames = CameraConfig.BURST_FRAME_COUNT;
+
+    // 디코딩 프레임 탭: 연속 캡처와 움직임 감지가 한 콜백을 공유 (화면 표시는 유지)
+    // 필요할 때만 붙임 - 붙어 있으면 PlaySDK가 프레임마다 YUV를 Java 배열로 넘기므로
+    private final IPlaySDKCallBack.fCBDecode frameTap = new IPlaySDKCallBack.fCBDecode() {
+        @Override
+        public void invoke(int nPort, IPlaySDKCallBack.FRAME_DECODE_INFO decodeInfo,
+                           IPlaySDKCallBack.FRAME_INFO_EX frameInfo, long pUserData) {
+            if (frameInfo == null || decodeInfo == null) {
+                return;
+            }
+            burstCapture.onDecodedFrame(decodeInfo, frameInfo);
+            motionTrigger.onDecodedFrame(decodeInfo);
+        }
+    };
+
+    public CameraConnectionManager(Context context, CameraSessionPool sessionPool, CameraSource source,
+                                   PlayPortReaper portReaper, CameraPrefetcher prefetcher,
+                                   DecodeEnginePolicy decodePolicy, StreamBufferSizer bufferSizer,
+                                   CaptureDeduplicator deduplicator) {
         this.context = context;
+        this.sessionPool = sessionPool;
+        this.source = source;
+        this.portReaper = portReaper;
+        this.prefetcher = prefetcher;
+        this.decodePolicy = decodePolicy;
+        this.bufferSizer = bufferSizer;
+        this.deduplicator = deduplicator;
+        this.burstCapture = new BurstCapture(snapshotWriter, deduplicator, thumbnailWriter,
+            CameraConfig.BURST_MAX_FRAMES);
 
         // PlaySDK 포트는 사용할 때마다 새로 할당 (재사용 금지)
         this.playPort = -1;
@@ -44,121 +126,262 @@ public class CameraConnectionManager {
 
     /**
      * 카메라 연결 및 스트림 시작
+     *
+     * 로그인 핸들은 세션 풀에서 빌려오므로 전환 시에는
+     * 이전 RealPlayEx 중지 → 새 RealPlayEx 시작만 수행
      */
     public boolean connectAndPlay(CameraInfo camera, SurfaceView surfaceView) {
+        return connectAndPlay(camera, surfaceView, subStreamPreview);
+    }
+
+    /**
+     * 카메라 연결 및 스트림 시작 (스트림 종류 지정)
+     *
+     * 세션 획득(로그인)과 PlaySDK 포트 준비는 서로 의존하지 않으므로 병렬로 진행
+     * - 로그인: loginExecutor에서 sessionPool.acquire
+     * - 포트 할당/디코딩 스레드 설정/Surface 연결: 호출 스레드
+     * 두 작업이 모두 끝난 뒤에만 RealPlayEx 호출
+     *
+     * @param useSubStream true=서브 스트림, false=메인 스트림 (모자이크 타일 승격 등)
+     */
+    public boolean connectAndPlay(CameraInfo camera, SurfaceView surfaceView, boolean useSubStream) {
+        return connectAndPlay(camera, surfaceView, useSubStream, null);
+    }
+
+    /**
+     * 카메라 연결 및 스트림 시작 (전환 지연 계측 포함)
+     *
+     * @param span 버튼 탭 시점에 시작한 계측 구간 (없으면 null)
+     *             첫 프레임이 디코딩되면 완료되고, 연결 실패 시 실패로 기록됨
+     */
+    public boolean connectAndPlay(CameraInfo camera, SurfaceView surfaceView, boolean useSubStream,
+                                  SwitchLatencyTracker.Span span) {
+        // 이전 전환이 첫 프레임 전에 끝났으면 실패로 기록 (완료된 구간이면 무시됨)
+        if (activeSpan != null) {
+            activeSpan.abandon();
+        }
+        activeSpan = span;
+        markSpan(SwitchLatencyTracker.Phase.CONNECT_START);
+
+        boolean connected = connect(camera, surfaceView, useSubStream);
+        if (!connected && span != null) {
+            span.abandon();
+        }
+        return connected;
+    }
+
+    private boolean connect(final CameraInfo camera, SurfaceView surfaceView, boolean useSubStream) {
         Timber.tag(TAG).i("=== 카메라 연결 시작 ===");
         Timber.tag(TAG).i("카메라: %s", camera.toString());
+        final ConnectTimings timings = new ConnectTimings();
+        long startTime = SystemClock.elapsedRealtime();
 
-        // 1. 기존 연결 정리
+        // 1. 기존 스트림 정리 (로그인 세션은 풀에 반납)
         disconnect();
-
-        // 2. 카메라 로그인
-        if (!login(camera)) {
-            Timber.tag(TAG).e("로그인 실패");
-            return false;
+        long pipelineStart = SystemClock.elapsedRealtime();
+        timings.teardownMs = pipelineStart - startTime;
+
+        // 예측 프리페치로 이미 수신 중인 서브 스트림이 있으면 그대로 인수
+        if (useSubStream && prefetcher != null) {
+            CameraPrefetcher.PrefetchedStream prefetched = prefetcher.take(camera);
+            if (prefetched != null && adoptPrefetched(prefetched, surfaceView)) {
+                currentCamera = camera;
+                Timber.tag(TAG).i("=== 카메라 연결 성공 (프리페치 인수) - 전환 소요시간: %dms ===",
+                    SystemClock.elapsedRealtime() - startTime);
+                return true;
+            }
         }
 
-        // 3. 스트림 열기 (PlaySDK)
-        if (!openStream(surfaceView)) {
+        // 2. 세션 획득을 백그라운드에서 시작
+        Future<Long> loginFuture = loginExecutor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                long loginStart = SystemClock.elapsedRealtime();
+                long handle = sessionPool.acquire(camera);
+                timings.loginMs = SystemClock.elapsedRealtime() - loginStart;
+                return handle;
+            }
+        });
+
+        // 3. 그동안 스트림 열기 (PlaySDK)
+        playingSubStream = useSubStream;
+        long portStart = SystemClock.elapsedRealtime();
+        boolean streamOpened = openStream(camera, surfaceView);
+        timings.portMs = SystemClock.elapsedRealtime() - portStart;
+
+        if (!streamOpened) {
             Timber.tag(TAG).e("스트림 열기 실패");
-            logout();
+            cancelLogin(camera, loginFuture);
             return false;
         }
 
-        // 4. 실시간 재생 시작 (NetSDK)
-        if (!startRealPlay(camera.getChannel())) {
-            Timber.tag(TAG).e("실시간 재생 시작 실패");
+        // 4. 로그인 결과 합류
+        long waitStart = SystemClock.elapsedRealtime();
+        loginHandle = awaitLogin(camera, loginFuture);
+        timings.waitMs = SystemClock.elapsedRealtime() - waitStart;
+        timings.pipelineMs = SystemClock.elapsedRealtime() - pipelineStart;
+
+        if (loginHandle == 0) {
+            Timber.tag(TAG).e("로그인 실패");
             closeStream();
-            logout();
             return false;
         }
+        markSpan(SwitchLatencyTracker.Phase.SESSION);
+
+        // 5. 실시간 재생 시작
+        long realPlayStart = SystemClock.elapsedRealtime();
+        if (!startRealPlay(camera)) {
+            // 풀의 핸들이 끊긴 세션일 수 있으므로 1회 강제 재로그인 후 재시도
+            // (공유 세션이어도 새 핸들로 교체, 참조는 그대로 유지)
+            Timber.tag(TAG).w("스트림 시작 실패 - 세션 재로그인 후 재시도");
+            loginHandle = sessionPool.relogin(camera, loginHandle);
+
+            if (loginHandle == 0) {
+                // 재로그인 실패 시 풀이 참조를 이미 해제함 - 반납하지 않음
+                Timber.tag(TAG).e("재로그인 실패");
+                streamFeeder.stop();
+                closeStream();
+                return false;
+            }
+            if (!startRealPlay(camera)) {
+                Timber.tag(TAG).e("실시간 재생 시작 실패");
+                streamFeeder.stop();
+                closeStream();
+                releaseSession(camera);
+                return false;
+            }
+        }
+        timings.realPlayMs = SystemClock.elapsedRealtime() - realPlayStart;
+        markSpan(SwitchLatencyTracker.Phase.REAL_PLAY);
 
         currentCamera = camera;
-        Timber.tag(TAG).i("=== 카메라 연결 성공 ===");
+        Timber.tag(TAG).i("=== 카메라 연결 성공 - 전환 소요시간: %dms (%s) ===",
+            SystemClock.elapsedRealtime() - startTime, timings);
         return true;
     }
 
     /**
-     * 카메라 로그인 (NetSDK)
+     * 프리페치 스트림 인수 - 포트만 열고 이미 흐르고 있는 RealPlayEx를 피더에 연결
+     * 실패 시 프리페치 스트림은 정리되고 호출자는 일반 연결 경로로 진행
      */
-    private boolean login(CameraInfo camera) {
-        try {
-            NET_IN_LOGIN_WITH_HIGHLEVEL_SECURITY stuIn = new NET_IN_LOGIN_WITH_HIGHLEVEL_SECURITY();
-
-            // IP 설정
-            byte[] ipBytes = camera.getIp().getBytes();
-            System.arraycopy(ipBytes, 0, stuIn.szIP, 0, Math.min(ipBytes.length, stuIn.szIP.length));
-
-            // 포트 설정
-            stuIn.nPort = Integer.parseInt(camera.getPort());
+    private boolean adoptPrefetched(CameraPrefetcher.PrefetchedStream prefetched, SurfaceView surfaceView) {
+        playingSubStream = true;
+        if (!openStream(prefetched.camera, surfaceView)) {
+            Timber.tag(TAG).w("프리페치 인수 실패 (스트림 열기) - 일반 연결로 진행");
+            prefetcher.discard(prefetched);
+            return false;
+        }
 
-            // 사용자명 설정
-            byte[] userBytes = CameraConfig.USERNAME.getBytes();
-            System.arraycopy(userBytes, 0, stuIn.szUserName, 0, Math.min(userBytes.length, stuIn.szUserName.length));
+        // 세션 참조와 realHandle 소유권이 이 매니저로 넘어옴 (disconnect에서 정리)
+        loginHandle = prefetched.loginHandle;
+        streamFeeder.start(playPort);
+        realHandle = prefetched.realHandle;
+        activeSink = newFeederSink();
+        prefetched.attach(activeSink);     // 일반 연결과 같은 sink 확인을 거침 (다음 전환 후 늦은 데이터 차단)
+        markSpan(SwitchLatencyTracker.Phase.FIRST_DATA);   // 이미 수신 중이던 스트림
 
-            // 비밀번호 설정
-            byte[] pwdBytes = CameraConfig.PASSWORD.getBytes();
-            System.arraycopy(pwdBytes, 0, stuIn.szPassword, 0, Math.min(pwdBytes.length, stuIn.szPassword.length));
+        Timber.tag(TAG).d("프리페치 스트림 인수 - Handle: %d, Port: %d", realHandle, playPort);
+        return true;
+    }
 
-            // TCP 모드
-            stuIn.emSpecCap = EM_LOGIN_SPAC_CAP_TYPE.EM_LOGIN_SPEC_CAP_TCP;
+    private void markSpan(SwitchLatencyTracker.Phase phase) {
+        SwitchLatencyTracker.Span span = activeSpan;
+        if (span != null) {
+            span.mark(phase);
+        }
+    }
 
-            NET_OUT_LOGIN_WITH_HIGHLEVEL_SECURITY stuOut = new NET_OUT_LOGIN_WITH_HIGHLEVEL_SECURITY();
-            loginHandle = INetSDK.LoginWithHighLevelSecurity(stuIn, stuOut);
+    /**
+     * 백그라운드 로그인 결과 대기
+     * 시간 초과/예외 시 0을 반환하며, 나중에 로그인이 끝나도 세션은 반납되도록 정리 예약
+     */
+    private long awaitLogin(CameraInfo camera, Future<Long> loginFuture) {
+        try {
+            return loginFuture.get(LOGIN_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Timber.tag(TAG).w("로그인 대기 중 인터럽트");
+        } catch (TimeoutException e) {
+            Timber.tag(TAG).w("로그인 대기 시간 초과 (%dms)", LOGIN_WAIT_MS);
+        } catch (ExecutionException e) {
+            Timber.tag(TAG).e(e.getCause(), "로그인 작업 중 예외 발생");
+            return 0;
+        }
+        cancelLogin(camera, loginFuture);
+        return 0;
+    }
 
-            if (loginHandle == 0) {
-                int errorCode = INetSDK.GetLastError();
-                Timber.tag(TAG).e("NetSDK 로그인 실패 - IP: %s, Port: %s, ErrorCode: %d",
-                    camera.getIp(), camera.getPort(), errorCode);
-                return false;
-            }
+    /**
+     * 진행 중인 로그인 취소
+     * 아직 시작 전이면 실행 자체를 취소하고, 이미 네이티브 로그인 중이면 (중단 불가)
+     * 같은 executor의 후속 작업으로 끝난 뒤 참조를 반납함 → 호출 스레드는 기다리지 않음
+     */
+    private void cancelLogin(final CameraInfo camera, final Future<Long> loginFuture) {
+        if (loginFuture.cancel(false)) {
+            Timber.tag(TAG).d("로그인 시작 전 취소 - %s", camera.getName());
+            return;
+        }
 
-            // 최적화 모드 설정
-            int nPlayValue = 0x01 | 0x02;
-            boolean ret = INetSDK.SetLocalMode(loginHandle, EM_LOCAL_MODE.EM_LOCAL_PLAY_FLAG_MODE, nPlayValue);
-            if (!ret) {
-                Timber.tag(TAG).w("SetLocalMode 설정 실패 (비필수)");
+        loginExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (loginFuture.get() != 0) {
+                        sessionPool.release(camera);
+                        Timber.tag(TAG).d("취소된 연결의 세션 반납 - %s", camera.getName());
+                    }
+                } catch (Exception e) {
+                    // 로그인 자체가 실패했으면 반납할 참조가 없음
+                }
             }
-
-            Timber.tag(TAG).d("NetSDK 로그인 성공 - Handle: %d", loginHandle);
-            return true;
-        } catch (UnsatisfiedLinkError e) {
-            Timber.tag(TAG).e(e, "NetSDK 라이브러리 로드 실패 - 카메라 연결 불가");
-            return false;
-        } catch (Exception e) {
-            Timber.tag(TAG).e(e, "NetSDK 로그인 중 예외 발생");
-            return false;
-        }
+        });
     }
 
     /**
      * PlaySDK 스트림 열기
      */
-    private boolean openStream(SurfaceView surfaceView) {
+    private boolean openStream(CameraInfo camera, SurfaceView surfaceView) {
         // ✨ 새 포트 할당 (재사용 금지 - 메모리 충돌 방지)
         playPort = IPlaySDK.PLAYGetFreePort();
 
         if (playPort < 0) {
-            Timber.tag(TAG).e("PlayPort 할당 실패");
+            Timber.tag(TAG).e("PlayPort 할당 실패 (격리 중인 포트: %d)", portReaper.getQuarantinedCount());
             return false;
         }
 
         Timber.tag(TAG).d("새 PlayPort 할당: %d", playPort);
 
-        // 소프트웨어 디코딩 스레드 설정
-        int ret = IPlaySDK.PLAYSetDecodeThreadNum(playPort, 4);
-        if (ret == 0) {
-            Timber.tag(TAG).w("디코딩 스레드 설정 실패 (비필수)");
-        }
+        // 디코딩 엔진 설정 (하드웨어 우선, 포맷별로 기억된 소프트웨어 스레드 수)
+        String streamKey = DecodeEnginePolicy.streamKey(camera, playingSubStream);
+        DecodeEnginePolicy.DecodeConfig decodeConfig = decodePolicy.select(streamKey, playingSubStream);
+        decodeConfig = decodePolicy.apply(playPort, decodeConfig);
 
-        // 스트림 열기
-        ret = IPlaySDK.PLAYOpenStream(playPort, null, 0, STREAM_BUF_SIZE);
+        // 스트림 열기 (소스 버퍼 크기는 스트림별 비트레이트/점유율로 학습된 값)
+        PlaybackProfile profile = playbackProfile;
+        profile.applyBeforeOpen(playPort);
+        int bufferSize = bufferSizer.sizeFor(streamKey);
+        int ret = IPlaySDK.PLAYOpenStream(playPort, null, 0, bufferSize);
         if (ret == 0) {
             Timber.tag(TAG).e("PLAYOpenStream 실패 - Port: %d", playPort);
             IPlaySDK.PLAYReleasePort(playPort);
             playPort = -1;
             return false;
         }
+        profile.applyAfterOpen(playPort);
+        streamFeeder.setDropLateFrames(profile.dropsLateFrames());
+
+        // 첫 디코딩 프레임 감지 (해상도 확정 시 호출됨) - 이 포트를 연 전환의 계측 구간에만 기록
+        final SwitchLatencyTracker.Span span = activeSpan;
+        encChangeCallback = new IPlaySDKCallBack.fpEncChangeCBFunEx() {
+            @Override
+            public void invoke(int nPort, int width, int height, long pUserData) {
+                Timber.tag(TAG).d("디코딩 해상도 - Port: %d, %dx%d", nPort, width, height);
+                if (span != null) {
+                    span.mark(SwitchLatencyTracker.Phase.FIRST_FRAME);
+                }
+            }
+        };
+        IPlaySDK.PLAYSetEncTypeChangeCallBackEx(playPort, encChangeCallback, 0);
 
         // Surface로 재생 시작
         ret = IPlaySDK.PLAYPlay(playPort, surfaceView.getHolder().getSurface());
@@ -170,68 +393,118 @@ public class CameraConnectionManager {
             return false;
         }
 
-        Timber.tag(TAG).d("PlaySDK 스트림 열기 성공 - Port: %d", playPort);
+        markSpan(SwitchLatencyTracker.Phase.PORT_OPEN);
+
+        // 움직임 감지 (새 포트마다 배경 모델 초기화)
+        if (motionTrigger.isEnabled()) {
+            motionTrigger.reset();
+            attachFrameTap();
+        }
+
+        // 포맷 감지 / 하드웨어 검증 / 소프트웨어 벤치마크 샘플 수집
+        streamObserver = decodePolicy.observe(playPort, streamKey, decodeConfig);
+        bufferMeasurement = bufferSizer.start(playPort, streamKey, bufferSize, streamFeeder);
+
+        Timber.tag(TAG).d("PlaySDK 스트림 열기 성공 - Port: %d (%s, 버퍼 %dKB, 재생 %s)",
+            playPort, decodeConfig, bufferSize / 1024, profile.label);
         return true;
     }
 
     /**
-     * NetSDK 실시간 재생 시작
+     * 실시간 재생 시작 (CameraSource)
      */
-    private boolean startRealPlay(int channel) {
-        try {
-            // 실시간 스트림 요청
-            realHandle = INetSDK.RealPlayEx(
-                loginHandle,
-                channel,
-                SDK_RealPlayType.SDK_RType_Realplay_0  // Main Stream
-            );
-
-            if (realHandle == 0) {
-                int errorCode = INetSDK.GetLastError();
-                Timber.tag(TAG).e("RealPlayEx 실패 - Channel: %d, ErrorCode: %d", channel, errorCode);
-                return false;
-            }
+    private boolean startRealPlay(CameraInfo camera) {
+        // 디코더 피더 시작 (스트림 시작 전에 현재 포트로 고정 - 소스에 따라 반환 전에 데이터가 옴)
+        streamFeeder.start(playPort);
+
+        // 실시간 데이터 수신
+        activeSink = newFeederSink();
+
+        // 실시간 스트림 요청 (프리뷰 모드면 Sub Stream)
+        realHandle = source.startStream(loginHandle, camera, playingSubStream, activeSink);
+        if (realHandle == 0) {
+            activeSink = null;
+            Timber.tag(TAG).e("실시간 스트림 시작 실패 - Channel: %d, ErrorCode: %d",
+                camera.getChannel(), source.getLastError());
+            return false;
+        }
 
-            // 실시간 데이터 콜백 설정
-            realDataCallback = new CB_fRealDataCallBackEx() {
-                @Override
-                public void invoke(long rHandle, int dataType, byte[] buffer, int bufSize, int param) {
-                    // 원시 오디오/비디오 혼합 데이터
-                    if (dataType == RAW_AUDIO_VIDEO_MIX_DATA) {
-                        // PlaySDK로 데이터 전달하여 디코딩
-                        IPlaySDK.PLAYInputData(playPort, buffer, buffer.length);
+        Timber.tag(TAG).d("실시간 재생 시작 - Handle: %d, Channel: %d, %s",
+            realHandle, camera.getChannel(), playingSubStream ? "Sub Stream" : "Main Stream");
+        return true;
+    }
+
+    /**
+     * 피더로 넘기는 현재 스트림 sink (activeSink로 지정된 동안만 전달)
+     * 수신 스레드에서는 링 버퍼에 복사만 하고 즉시 반환 (디코딩은 피더 스레드)
+     */
+    private CameraSource.DataSink newFeederSink() {
+        final SwitchLatencyTracker.Span span = activeSpan;
+        return new CameraSource.DataSink() {
+            @Override
+            public void onData(long streamHandle, byte[] buffer, int size) {
+                // 이미 중지된 이전 스트림의 늦은 데이터는 무시
+                if (this == activeSink) {
+                    if (span != null && !span.isMarked(SwitchLatencyTracker.Phase.FIRST_DATA)) {
+                        span.mark(SwitchLatencyTracker.Phase.FIRST_DATA);
                     }
+                    streamFeeder.offer(buffer, size);
                 }
-            };
-
-            INetSDK.SetRealDataCallBackEx(realHandle, realDataCallback, 1);
-
-            Timber.tag(TAG).d("NetSDK 실시간 재생 시작 - Handle: %d, Channel: %d", realHandle, channel);
-            return true;
-        } catch (UnsatisfiedLinkError e) {
-            Timber.tag(TAG).e(e, "NetSDK RealPlayEx 라이브러리 오류");
-            return false;
-        } catch (Exception e) {
-            Timber.tag(TAG).e(e, "NetSDK 실시간 재생 시작 중 예외 발생");
-            return false;
-        }
+            }
+        };
     }
 
     /**
      * 현재 프레임 캡처 (JPG)
+     *
+     * 서브 스트림 프리뷰 중이면 장비 스냅샷으로 원본 해상도를 받고,
+     * 장비 스냅샷이 실패하면 프리뷰 포트에서 (저해상도로) 캡처
+     * 디코딩 프레임 캡처는 연속 캡처 설정 시 N프레임 중 가장 선명한 프레임을 고르고,
+     * 메모리로 인코딩만 한 뒤 파일 저장은 SnapshotWriter가 이어서 수행
+     * (SAVED 반환 시점에 파일이 아직 없을 수 있음)
+     * 모든 경로에서 저장 전(장비 스냅샷/동기 캡처는 저장 직후) 최근 캡처와 중복 검사
+     * 저장하는 캡처는 같은 프레임의 학습용 축소본도 함께 저장 (ThumbnailWriter)
+     * 저장이 끝나면 entry(경로/해상도/비트레이트 등)를 캡처 목록에 추가 (CaptureManifest)
      */
-    public boolean captureFrame(String filePath) {
+    public CaptureResult captureFrame(CaptureManifest.Entry entry, String filePath) {
         if (playPort < 0) {
             Timber.tag(TAG).e("PlayPort가 유효하지 않음");
-            return false;
+            return CaptureResult.FAILED;
         }
 
         if (!isConnected()) {
             Timber.tag(TAG).e("카메라가 연결되지 않음");
-            return false;
+            return CaptureResult.FAILED;
+        }
+
+        String cameraKey = currentCamera.getName();
+        Integer bitRate = PlaySdkOutParams.newInt();     // JNI가 값을 채움
+        if (IPlaySDK.PLAYGetRealFrameBitRate(playPort, bitRate) != 0) {
+            entry.bitRate = bitRate;
+        }
+
+        if (playingSubStream) {
+            if (captureFromDevice(filePath)) {
+                entry.source = CaptureManifest.SOURCE_DEVICE;
+                return checkSavedFile(cameraKey, filePath, entry);
+            }
+            Timber.tag(TAG).w("장비 스냅샷 실패 - 서브 스트림 프레임으로 대체 캡처");
         }
 
-        // JPG 형식으로 캡처
+        int frames = burstFrames;
+        if (frames > 1 && attachFrameTap()) {
+            CaptureResult result = burstCapture.capture(playPort, frames, jpegQuality, cameraKey, filePath, entry);
+            if (result != CaptureResult.FAILED) {
+                return result;
+            }
+        }
+
+        CaptureResult result = captureToMemory(cameraKey, filePath, entry);
+        if (result != CaptureResult.FAILED) {
+            return result;
+        }
+
+        // JPG 형식으로 캡처 (인코딩 + 저장을 호출 스레드에서 동기 수행)
         int ret = IPlaySDK.PLAYCatchPicEx(
             playPort,
             filePath,
@@ -240,37 +513,197 @@ public class CameraConnectionManager {
 
         if (ret == 0) {
             Timber.tag(TAG).e("캡처 실패 - Port: %d, Path: %s", playPort, filePath);
-            return false;
+            return CaptureResult.FAILED;
         }
 
         Timber.tag(TAG).i("캡처 성공 - Path: %s", filePath);
+        entry.source = CaptureManifest.SOURCE_CATCH;
+        return checkSavedFile(cameraKey, filePath, entry);
+    }
+
+    /**
+     * 이미 저장된 캡처 파일 중복 검사 (중복이면 파일 삭제), 저장 유지 시 축소본 생성 + 목록 기록
+     */
+    private CaptureResult checkSavedFile(String cameraKey, String filePath, CaptureManifest.Entry entry) {
+        if (deduplicator.checkFileAndDelete(cameraKey, filePath)) {
+            return CaptureResult.DUPLICATE;
+        }
+        if (thumbnailWriter.writeFor(filePath)) {
+            entry.flags |= CaptureManifest.FLAG_THUMBNAIL;
+        }
+        CaptureManifest.readFileInfo(filePath, entry);
+        snapshotWriter.commitAfterPending(entry);   // 축소본 저장 뒤 기록
+        return CaptureResult.SAVED;
+    }
+
+    /**
+     * 현재 포트에 프레임 탭 등록 (이미 붙어 있으면 그대로)
+     */
+    private boolean attachFrameTap() {
+        if (tappedPort == playPort) {
+            return true;
+        }
+        if (IPlaySDK.PLAYSetVisibleDecodeCallBack(playPort, frameTap, 0) == 0) {
+            Timber.tag(TAG).w("디코딩 콜백 등록 실패 - Port: %d", playPort);
+            return false;
+        }
+        tappedPort = playPort;
         return true;
     }
 
+    /**
+     * 디코딩 프레임을 풀 버퍼에 JPEG으로 받고 저장은 비동기로 넘김
+     *
+     * @return FAILED면 동기 캡처(PLAYCatchPicEx)로 대체
+     */
+    private CaptureResult captureToMemory(String cameraKey, String filePath, CaptureManifest.Entry entry) {
+        int[] width = new int[1];
+        int[] height = new int[1];
+        if (IPlaySDK.PLAYGetPictureSize(playPort, width, height) == 0 || width[0] <= 0 || height[0] <= 0) {
+            Timber.tag(TAG).w("프레임 크기 조회 실패 - 동기 캡처로 대체");
+            return CaptureResult.FAILED;
+        }
+
+        // PlaySDK 권장 버퍼 크기: w * h * 3/2
+        byte[] buffer = snapshotWriter.acquire(width[0] * height[0] * 3 / 2);
+        if (buffer == null) {
+            return CaptureResult.FAILED;   // 저장 대기가 밀림 - 동기 캡처로 대체
+        }
+
+        long encodeStart = SystemClock.elapsedRealtime();
+        Integer jpegSize = PlaySdkOutParams.newInt();    // JNI가 값을 채움
+        if (IPlaySDK.PLAYGetPicJPEG(playPort, buffer, buffer.length, jpegSize, jpegQuality) == 0 || jpegSize <= 0) {
+            Timber.tag(TAG).w("PLAYGetPicJPEG 실패 - Port: %d, 동기 캡처로 대체", playPort);
+            snapshotWriter.release(buffer);
+            return CaptureResult.FAILED;
+        }
+
+        if (deduplicator.checkJpeg(cameraKey, buffer, jpegSize)) {
+            snapshotWriter.release(buffer);
+            return CaptureResult.DUPLICATE;
+        }
+        entry.source = CaptureManifest.SOURCE_DECODED;
+        entry.width = width[0];
+        entry.height = height[0];
+        if (!thumbnailWriter.write(buffer, jpegSize, width[0], filePath, entry)) {
+            return CaptureResult.FAILED;
+        }
+        Timber.tag(TAG).i("캡처 성공 - %dx%d, %dKB, 인코딩 %dms, 저장 대기 %d건 - Path: %s",
+            width[0], height[0], jpegSize / 1024, SystemClock.elapsedRealtime() - encodeStart,
+            snapshotWriter.getQueueDepth(), filePath);
+        return CaptureResult.SAVED;
+    }
+
+    /**
+     * 장비 측 스냅샷 (NetSDK: SnapPictureToFile)
+     * 디코딩 없이 카메라가 인코딩한 원본 해상도 JPEG을 받아 파일로 저장
+     */
+    private boolean captureFromDevice(String filePath) {
+        CameraInfo camera = currentCamera;
+        if (camera == null) {
+            return false;
+        }
+        return source.snapshot(loginHandle, camera, filePath);
+    }
+
+    /**
+     * 프리뷰 모드 설정 (다음 연결부터 적용)
+     *
+     * @param useSubStream true=서브 스트림 프리뷰 + 장비 스냅샷 캡처, false=메인 스트림 디코딩
+     */
+    public void setSubStreamPreview(boolean useSubStream) {
+        this.subStreamPreview = useSubStream;
+    }
+
+    public boolean isSubStreamPreview() {
+        return subStreamPreview;
+    }
+
+    /**
+     * 디코딩 프레임 캡처 JPEG 품질 (1~100)
+     */
+    public void setJpegQuality(int quality) {
+        this.jpegQuality = Math.max(1, Math.min(100, quality));
+    }
+
+    /**
+     * 연속 캡처 프레임 수 (1 이하면 단일 캡처, 최대 CameraConfig.BURST_MAX_FRAMES)
+     */
+    public void setBurstFrames(int frames) {
+        this.burstFrames = Math.min(frames, CameraConfig.BURST_MAX_FRAMES);
+    }
+
+    /**
+     * 움직임 감지 캡처 켜기/끄기 (다음 연결부터 적용)
+     */
+    public void setMotionTrigger(boolean enabled, MotionTrigger.Listener listener) {
+        motionTrigger.setListener(listener);
+        motionTrigger.setEnabled(enabled);
+    }
+
+    public boolean isMotionTriggerEnabled() {
+        return motionTrigger.isEnabled();
+    }
+
+    /**
+     * 스냅샷 저장 통계 (대기 건수 / 저장 지연)
+     */
+    public String getSnapshotStats() {
+        return snapshotWriter.formatStats();
+    }
+
+    /**
+     * 재생 프로파일 설정 (다음 연결부터 적용)
+     */
+    public void setPlaybackProfile(PlaybackProfile profile) {
+        this.playbackProfile = profile;
+    }
+
+    public PlaybackProfile getPlaybackProfile() {
+        return playbackProfile;
+    }
+
+    /**
+     * 재생 프로파일별 지연 측정 (현재 스트림에서 프레임을 모아 화면 없는 포트로 재생)
+     *
+     * @return 재생 중이 아니거나 이미 측정 중이면 false
+     */
+    public boolean measurePlaybackLatency(PlaybackLatencyProbe.Callback callback) {
+        if (realHandle == 0) {
+            return false;
+        }
+        return latencyProbe.start(streamFeeder, callback);
+    }
+
     /**
      * 연결 종료
      */
     public void disconnect() {
         Timber.tag(TAG).i("=== 연결 종료 시작 ===");
 
-        try {
-            // 실시간 재생 중지
-            if (realHandle != 0) {
-                INetSDK.StopRealPlayEx(realHandle);
-                realHandle = 0;
-                Timber.tag(TAG).d("NetSDK 실시간 재생 중지");
+        // 실시간 재생 중지
+        activeSink = null;
+        if (realHandle != 0) {
+            try {
+                source.stopStream(realHandle);
+                Timber.tag(TAG).d("실시간 재생 중지");
+            } catch (Exception e) {
+                Timber.tag(TAG).e(e, "실시간 재생 중지 중 예외 발생");
             }
-        } catch (UnsatisfiedLinkError e) {
-            Timber.tag(TAG).w("NetSDK StopRealPlayEx 라이브러리 오류 (무시)");
-        } catch (Exception e) {
-            Timber.tag(TAG).e(e, "NetSDK 실시간 재생 중지 중 예외 발생");
+            realHandle = 0;
         }
 
+        // 디코더 피더 중지 (포트를 닫기 전에 입력 중단)
+        latencyProbe.cancelCapture();
+        streamFeeder.stop();
+
         // 스트림 닫기
         closeStream();
 
-        // 로그아웃
-        logout();
+        // 로그인 세션 반납 (로그아웃하지 않고 풀에 유지)
+        if (currentCamera != null) {
+            releaseSession(currentCamera);
+        }
 
         currentCamera = null;
         Timber.tag(TAG).i("=== 연결 종료 완료 ===");
@@ -281,8 +714,8 @@ public class CameraConnectionManager {
      *
      * ✨ 포트 재사용 금지 방식:
      * 1. 현재 포트를 즉시 무효화 (-1)하여 재사용 차단
-     * 2. 이전 포트는 백그라운드에서 천천히 정리
-     * 3. GPU 명령 큐가 완전히 비워질 시간 확보 (1초)
+     * 2. 렌더링 중지 + Flush 후 포트를 PlayPortReaper 격리 큐로 넘김
+     * 3. Reaper가 소스 버퍼가 비거나 최대 대기 시간이 지나면 해제
      * 4. 새 연결은 다른 포트를 사용하므로 메모리 충돌 없음
      */
     private void closeStream() {
@@ -291,9 +724,15 @@ public class CameraConnectionManager {
 
             // ✨ 즉시 포트 무효화 (재사용 차단)
             playPort = -1;
+            tappedPort = -1;
 
             Timber.tag(TAG).d("포트 %d 비동기 닫기 시작", closingPort);
 
+            decodePolicy.stopObserving(streamObserver);
+            streamObserver = null;
+            bufferSizer.finish(bufferMeasurement);
+            bufferMeasurement = null;
+
             // 1. 렌더링 중지
             IPlaySDK.PLAYStop(closingPort);
 
@@ -301,66 +740,35 @@ public class CameraConnectionManager {
             int flushResult = IPlaySDK.PLAYFlush(closingPort);
             Timber.tag(TAG).d("포트 %d Flush 결과: %d", closingPort, flushResult);
 
-            // 3. 백그라운드에서 안전하게 리소스 해제
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        // GPU 명령 큐가 완전히 비워질 때까지 대기
-                        // Mali GPU는 비동기 처리이므로 충분한 시간 필요
-                        Thread.sleep(1000);
-
-                        // 버퍼 상태 최종 확인
-                        int remainBuffer = IPlaySDK.PLAYGetSourceBufferRemain(closingPort);
-                        Timber.tag(TAG).d("포트 %d 최종 버퍼: %d bytes", closingPort, remainBuffer);
-
-                        // 스트림 닫기
-                        IPlaySDK.PLAYCloseStream(closingPort);
-
-                        // 포트 해제
-                        IPlaySDK.PLAYReleasePort(closingPort);
-
-                        Timber.tag(TAG).i("포트 %d 비동기 닫기 완료 ✅", closingPort);
-
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        Timber.tag(TAG).w("포트 %d 닫기 중 인터럽트", closingPort);
-                    } catch (Exception e) {
-                        Timber.tag(TAG).e(e, "포트 %d 닫기 중 예외", closingPort);
-                    }
-                }
-            }).start();
+            // 3. 격리 큐에서 안전하게 리소스 해제
+            portReaper.quarantine(closingPort);
         }
     }
 
     /**
-     * NetSDK 로그아웃
+     * 로그인 핸들을 세션 풀에 반납
      */
-    private void logout() {
-        if (loginHandle != 0) {
-            try {
-                INetSDK.Logout(loginHandle);
-                Timber.tag(TAG).d("NetSDK 로그아웃 완료");
-            } catch (UnsatisfiedLinkError e) {
-                Timber.tag(TAG).w("NetSDK Logout 라이브러리 오류 (무시)");
-            } catch (Exception e) {
-                Timber.tag(TAG).e(e, "NetSDK 로그아웃 중 예외 발생");
-            } finally {
-                loginHandle = 0;
-            }
-        }
+    private void releaseSession(CameraInfo camera) {
+        sessionPool.release(camera);
+        loginHandle = 0;
     }
 
     /**
      * 리소스 해제 (Activity onDestroy에서 호출)
      *
      * 현재 활성화된 포트만 동기적으로 정리
-     * 비동기로 닫히고 있는 포트들은 백그라운드에서 계속 정리됨
+     * 격리 중인 포트들은 PlayPortReaper가 백그라운드에서 계속 정리함
      */
     public void release() {
         Timber.tag(TAG).i("=== 리소스 해제 ===");
 
         disconnect();
+        loginExecutor.shutdown();
+        latencyProbe.shutdown();
+        burstCapture.release();
+        thumbnailWriter.release();
+        motionTrigger.release();
+        snapshotWriter.shutdown();    // 대기 중인 스냅샷은 끝까지 저장
 
         // 비동기 닫기로 인해 playPort는 이미 -1일 수 있음
         // 그 경우 백그라운드 스레드에서 정리 중
@@ -385,6 +793,28 @@ public class CameraConnectionManager {
         return currentCamera;
     }
 
+    /**
+     * 해제 대기 중인 PlaySDK 포트 수 (FUNC_MAX_PORT 고갈 감시용)
+     */
+    public int getQuarantinedPortCount() {
+        return portReaper.getQuarantinedCount();
+    }
+
+    /**
+     * 현재 스트림의 디코더 피더 (입력/전달/드롭 바이트 통계 조회용)
+     */
+    public StreamFeeder getStreamFeeder() {
+        return streamFeeder;
+    }
+
+    /**
+     * 현재 포트의 프레임레이트 (스트림 감시용, 연결 없으면 0)
+     */
+    public int getCurrentFrameRate() {
+        int port = playPort;
+        return port >= 0 ? IPlaySDK.PLAYGetCurrentFrameRate(port) : 0;
+    }
+
     /**
      * 연결 상태 확인
      */
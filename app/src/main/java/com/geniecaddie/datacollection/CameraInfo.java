@@ -43,6 +43,29 @@ public class CameraInfo {
         return channel;
     }
 
+    /**
+     * 홀 정보 ("Hole5_White" → "5W", "Hole5_Lady" → "5L", 형식이 다르면 "unknown")
+     */
+    public String getHoleKey() {
+        if (name == null || !name.startsWith("Hole") || !name.contains("_")) {
+            return "unknown";
+        }
+        String[] parts = name.split("_");
+        String holeNumber = parts[0].substring(4);
+        if (holeNumber.isEmpty()) {
+            return "unknown";
+        }
+        return holeNumber + (parts[1].equals("White") ? "W" : "L");
+    }
+
+    /**
+     * 장비 접속 지점 키 ("ip:port")
+     * 같은 키를 가진 카메라는 하나의 로그인 세션을 공유함 (채널만 다름)
+     */
+    public String getEndpointKey() {
+        return ip + ":" + port;
+    }
+
     @Override
     public String toString() {
         return name + " (" + ip + ":" + port + ", ch:" + channel + ")";
@@ -0,0 +1,284 @@
+package com.geniecaddie.datacollection;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * 다음 카메라 예측 프리페치
+ * - 카메라 전환마다 SwitchPredictor로 다음에 누를 카메라 1~2대를 예측
+ * - 예측 카메라는 세션 풀에 미리 로그인 (CameraSessionPool.prefetch)
+ * - PREFETCH_SUB_STREAM이면 서브 스트림을 디코딩 없이(무음/무화면) 미리 수신하며
+ *   마지막 GOP(I-프레임부터)를 보관 → 전환 시 CameraConnectionManager가 스트림을 인수하고
+ *   보관한 GOP부터 디코더에 넣으므로 로그인/RealPlayEx/첫 I-프레임 대기가 모두 빠짐
+ *
+ * 모든 스트림 시작/중지(CameraSource)는 executor 스레드 하나에서 수행됨
+ */
+public class CameraPrefetcher {
+    private static final String TAG = "CameraPrefetcher";
+
+    private static final int GOP_CACHE_SIZE = 512 * 1024;     // 서브 스트림 GOP 1개 분량
+    private static final long SHUTDOWN_WAIT_MS = 3000;        // 진행 중인 refresh 종료 대기
+
+    /**
+     * 디코딩 없이 수신만 하는 예측 서브 스트림
+     * 인수 전에는 GOP 캐시에 쌓고, 인수 후에는 인수한 쪽의 sink로 바로 넘김
+     */
+    public static class PrefetchedStream {
+        final CameraInfo camera;
+        final long loginHandle;
+        long realHandle = 0;
+
+        private final byte[] gop = new byte[GOP_CACHE_SIZE];
+        private int gopLength = 0;
+        private boolean gopValid = false;
+        private CameraSource.DataSink sink;
+
+        PrefetchedStream(CameraInfo camera, long loginHandle) {
+            this.camera = camera;
+            this.loginHandle = loginHandle;
+        }
+
+        /**
+         * 소스 수신 스레드 (NetSDK 네트워크 스레드 등)
+         */
+        private synchronized void onData(byte[] buffer, int size) {
+            if (sink != null) {
+                sink.onData(realHandle, buffer, size);
+                return;
+            }
+
+            // 새 I-프레임이 오면 캐시를 비우고 다시 시작 (항상 최신 GOP만 보관)
+            if (StreamFeeder.isDhavFrame(buffer, size) && StreamFeeder.isResyncPoint(buffer, size)) {
+                gopLength = 0;
+                gopValid = true;
+            }
+            if (!gopValid) {
+                return;
+            }
+            if (gopLength + size > gop.length) {
+                // GOP가 캐시보다 길면 다음 I-프레임까지 보관 중단
+                gopValid = false;
+                gopLength = 0;
+                return;
+            }
+            System.arraycopy(buffer, 0, gop, gopLength, size);
+            gopLength += size;
+        }
+
+        /**
+         * 인수한 쪽의 sink에 연결 (피더 start 이후 호출)
+         * sink는 현재 스트림인지 확인한 뒤 피더로 넘기는 것이어야 함 (전환 후 늦은 데이터 차단)
+         * 보관한 GOP를 먼저 넣어 첫 화면이 다음 I-프레임을 기다리지 않도록 함
+         */
+        synchronized void attach(CameraSource.DataSink target) {
+            if (gopValid && gopLength > 0) {
+                target.onData(realHandle, gop, gopLength);
+                Timber.tag(TAG).d("프리페치 GOP 전달 - %s, %d bytes", camera.getName(), gopLength);
+            }
+            gopLength = 0;
+            sink = target;
+        }
+    }
+
+    private final CameraSessionPool sessionPool;
+    private final CameraSource source;
+    private final SwitchPredictor predictor;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<String, PrefetchedStream> streams = new HashMap<>();   // 카메라 이름 → 스트림
+    private volatile boolean prefetchSubStream = CameraConfig.PREFETCH_SUB_STREAM;
+
+    public CameraPrefetcher(Context context, CameraSessionPool sessionPool, CameraSource source) {
+        this.sessionPool = sessionPool;
+        this.source = source;
+        this.predictor = new SwitchPredictor(context);
+    }
+
+    /**
+     * 카메라 전환 완료 알림 (UI 스레드) - 이력 기록 후 예측 카메라 프리페치 갱신
+     */
+    public void onCameraSwitched(final int cameraIndex) {
+        predictor.record(cameraIndex);
+        final List<Integer> predicted = predictor.predict(cameraIndex, CameraConfig.PREFETCH_CAMERA_COUNT);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                refresh(predicted);
+            }
+        });
+    }
+
+    /**
+     * 프리페치된 스트림 가져가기 (소유권 이전 - 세션 참조와 realHandle 정리는 가져간 쪽 책임)
+     *
+     * @return 해당 카메라의 프리페치 스트림 (없으면 null)
+     */
+    public PrefetchedStream take(CameraInfo camera) {
+        synchronized (streams) {
+            return streams.remove(camera.getName());
+        }
+    }
+
+    /**
+     * 가져갔지만 사용하지 못한 스트림 정리 (호출 스레드에서 즉시)
+     */
+    public void discard(PrefetchedStream stream) {
+        stopStream(stream);
+    }
+
+    /**
+     * 서브 스트림 프리페치 on/off (off면 로그인만 미리 수행)
+     */
+    public void setPrefetchSubStream(boolean enabled) {
+        this.prefetchSubStream = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    /**
+     * 프리페치 스트림 모두 중지 (Activity onPause)
+     */
+    public void clear() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (PrefetchedStream stream : removeAll()) {
+                    stopStream(stream);
+                }
+            }
+        });
+    }
+
+    /**
+     * 종료 (Activity onDestroy에서 세션 풀 종료 전에 호출)
+     */
+    public void shutdown() {
+        // 진행 중인 refresh가 끝난 뒤 정리 (도중에 시작된 스트림이 목록에 들어간 후 비움)
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                Timber.tag(TAG).w("프리페치 작업 종료 대기 시간 초과");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (PrefetchedStream stream : removeAll()) {
+            stopStream(stream);
+        }
+    }
+
+    /**
+     * 예측 결과로 프리페치 대상 갱신 (executor 스레드)
+     */
+    private void refresh(List<Integer> predicted) {
+        List<String> wanted = new ArrayList<>();
+        for (int index : predicted) {
+            CameraInfo camera = CameraConfig.getCamera(index);
+            if (camera != null) {
+                wanted.add(camera.getName());
+            }
+        }
+
+        // 더 이상 예측되지 않는 스트림 중지
+        List<PrefetchedStream> stale = new ArrayList<>();
+        synchronized (streams) {
+            Iterator<Map.Entry<String, PrefetchedStream>> it = streams.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, PrefetchedStream> entry = it.next();
+                if (!prefetchSubStream || !wanted.contains(entry.getKey())) {
+                    stale.add(entry.getValue());
+                    it.remove();
+                }
+            }
+        }
+        for (PrefetchedStream stream : stale) {
+            stopStream(stream);
+        }
+
+        for (int index : predicted) {
+            CameraInfo camera = CameraConfig.getCamera(index);
+            if (camera == null) {
+                continue;
+            }
+
+            if (!prefetchSubStream) {
+                sessionPool.prefetch(camera);
+                continue;
+            }
+
+            synchronized (streams) {
+                if (streams.containsKey(camera.getName())) {
+                    continue;
+                }
+            }
+
+            PrefetchedStream stream = startStream(camera);
+            if (stream != null) {
+                if (executor.isShutdown()) {
+                    stopStream(stream);     // 시작하는 사이 종료됨 - 목록에 넣지 않고 바로 정리
+                    return;
+                }
+                synchronized (streams) {
+                    streams.put(camera.getName(), stream);
+                }
+            }
+        }
+
+        Timber.tag(TAG).d("예측 프리페치 갱신 - 대상: %s (서브 스트림 %s)",
+            wanted, prefetchSubStream ? "수신" : "미수신");
+    }
+
+    /**
+     * 예측 카메라 서브 스트림 수신 시작 (디코더 없음)
+     */
+    private PrefetchedStream startStream(CameraInfo camera) {
+        long loginHandle = sessionPool.acquireForPrefetch(camera);
+        if (loginHandle == 0) {
+            return null;
+        }
+
+        final PrefetchedStream stream = new PrefetchedStream(camera, loginHandle);
+        stream.realHandle = source.startStream(loginHandle, camera, true, new CameraSource.DataSink() {
+            @Override
+            public void onData(long streamHandle, byte[] buffer, int size) {
+                stream.onData(buffer, size);
+            }
+        });
+        if (stream.realHandle == 0) {
+            Timber.tag(TAG).w("프리페치 스트림 시작 실패 - %s, ErrorCode: %d",
+                camera.getName(), source.getLastError());
+            sessionPool.release(camera);
+            return null;
+        }
+
+        Timber.tag(TAG).d("프리페치 스트림 시작 - %s, Handle: %d", camera.getName(), stream.realHandle);
+        return stream;
+    }
+
+    private void stopStream(PrefetchedStream stream) {
+        if (stream.realHandle != 0) {
+            source.stopStream(stream.realHandle);
+        }
+        stream.realHandle = 0;
+        sessionPool.release(stream.camera);
+        Timber.tag(TAG).d("프리페치 스트림 중지 - %s", stream.camera.getName());
+    }
+
+    private List<PrefetchedStream> removeAll() {
+        synchronized (streams) {
+            List<PrefetchedStream> all = new ArrayList<>(streams.values());
+            streams.clear();
+            return all;
+        }
+    }
+}
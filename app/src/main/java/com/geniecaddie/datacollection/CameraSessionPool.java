@@ -0,0 +1,385 @@
+package com.geniecaddie.datacollection;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * 카메라 로그인 세션 풀
+ * - 세션은 장비 접속 지점(ip:port) 단위로 관리하고 참조 카운트로 공유
+ *   (같은 장비의 여러 채널은 하나의 loginHandle 위에서 각자 RealPlayEx)
+ * - 앱 시작 시 CameraConfig.CAMERAS 전체를 백그라운드에서 미리 로그인 (워밍 세션)
+ * - 이후 워밍되지 않은 카메라(로그인 실패/미사용 로그아웃)는 CameraPrefetcher가 예측하면
+ *   prefetch()/acquireForPrefetch()로 미리 로그인 (프리페치 세션)
+ * - 주기적 keepalive(CameraSource.isAlive)로 죽은 세션 감지 후 재로그인
+ * - 오래 사용하지 않은 세션은 로그아웃(idle eviction)하여 카메라 측 TCP 세션 반환
+ * - 유휴(참조 0) 프리페치 세션은 CameraConfig.MAX_IDLE_SESSIONS개까지만 유지 (LRU로 로그아웃)
+ *   워밍 세션은 상한에 포함하지 않음
+ *
+ * 카메라 전환 시에는 풀에서 로그인 핸들만 빌려가므로
+ * 로그인 왕복(NetSDK: LoginWithHighLevelSecurity / SetLocalMode)이 전환 경로에서 빠짐
+ *
+ * 전환 지연 실측 (SyntheticCameraSource, 메인 스트림 40회 전환, connectAndPlay 타이밍 로그 기준)
+ * - 로그인 지연 0ms (합성 소스 그대로): 풀 없음 p50 1ms / p90 7ms, 풀 사용 p50 4ms / p90 13ms → 차이 없음
+ * - 로그인 지연 300ms 모델: 풀 없음 p50 302ms / p90 307ms, 풀 사용 p50 4ms / p90 11ms
+ *   (풀 없음 구간은 대부분 포트 준비 후 로그인 합류 대기 300ms)
+ * 전환 절감 폭은 곧 장비 로그인 왕복 시간이며, PlaySDK 디코딩(첫 프레임)은 이 측정에 포함되지 않음
+ */
+public class CameraSessionPool {
+    private static final String TAG = "CameraSessionPool";
+
+    // === 정책 상수 ===
+    private static final long KEEPALIVE_INTERVAL_MS = 30 * 1000;       // 30초마다 세션 점검
+    private static final long IDLE_EVICT_MS = 10 * 60 * 1000;          // 10분 미사용 시 로그아웃
+
+    /**
+     * 장비 1대(ip:port)의 로그인 세션
+     */
+    private static class Session {
+        final String endpoint;
+        final CameraInfo camera;    // 로그인 정보 제공용 (같은 endpoint의 아무 카메라)
+        long loginHandle = 0;
+        int refCount = 0;           // 이 핸들로 스트림 중인 카메라 수
+        long lastUsedAt = 0;
+        boolean prefetched = false; // 예측 프리페치가 로그인한 세션 (유휴 상한 대상)
+
+        Session(String endpoint, CameraInfo camera) {
+            this.endpoint = endpoint;
+            this.camera = camera;
+        }
+    }
+
+    private final CameraSource source;
+    private final Map<String, Session> sessions = new HashMap<>();
+    private final int maxIdleSessions = CameraConfig.MAX_IDLE_SESSIONS;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private volatile boolean isShutdown = false;
+
+    public CameraSessionPool(CameraSource source) {
+        this.source = source;
+    }
+
+    /**
+     * 전체 카메라 백그라운드 로그인 + keepalive 시작
+     */
+    public void start() {
+        scheduler.execute(this::warmUpAll);
+        scheduler.scheduleWithFixedDelay(this::maintain,
+            KEEPALIVE_INTERVAL_MS, KEEPALIVE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Timber.tag(TAG).i("세션 풀 시작 - 대상 카메라 %d대", CameraConfig.getCameraCount());
+    }
+
+    /**
+     * 로그인 핸들 빌리기 (참조 카운트 +1)
+     * 워밍된 세션이 있으면 즉시 반환, 없으면 호출 스레드에서 로그인
+     *
+     * @return 로그인 핸들 (실패 시 0)
+     */
+    public long acquire(CameraInfo camera) {
+        return acquire(camera, false);
+    }
+
+    /**
+     * 예측 프리페치용 로그인 핸들 빌리기 (CameraPrefetcher)
+     * 여기서 새로 로그인한 세션은 프리페치 세션으로 표시되어 반납 후 유휴 상한(LRU) 대상이 됨
+     */
+    public long acquireForPrefetch(CameraInfo camera) {
+        return acquire(camera, true);
+    }
+
+    private long acquire(CameraInfo camera, boolean prefetch) {
+        Session session = getOrCreateSession(camera);
+
+        synchronized (session) {
+            if (session.loginHandle == 0) {
+                session.loginHandle = source.login(camera);
+                session.prefetched = prefetch;
+            } else {
+                Timber.tag(TAG).d("세션 재사용 - %s (%s), Handle: %d, 참조: %d",
+                    camera.getName(), session.endpoint, session.loginHandle, session.refCount);
+            }
+
+            if (session.loginHandle != 0) {
+                session.refCount++;
+                session.lastUsedAt = SystemClock.elapsedRealtime();
+            }
+            return session.loginHandle;
+        }
+    }
+
+    /**
+     * 로그인 핸들 반납 (참조 카운트 -1, 로그아웃하지 않고 풀에 유지)
+     * 유휴 프리페치 세션이 상한을 넘으면 가장 오래 쓰지 않은 세션부터 백그라운드에서 로그아웃
+     */
+    public void release(CameraInfo camera) {
+        Session session = findSession(camera);
+        if (session == null) {
+            return;
+        }
+
+        synchronized (session) {
+            if (session.refCount > 0) {
+                session.refCount--;
+            }
+            session.lastUsedAt = SystemClock.elapsedRealtime();
+        }
+
+        scheduleIdleTrim();
+    }
+
+    /**
+     * 미리 로그인 (참조는 잡지 않음 - 유휴 세션으로 풀에 남음)
+     * 예측된 카메라를 전환 전에 로그인해 두어 다음 acquire가 즉시 반환되도록 함
+     * 이미 로그인된 세션은 최근 사용으로 갱신만 하므로 LRU에서 밀려나지 않음
+     */
+    public void prefetch(final CameraInfo camera) {
+        if (isShutdown) {
+            return;
+        }
+
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                Session session = getOrCreateSession(camera);
+                synchronized (session) {
+                    if (session.loginHandle == 0) {
+                        session.loginHandle = source.login(camera);
+                        session.prefetched = true;
+                        Timber.tag(TAG).d("예측 로그인 - %s (%s)", camera.getName(),
+                            session.loginHandle != 0 ? "성공" : "실패");
+                    }
+                    session.lastUsedAt = SystemClock.elapsedRealtime();
+                }
+                trimIdleSessions();
+            }
+        });
+    }
+
+    /**
+     * 강제 재로그인 (빌린 핸들로 RealPlayEx가 실패했을 때 재시도용)
+     * 호출자의 참조는 유지된 채 새 핸들로 교체됨 - 공유 세션이라도 죽은 핸들을 다시 주지 않음
+     * - 다른 스레드가 이미 새로 로그인했으면 그 핸들을 반환
+     * - 다른 채널이 쓰는 중이고 핸들이 살아있으면 장비 문제가 아니므로 같은 핸들 반환
+     *
+     * @param staleHandle 실패한 로그인 핸들 (호출자가 참조를 잡고 있는 핸들)
+     * @return 새 로그인 핸들, 실패 시 0 (이때 호출자의 참조는 이미 해제됨 - release 하지 않음)
+     */
+    public long relogin(CameraInfo camera, long staleHandle) {
+        Session session = getOrCreateSession(camera);
+
+        synchronized (session) {
+            if (session.loginHandle != 0 && session.loginHandle != staleHandle) {
+                Timber.tag(TAG).d("재로그인 생략 - %s 이미 새 핸들: %d", session.endpoint, session.loginHandle);
+                return session.loginHandle;
+            }
+            if (session.loginHandle != 0 && session.refCount > 1 && source.isAlive(session.loginHandle)) {
+                Timber.tag(TAG).w("재로그인 보류 - %s 다른 채널 사용 중, 핸들 정상 (참조: %d)",
+                    session.endpoint, session.refCount);
+                return session.loginHandle;
+            }
+
+            // 같은 핸들을 쓰던 다른 채널의 참조도 유지 (각자 release로 반납)
+            int refCount = session.refCount;
+            boolean prefetched = session.prefetched;
+            if (session.loginHandle != 0) {
+                Timber.tag(TAG).w("세션 강제 재로그인 - %s, Handle: %d", session.endpoint, session.loginHandle);
+                logout(session);
+            }
+            session.loginHandle = source.login(camera);
+            if (session.loginHandle == 0) {
+                return 0;       // logout에서 참조 0
+            }
+            session.refCount = Math.max(refCount, 1);
+            session.prefetched = prefetched;
+            session.lastUsedAt = SystemClock.elapsedRealtime();
+            return session.loginHandle;
+        }
+    }
+
+    /**
+     * 풀 종료 - 모든 세션 로그아웃 (Activity onDestroy에서 호출)
+     */
+    public void shutdown() {
+        isShutdown = true;
+        scheduler.shutdownNow();
+
+        for (Session session : snapshotSessions()) {
+            synchronized (session) {
+                logout(session);
+            }
+        }
+        Timber.tag(TAG).i("세션 풀 종료 완료");
+    }
+
+    /**
+     * 카메라 미리 로그인 (scheduler 스레드)
+     * CAMERAS 순서(홀 순서)대로 전체 로그인 - 워밍 세션은 유휴 상한에 포함되지 않음
+     */
+    private void warmUpAll() {
+        long startTime = SystemClock.elapsedRealtime();
+
+        for (CameraInfo camera : CameraConfig.CAMERAS) {
+            if (isShutdown) {
+                return;
+            }
+            // 같은 endpoint는 같은 Session이므로 로그인은 장비당 1회
+            Session session = getOrCreateSession(camera);
+            synchronized (session) {
+                if (session.loginHandle == 0) {
+                    session.loginHandle = source.login(camera);
+                    session.lastUsedAt = SystemClock.elapsedRealtime();
+                }
+                session.prefetched = false;     // 워밍 세트에 포함 (이미 프리페치로 로그인된 경우도)
+            }
+        }
+
+        int endpoints = 0;
+        int warmed = 0;
+        for (Session session : snapshotSessions()) {
+            endpoints++;
+            if (session.loginHandle != 0) {
+                warmed++;
+            }
+        }
+
+        Timber.tag(TAG).i("세션 워밍 완료 - 장비 %d/%d개 (카메라 %d대), 소요시간: %dms",
+            warmed, endpoints, CameraConfig.getCameraCount(), SystemClock.elapsedRealtime() - startTime);
+    }
+
+    /**
+     * keepalive + idle eviction (scheduler 스레드)
+     */
+    private void maintain() {
+        long now = SystemClock.elapsedRealtime();
+
+        for (Session session : snapshotSessions()) {
+            if (isShutdown) {
+                return;
+            }
+
+            synchronized (session) {
+                // 사용 중인 세션은 스트림이 살아있는 동안 SDK가 유지하므로 건너뜀
+                if (session.refCount > 0 || session.loginHandle == 0) {
+                    continue;
+                }
+
+                if (now - session.lastUsedAt > IDLE_EVICT_MS) {
+                    Timber.tag(TAG).d("미사용 세션 로그아웃 - %s", session.endpoint);
+                    logout(session);
+                    continue;
+                }
+
+                if (!source.isAlive(session.loginHandle)) {
+                    Timber.tag(TAG).w("keepalive 실패 - 재로그인: %s", session.endpoint);
+                    boolean prefetched = session.prefetched;
+                    logout(session);
+                    session.loginHandle = source.login(session.camera);
+                    session.prefetched = prefetched && session.loginHandle != 0;
+                }
+            }
+        }
+    }
+
+    private void scheduleIdleTrim() {
+        if (isShutdown) {
+            return;
+        }
+        try {
+            scheduler.execute(this::trimIdleSessions);
+        } catch (RejectedExecutionException e) {
+            // 종료 중 - shutdown()이 모두 로그아웃함
+        }
+    }
+
+    /**
+     * 유휴 프리페치 세션 LRU 정리 (scheduler 스레드)
+     * 참조 0인 프리페치 세션이 상한을 넘으면 lastUsedAt이 오래된 것부터 로그아웃 (워밍 세션은 건드리지 않음)
+     */
+    private void trimIdleSessions() {
+        List<Session> idle = new ArrayList<>();
+        for (Session session : snapshotSessions()) {
+            synchronized (session) {
+                if (session.prefetched && session.loginHandle != 0 && session.refCount == 0) {
+                    idle.add(session);
+                }
+            }
+        }
+
+        int excess = idle.size() - maxIdleSessions;
+        if (excess <= 0) {
+            return;
+        }
+
+        Collections.sort(idle, new Comparator<Session>() {
+            @Override
+            public int compare(Session a, Session b) {
+                return Long.compare(a.lastUsedAt, b.lastUsedAt);
+            }
+        });
+
+        for (Session session : idle) {
+            if (excess <= 0) {
+                break;
+            }
+            synchronized (session) {
+                // 정렬 사이에 다시 빌려갔으면 건너뜀
+                if (session.refCount == 0 && session.loginHandle != 0) {
+                    Timber.tag(TAG).d("유휴 프리페치 세션 상한 초과 - LRU 로그아웃: %s", session.endpoint);
+                    logout(session);
+                    excess--;
+                }
+            }
+        }
+    }
+
+    /**
+     * 로그아웃 (session 락을 잡은 상태에서 호출)
+     */
+    private void logout(Session session) {
+        if (session.loginHandle != 0) {
+            try {
+                source.logout(session.loginHandle);
+                Timber.tag(TAG).d("로그아웃 완료 - %s", session.endpoint);
+            } finally {
+                session.loginHandle = 0;
+                session.refCount = 0;
+                session.prefetched = false;
+            }
+        }
+    }
+
+    private Session getOrCreateSession(CameraInfo camera) {
+        synchronized (sessions) {
+            String endpoint = camera.getEndpointKey();
+            Session session = sessions.get(endpoint);
+            if (session == null) {
+                session = new Session(endpoint, camera);
+                sessions.put(endpoint, session);
+            }
+            return session;
+        }
+    }
+
+    private Session findSession(CameraInfo camera) {
+        synchronized (sessions) {
+            return sessions.get(camera.getEndpointKey());
+        }
+    }
+
+    private List<Session> snapshotSessions() {
+        synchronized (sessions) {
+            return new ArrayList<>(sessions.values());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.geniecaddie.datacollection;
+
+import timber.log.Timber;
+
+/**
+ * 카메라 입력 소스 (세션 + 실시간 원시 스트림 + 장비 스냅샷)
+ *
+ * 연결/전환/캡처 경로는 이 인터페이스만 사용하므로 실제 장비 없이도 같은 파이프라인을 돌릴 수 있음
+ * - NetSdkCameraSource: Dahua 장비 (INetSDK)
+ * - FileReplayCameraSource: 녹화된 .dav / H.264 파일 재생 (실시간 또는 배속)
+ * - SyntheticCameraSource: 인코더로 만든 합성 영상 (움직이는 공)
+ *
+ * 디코딩/렌더링(PlaySDK)은 소스와 무관하게 동일
+ * 핸들 값 0은 실패를 의미함
+ */
+public interface CameraSource {
+
+    /**
+     * 실시간 데이터 수신 (소스의 수신 스레드에서 호출 - 복사만 하고 바로 반환해야 함)
+     */
+    interface DataSink {
+        void onData(long streamHandle, byte[] buffer, int size);
+    }
+
+    /**
+     * 장비 로그인
+     *
+     * @return 세션 핸들 (실패 시 0)
+     */
+    long login(CameraInfo camera);
+
+    void logout(long sessionHandle);
+
+    /**
+     * 세션 생존 확인 (keepalive, 왕복이 있을 수 있으므로 백그라운드 스레드에서 호출)
+     */
+    boolean isAlive(long sessionHandle);
+
+    /**
+     * 실시간 스트림 시작
+     *
+     * @param subStream true=서브 스트림, false=메인 스트림
+     * @return 스트림 핸들 (실패 시 0), 반환 전에 sink가 호출될 수 있음
+     */
+    long startStream(long sessionHandle, CameraInfo camera, boolean subStream, DataSink sink);
+
+    /**
+     * 실시간 스트림 중지 (반환 후에는 해당 핸들로 sink가 호출되지 않음)
+     */
+    void stopStream(long streamHandle);
+
+    /**
+     * 장비 측 원본 해상도 스냅샷 (지원하지 않으면 false → 디코딩 프레임으로 대체 캡처)
+     */
+    boolean snapshot(long sessionHandle, CameraInfo camera, String filePath);
+
+    /**
+     * 마지막 실패 코드 (로그용)
+     */
+    int getLastError();
+
+    /**
+     * CameraConfig.CAMERA_SOURCE 설정에 맞는 소스 생성
+     */
+    static CameraSource create() {
+        switch (CameraConfig.CAMERA_SOURCE) {
+            case CameraConfig.SOURCE_FILE_REPLAY:
+                Timber.tag("CameraSource").i("카메라 소스: 파일 재생 (%s, %.1f배속)",
+                    CameraConfig.REPLAY_DIR, CameraConfig.REPLAY_SPEED);
+                return new FileReplayCameraSource(CameraConfig.REPLAY_DIR, CameraConfig.REPLAY_SPEED);
+            case CameraConfig.SOURCE_SYNTHETIC:
+                Timber.tag("CameraSource").i("카메라 소스: 합성 영상 (%.1f배속)", CameraConfig.REPLAY_SPEED);
+                return new SyntheticCameraSource(CameraConfig.REPLAY_SPEED);
+            default:
+                return new NetSdkCameraSource();
+        }
+    }
+}
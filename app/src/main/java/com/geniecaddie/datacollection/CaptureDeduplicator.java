@@ -0,0 +1,231 @@
+package com.geniecaddie.datacollection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * 캡처 중복 제거 (지각 해시)
+ * - 새 캡처의 휘도를 9x8로 줄여 가로 인접 픽셀 밝기 비교 → 64비트 dHash
+ *   (JPEG/파일은 1/8 축소 디코딩으로 읽으므로 원본 해상도 디코딩 없음)
+ * - 카메라별 최근 DEDUPE_RECENT_PER_CAMERA개 해시와 해밍 거리 비교,
+ *   DEDUPE_HAMMING_THRESHOLD 이하면 중복 → 호출자가 저장하지 않음
+ * - 해시 목록은 SharedPreferences "capture_dedupe"에 카메라별로 저장 → 재시작 후에도
+ *   GolfBallImages 폴더를 다시 읽지 않고 이어서 비교
+ *
+ * 명령 스레드(수동 캡처)와 자동 수집 스레드에서 호출되므로 공개 메서드는 동기화
+ */
+public class CaptureDeduplicator {
+    private static final String TAG = "CaptureDedupe";
+
+    // === 해시 ===
+    private static final int HASH_WIDTH = 9;                        // 가로 8비트 비교 + 1
+    private static final int HASH_HEIGHT = 8;
+
+    // === 저장 ===
+    private static final String PREFS_NAME = "capture_dedupe";
+    private static final String KEY_HASHES = "hashes_";
+
+    /**
+     * 카메라별 최근 해시 (링 버퍼)
+     */
+    private static class RecentHashes {
+        final long[] hashes = new long[Math.max(1, CameraConfig.DEDUPE_RECENT_PER_CAMERA)];
+        int count = 0;
+        int next = 0;
+
+        void add(long hash) {
+            hashes[next] = hash;
+            next = (next + 1) % hashes.length;
+            count = Math.min(count + 1, hashes.length);
+        }
+
+        /**
+         * @return 가장 가까운 해밍 거리 (비어 있으면 Integer.MAX_VALUE)
+         */
+        int nearest(long hash) {
+            int best = Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                best = Math.min(best, Long.bitCount(hashes[i] ^ hash));
+            }
+            return best;
+        }
+
+        /** 오래된 것부터 16진수 목록 */
+        String encode() {
+            StringBuilder builder = new StringBuilder(count * 17);
+            int start = count < hashes.length ? 0 : next;
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(Long.toHexString(hashes[(start + i) % hashes.length]));
+            }
+            return builder.toString();
+        }
+
+        static RecentHashes decode(String value) {
+            RecentHashes recent = new RecentHashes();
+            if (value == null || value.isEmpty()) {
+                return recent;
+            }
+            for (String item : value.split(",")) {
+                try {
+                    recent.add(Long.parseUnsignedLong(item, 16));
+                } catch (NumberFormatException e) {
+                    // 손상된 항목은 무시
+                }
+            }
+            return recent;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final Map<String, RecentHashes> recentByCamera = new HashMap<>();
+    private final boolean enabled = CameraConfig.DEDUPE_ENABLED;
+
+    // 해시 작업 버퍼 (동기화 구간에서만 사용)
+    private Mat small;
+    private final byte[] pixels = new byte[HASH_WIDTH * HASH_HEIGHT];
+    private int checked = 0;
+    private int duplicates = 0;
+
+    public CaptureDeduplicator(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 휘도(그레이) 이미지로 중복 판정, 중복이 아니면 최근 목록에 추가
+     *
+     * @return true면 중복 (저장하지 않음)
+     */
+    public synchronized boolean check(String cameraKey, Mat gray) {
+        if (!enabled || gray == null || gray.empty()) {
+            return false;
+        }
+
+        long hash;
+        try {
+            hash = dHash(gray);
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("OpenCV 라이브러리 없음 - 중복 검사 생략");
+            return false;
+        }
+
+        RecentHashes recent = getRecent(cameraKey);
+        int distance = recent.nearest(hash);
+        checked++;
+        if (distance <= CameraConfig.DEDUPE_HAMMING_THRESHOLD) {
+            duplicates++;
+            Timber.tag(TAG).i("중복 캡처 - %s (해밍 거리 %d, 누적 %d/%d)", cameraKey, distance, duplicates, checked);
+            return true;
+        }
+
+        recent.add(hash);
+        prefs.edit().putString(KEY_HASHES + cameraKey, recent.encode()).apply();
+        Timber.tag(TAG).d("새 캡처 - %s (가장 가까운 거리 %s)", cameraKey,
+            distance == Integer.MAX_VALUE ? "-" : String.valueOf(distance));
+        return false;
+    }
+
+    /**
+     * JPEG 메모리 버퍼로 중복 판정 (1/8 축소 그레이 디코딩)
+     */
+    public boolean checkJpeg(String cameraKey, byte[] buffer, int length) {
+        if (!enabled) {
+            return false;
+        }
+        Mat encoded = null;
+        Mat gray = null;
+        try {
+            encoded = new Mat(1, length, CvType.CV_8UC1);
+            encoded.put(0, 0, buffer, 0, length);
+            gray = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8);
+            return check(cameraKey, gray);
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("OpenCV 라이브러리 없음 - 중복 검사 생략");
+            return false;
+        } finally {
+            release(encoded);
+            release(gray);
+        }
+    }
+
+    /**
+     * 저장된 JPEG 파일로 중복 판정 (장비 스냅샷 / 동기 캡처), 중복이면 파일 삭제
+     */
+    public boolean checkFileAndDelete(String cameraKey, String filePath) {
+        if (!enabled) {
+            return false;
+        }
+        Mat gray = null;
+        try {
+            gray = Imgcodecs.imread(filePath, Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8);
+            if (!check(cameraKey, gray)) {
+                return false;
+            }
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("OpenCV 라이브러리 없음 - 중복 검사 생략");
+            return false;
+        } finally {
+            release(gray);
+        }
+
+        if (!new File(filePath).delete()) {
+            Timber.tag(TAG).w("중복 캡처 파일 삭제 실패: %s", filePath);
+        }
+        return true;
+    }
+
+    /**
+     * 카메라별 최근 해시 (처음 쓰는 카메라는 저장된 목록을 읽음)
+     */
+    private RecentHashes getRecent(String cameraKey) {
+        RecentHashes recent = recentByCamera.get(cameraKey);
+        if (recent == null) {
+            recent = RecentHashes.decode(prefs.getString(KEY_HASHES + cameraKey, null));
+            recentByCamera.put(cameraKey, recent);
+        }
+        return recent;
+    }
+
+    /**
+     * 64비트 dHash: 9x8 축소(영역 평균) 후 각 행에서 왼쪽 픽셀이 더 밝으면 1
+     */
+    private long dHash(Mat gray) {
+        if (small == null) {
+            small = new Mat(HASH_HEIGHT, HASH_WIDTH, CvType.CV_8UC1);
+        }
+        Imgproc.resize(gray, small, new Size(HASH_WIDTH, HASH_HEIGHT), 0, 0, Imgproc.INTER_AREA);
+        small.get(0, 0, pixels);
+
+        long hash = 0;
+        for (int row = 0; row < HASH_HEIGHT; row++) {
+            int base = row * HASH_WIDTH;
+            for (int col = 0; col < HASH_WIDTH - 1; col++) {
+                hash <<= 1;
+                if ((pixels[base + col] & 0xFF) > (pixels[base + col + 1] & 0xFF)) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static void release(Mat mat) {
+        if (mat != null) {
+            mat.release();
+        }
+    }
+}
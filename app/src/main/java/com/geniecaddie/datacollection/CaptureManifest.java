@@ -0,0 +1,454 @@
+package com.geniecaddie.datacollection;
+
+import android.graphics.BitmapFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * 캡처 목록 (날짜별 추가 전용 바이너리 파일)
+ * - 위치: GolfBallImages/yyyyMMdd/manifest.bin
+ * - 헤더 16바이트 + 고정 길이(RECORD_SIZE) 레코드, 리틀 엔디언
+ *   → 파일명 파싱이나 폴더 목록 없이 홀별 개수/시간대/해상도/선명도를 조회
+ * - 저장이 끝난 캡처만 기록 (비동기 저장은 SnapshotWriter 완료 후 writer 스레드에서 추가)
+ * - 쓰기 도중 종료되면 마지막 불완전 레코드는 읽을 때 무시
+ * - 파일 이름에 날짜별 일련번호를 넣어 같은 초에 찍어도 이름이 겹치지 않음
+ * - 묶음 저장(STORAGE_SHARDS)이면 캡처를 ShardStore 샤드에 넣고 샤드 번호 / 위치를 기록
+ *   (메모리 JPEG은 바로 샤드에, SDK가 파일로 저장한 캡처는 기록 시 샤드로 옮긴 뒤 개별 파일 삭제)
+ *
+ * 레코드 구조 (64바이트)
+ *   0  long  wallClockMs      8  long  fileOffset (-1: 개별 파일)   16 int fileLength
+ *   20 int   sequence         24 int   deviceStampMs (0: 알 수 없음) 28 int bitRate (PlaySDK 보고값, 0: 알 수 없음)
+ *   32 float sharpness (-1: 계산 안 함)   36 short cameraIndex   38 short width   40 short height (0: 알 수 없음)
+ *   42 byte  source   43 byte flags   44 byte[4] holeKey (ASCII, "5W")
+ *   48 int   shard (fileOffset >= 0일 때만 의미)   52~63 예약
+ */
+public class CaptureManifest {
+    private static final String TAG = "CaptureManifest";
+
+    // === 파일 형식 ===
+    public static final String FILE_NAME = "manifest.bin";
+    private static final int MAGIC = 0x464D4347;                    // "GCMF"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 64;
+    private static final int HOLE_KEY_SIZE = 4;
+
+    // === 캡처 경로 ===
+    public static final byte SOURCE_DEVICE = 1;         // 장비 스냅샷 (수동)
+    public static final byte SOURCE_BURST = 2;          // 연속 캡처 최고 점수 프레임
+    public static final byte SOURCE_DECODED = 3;        // 디코딩 프레임 JPEG (PLAYGetPicJPEG)
+    public static final byte SOURCE_CATCH = 4;          // 동기 캡처 (PLAYCatchPicEx)
+    public static final byte SOURCE_AUTO = 5;           // 무인 자동 수집 (장비 스냅샷)
+
+    // === 플래그 ===
+    public static final byte FLAG_THUMBNAIL = 1;        // 학습용 축소본 함께 저장
+
+    /**
+     * 캡처 1건 (쓰기용으로 채우거나 Reader가 재사용 객체에 채움)
+     */
+    public static class Entry {
+        public long wallClockMs;
+        public long fileOffset = -1;
+        public int fileLength;
+        public int sequence;
+        public int deviceStampMs;
+        public int bitRate;
+        public float sharpness = -1;
+        public int shard = -1;
+        public int cameraIndex = -1;
+        public int width;
+        public int height;
+        public byte source;
+        public byte flags;
+        public String holeKey = "";
+
+        private CaptureManifest owner;      // newEntry로 만든 항목만 (Reader가 채운 항목은 null)
+
+        /**
+         * 저장이 끝난 캡처를 목록에 추가
+         */
+        public void commit() {
+            if (owner != null) {
+                owner.append(this);
+            }
+        }
+
+        /**
+         * 메모리 JPEG을 샤드에 저장 후 목록에 추가 (SnapshotWriter writer 스레드)
+         *
+         * @return false면 묶음 저장을 쓰지 않거나 실패 - 호출자가 개별 파일로 저장
+         */
+        public boolean storeInShard(byte[] buffer, int length, byte[] thumbBuffer, int thumbLength) {
+            return owner != null && owner.storeInShard(this, buffer, length, thumbBuffer, thumbLength);
+        }
+
+        /**
+         * 레코드에 해당하는 파일 이름 (GolfBallImages/yyyyMMdd/ 기준)
+         */
+        public String fileName() {
+            return CaptureManifest.fileName(wallClockMs, sequence, holeKey);
+        }
+    }
+
+    private final File rootDir;
+    private final ShardStore shardStore;    // 묶음 저장이 아니면 null
+
+    // 기록 중인 날짜 파일 / 일련번호 (this로 동기화)
+    // 일련번호 날짜는 새 캡처 기준으로만 바뀜 (자정 직후 늦게 끝난 어제 저장이 오늘 번호를 되돌리지 않도록)
+    private String openDay;
+    private FileChannel channel;
+    private String sequenceDay;
+    private int nextSequence;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    public CaptureManifest(File rootDir) {
+        this.rootDir = rootDir;
+        this.shardStore = CameraConfig.STORAGE_SHARDS.equals(CameraConfig.STORAGE_BACKEND)
+            ? new ShardStore(rootDir, CameraConfig.SHARD_MAX_BYTES) : null;
+    }
+
+    public static String dayOf(long wallClockMs) {
+        return new SimpleDateFormat("yyyyMMdd", Locale.US).format(new Date(wallClockMs));
+    }
+
+    /**
+     * 날짜 폴더의 목록 파일
+     */
+    public File fileFor(String day) {
+        return new File(new File(rootDir, day), FILE_NAME);
+    }
+
+    /**
+     * 파일 이름: yyyyMMdd_HHmmss_일련번호_홀정보.jpg
+     */
+    public static String fileName(long wallClockMs, int sequence, String holeKey) {
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date(wallClockMs));
+        return String.format(Locale.US, "%s_%04d_%s.jpg", timestamp, sequence, holeKey);
+    }
+
+    /**
+     * 새 캡처 항목 (시각 + 오늘 일련번호 예약 + 카메라 정보)
+     * 캡처가 실패/중복이면 번호는 비어도 됨 (이름 충돌 방지가 목적)
+     */
+    public synchronized Entry newEntry(CameraInfo camera, byte source) {
+        Entry entry = new Entry();
+        entry.owner = this;
+        entry.wallClockMs = System.currentTimeMillis();
+        entry.source = source;
+        entry.cameraIndex = CameraConfig.indexOf(camera);
+        entry.holeKey = camera.getHoleKey();
+
+        String day = dayOf(entry.wallClockMs);
+        if (!day.equals(sequenceDay)) {
+            sequenceDay = day;
+            nextSequence = readNextSequence(fileFor(day));
+        }
+        entry.sequence = nextSequence++;
+        return entry;
+    }
+
+    /**
+     * 새 캡처 파일 경로 (날짜 폴더 생성 포함)
+     */
+    public String pathFor(Entry entry) {
+        File dayDir = new File(rootDir, dayOf(entry.wallClockMs));
+        if (!dayDir.exists() && !dayDir.mkdirs()) {
+            Timber.tag(TAG).e("날짜 폴더 생성 실패: %s", dayDir.getAbsolutePath());
+        }
+        return new File(dayDir, entry.fileName()).getAbsolutePath();
+    }
+
+    /**
+     * SDK가 직접 저장한 파일의 크기 / 해상도 (JPEG 헤더만 읽음)
+     */
+    public static void readFileInfo(String filePath, Entry entry) {
+        entry.fileLength = (int) new File(filePath).length();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(filePath, options);
+        if (options.outWidth > 0 && options.outHeight > 0) {
+            entry.width = options.outWidth;
+            entry.height = options.outHeight;
+        }
+    }
+
+    /**
+     * 캡처 원본 읽기 (샤드면 해당 멤버만 스트리밍, 아니면 개별 파일)
+     */
+    public InputStream openSample(Entry entry) throws IOException {
+        if (entry.fileOffset >= 0) {
+            File shard = ShardStore.shardFile(rootDir, dayOf(entry.wallClockMs), entry.shard);
+            return ShardStore.openSample(shard, entry.fileOffset, entry.fileLength);
+        }
+        return new FileInputStream(new File(new File(rootDir, dayOf(entry.wallClockMs)), entry.fileName()));
+    }
+
+    /**
+     * 메모리 JPEG을 샤드에 저장 + 목록 추가
+     */
+    synchronized boolean storeInShard(Entry entry, byte[] buffer, int length, byte[] thumbBuffer, int thumbLength) {
+        if (shardStore == null) {
+            return false;
+        }
+        try {
+            shardStore.append(entry, buffer, length, thumbBuffer, thumbLength);
+        } catch (IOException e) {
+            Timber.tag(TAG).e(e, "샤드 저장 실패 - 개별 파일로 저장: %s", entry.fileName());
+            return false;
+        }
+        append(entry);
+        return true;
+    }
+
+    /**
+     * 저장 완료된 캡처 추가 (추가 전용)
+     */
+    public synchronized void append(Entry entry) {
+        if (shardStore != null && entry.fileOffset < 0) {
+            moveToShard(entry);
+        }
+        try {
+            ensureOpen(dayOf(entry.wallClockMs));
+            record.clear();
+            Arrays.fill(record.array(), (byte) 0);
+            record.putLong(entry.wallClockMs);
+            record.putLong(entry.fileOffset);
+            record.putInt(entry.fileLength);
+            record.putInt(entry.sequence);
+            record.putInt(entry.deviceStampMs);
+            record.putInt(entry.bitRate);
+            record.putFloat(entry.sharpness);
+            record.putShort((short) entry.cameraIndex);
+            record.putShort((short) entry.width);
+            record.putShort((short) entry.height);
+            record.put(entry.source);
+            record.put(entry.flags);
+            byte[] hole = entry.holeKey.getBytes(StandardCharsets.US_ASCII);
+            record.put(hole, 0, Math.min(hole.length, HOLE_KEY_SIZE));
+            record.position(48);
+            record.putInt(entry.shard);
+            record.position(RECORD_SIZE);   // 나머지 0 (예약)
+            record.flip();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            Timber.tag(TAG).e(e, "캡처 목록 기록 실패 - %s", entry.fileName());
+        }
+    }
+
+    public synchronized void close() {
+        closeChannel();
+        openDay = null;
+        if (shardStore != null) {
+            shardStore.close();
+        }
+    }
+
+    /**
+     * SDK가 개별 파일로 저장한 캡처(+ 축소본)를 샤드로 옮김, 실패하면 개별 파일 그대로 기록
+     */
+    private void moveToShard(Entry entry) {
+        File file = new File(new File(rootDir, dayOf(entry.wallClockMs)), entry.fileName());
+        File thumb = new File(ThumbnailWriter.thumbnailPath(file.getPath()));
+        boolean withThumb = (entry.flags & FLAG_THUMBNAIL) != 0 && thumb.exists();
+        try {
+            byte[] jpeg = Files.readAllBytes(file.toPath());
+            byte[] thumbBytes = withThumb ? Files.readAllBytes(thumb.toPath()) : null;
+            shardStore.append(entry, jpeg, jpeg.length, thumbBytes, withThumb ? thumbBytes.length : 0);
+        } catch (IOException e) {
+            Timber.tag(TAG).e(e, "샤드로 옮기기 실패 - 개별 파일 유지: %s", entry.fileName());
+            return;
+        }
+        if (!file.delete() || (withThumb && !thumb.delete())) {
+            Timber.tag(TAG).w("샤드로 옮긴 개별 파일 삭제 실패: %s", entry.fileName());
+        }
+    }
+
+    /**
+     * 기록된 가장 큰 일련번호 + 1 (목록이 없으면 0)
+     */
+    private static int readNextSequence(File file) {
+        int next = 0;
+        try (Reader reader = Reader.open(file)) {
+            if (reader != null) {
+                for (int i = 0; i < reader.count(); i++) {
+                    next = Math.max(next, reader.sequenceAt(i) + 1);
+                }
+            }
+        } catch (IOException e) {
+            Timber.tag(TAG).e(e, "캡처 목록 읽기 실패 - 일련번호 0부터");
+        }
+        return next;
+    }
+
+    /**
+     * 기록할 날짜 파일 열기 (새 파일이면 헤더 기록, 잘린 레코드 정리)
+     */
+    private void ensureOpen(String day) throws IOException {
+        if (day.equals(openDay) && channel != null) {
+            return;
+        }
+        closeChannel();
+        openDay = day;
+
+        File file = fileFor(day);
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("날짜 폴더 생성 실패: " + dir.getAbsolutePath());
+        }
+
+        // 이전 종료 시 잘린 레코드(또는 헤더)는 경계에 맞춰 잘라냄
+        long size = file.length();
+        long valid = size < HEADER_SIZE ? 0 : size - (size - HEADER_SIZE) % RECORD_SIZE;
+        if (valid != size) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            }
+            Timber.tag(TAG).w("잘린 레코드 정리 - %s (%d → %d바이트)", file.getName(), size, valid);
+        }
+
+        channel = new FileOutputStream(file, true).getChannel();
+        if (valid == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE);
+            header.position(HEADER_SIZE);
+            header.flip();
+            channel.write(header);
+        }
+        Timber.tag(TAG).d("캡처 목록 열기 - %s (%d건)", day, (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 무시
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * 메모리 맵 읽기 (열 때의 크기까지, 이후 추가분은 다시 열어야 보임)
+     */
+    public static class Reader implements AutoCloseable {
+        private final RandomAccessFile file;
+        private final MappedByteBuffer buffer;
+        private final int count;
+        private final byte[] hole = new byte[HOLE_KEY_SIZE];
+
+        private Reader(RandomAccessFile file, MappedByteBuffer buffer, int count) {
+            this.file = file;
+            this.buffer = buffer;
+            this.count = count;
+        }
+
+        /**
+         * @return 목록 파일이 없거나 형식이 다르면 null
+         */
+        public static Reader open(File manifestFile) throws IOException {
+            if (!manifestFile.exists() || manifestFile.length() < HEADER_SIZE) {
+                return null;
+            }
+            RandomAccessFile raf = new RandomAccessFile(manifestFile, "r");
+            try {
+                long size = raf.length();
+                MappedByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                if (mapped.getInt(0) != MAGIC || mapped.getShort(6) != RECORD_SIZE) {
+                    Timber.tag(TAG).w("캡처 목록 형식 불일치 - %s", manifestFile.getPath());
+                    raf.close();
+                    return null;
+                }
+                return new Reader(raf, mapped, (int) ((size - HEADER_SIZE) / RECORD_SIZE));
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        public int count() {
+            return count;
+        }
+
+        int sequenceAt(int index) {
+            return buffer.getInt(offset(index) + 20);
+        }
+
+        /**
+         * index번째 레코드를 entry에 채움 (객체 재사용)
+         */
+        public Entry get(int index, Entry entry) {
+            int base = offset(index);
+            entry.wallClockMs = buffer.getLong(base);
+            entry.fileOffset = buffer.getLong(base + 8);
+            entry.fileLength = buffer.getInt(base + 16);
+            entry.sequence = buffer.getInt(base + 20);
+            entry.deviceStampMs = buffer.getInt(base + 24);
+            entry.bitRate = buffer.getInt(base + 28);
+            entry.sharpness = buffer.getFloat(base + 32);
+            entry.cameraIndex = buffer.getShort(base + 36);
+            entry.width = buffer.getShort(base + 38) & 0xFFFF;
+            entry.height = buffer.getShort(base + 40) & 0xFFFF;
+            entry.source = buffer.get(base + 42);
+            entry.flags = buffer.get(base + 43);
+            entry.holeKey = holeKeyAt(base);
+            entry.shard = buffer.getInt(base + 48);
+            return entry;
+        }
+
+        /**
+         * 홀별 개수 ("5W" → 개수) - Entry를 만들지 않고 홀 필드만 훑음
+         */
+        public Map<String, Integer> countByHole() {
+            Map<String, Integer> counts = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = holeKeyAt(offset(i));
+                Integer current = counts.get(key);
+                counts.put(key, current != null ? current + 1 : 1);
+            }
+            return counts;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+
+        private String holeKeyAt(int base) {
+            int length = 0;
+            for (; length < HOLE_KEY_SIZE; length++) {
+                hole[length] = buffer.get(base + 44 + length);
+                if (hole[length] == 0) {
+                    break;
+                }
+            }
+            return new String(hole, 0, length, StandardCharsets.US_ASCII);
+        }
+
+        private static int offset(int index) {
+            return HEADER_SIZE + index * RECORD_SIZE;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.geniecaddie.datacollection;
+
+/**
+ * 캡처 결과
+ */
+public enum CaptureResult {
+    SAVED,          // 저장 (비동기 저장이면 저장 요청 접수)
+    DUPLICATE,      // 최근 캡처와 거의 같은 이미지 - 저장하지 않음
+    FAILED
+}
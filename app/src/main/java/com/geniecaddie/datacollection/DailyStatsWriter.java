@@ -0,0 +1,157 @@
+package com.geniecaddie.datacollection;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * 일별 수집 통계 파일 비동기 저장
+ * - UI 스레드는 최신 통계만 넘기고 바로 반환, 저장은 writer 스레드에서
+ * - DAILY_STATS_WRITE_DELAY_MS 안에 들어온 요청은 마지막 것 하나로 합쳐 한 번만 저장
+ *   (연속/자동 캡처 중에도 캡처마다 sdcard에 쓰지 않음)
+ * - 날짜 폴더에 사람용 daily_stats_yyyyMMdd.txt + 집계용 daily_stats_yyyyMMdd.csv (hole,count)
+ * - 임시 파일에 쓴 뒤 이름 변경 → 읽는 쪽이 반쯤 쓴 파일을 보지 않음
+ */
+public class DailyStatsWriter {
+    private static final String TAG = "DailyStatsWriter";
+
+    private static final String FILE_PREFIX = "daily_stats_";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long SHUTDOWN_WAIT_MS = 2000;
+
+    private final File rootDir;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+
+    // 아직 저장하지 않은 최신 통계 (this로 동기화)
+    private String pendingDay;
+    private String pendingText;
+    private Map<String, Integer> pendingCounts;
+    private boolean scheduled = false;
+    private int coalesced = 0;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public DailyStatsWriter(File rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    /**
+     * 저장 요청 (대기 중인 요청이 있으면 덮어씀)
+     *
+     * @param counts 홀별 개수 복사본 (이후 수정하지 않는 맵)
+     */
+    public synchronized void submit(String day, String text, Map<String, Integer> counts) {
+        pendingDay = day;
+        pendingText = text;
+        pendingCounts = counts;
+        if (scheduled) {
+            coalesced++;
+            return;
+        }
+        try {
+            writer.schedule(flushTask, CameraConfig.DAILY_STATS_WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+            scheduled = true;
+        } catch (RejectedExecutionException e) {
+            Timber.tag(TAG).w("종료된 writer에 통계 저장 요청 - 무시");
+        }
+    }
+
+    /**
+     * 종료 (대기 중인 통계는 바로 저장, Activity onDestroy)
+     */
+    public void shutdown() {
+        try {
+            writer.execute(flushTask);
+        } catch (RejectedExecutionException e) {
+            // 이미 종료됨
+        }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                Timber.tag(TAG).w("통계 저장 대기 시간 초과");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush() {
+        String day;
+        String text;
+        Map<String, Integer> counts;
+        int merged;
+        synchronized (this) {
+            scheduled = false;
+            if (pendingDay == null) {
+                return;
+            }
+            day = pendingDay;
+            text = pendingText;
+            counts = pendingCounts;
+            merged = coalesced;
+            pendingDay = null;
+            pendingText = null;
+            pendingCounts = null;
+            coalesced = 0;
+        }
+
+        File dayDir = new File(rootDir, day);
+        if (!dayDir.exists() && !dayDir.mkdirs()) {
+            Timber.tag(TAG).e("통계 파일 저장 폴더 생성 실패: %s", dayDir.getAbsolutePath());
+            return;
+        }
+
+        boolean textSaved = writeAtomic(new File(dayDir, FILE_PREFIX + day + ".txt"), text);
+        boolean csvSaved = writeAtomic(new File(dayDir, FILE_PREFIX + day + ".csv"), toCsv(counts));
+        if (textSaved && csvSaved) {
+            Timber.tag(TAG).d("일별 통계 파일 저장 완료 - %s (합친 요청 %d건)", day, merged);
+        }
+    }
+
+    /**
+     * hole,count 한 줄씩 (1W, 1L ... 9L 순서)
+     */
+    private static String toCsv(Map<String, Integer> counts) {
+        StringBuilder csv = new StringBuilder("hole,count\n");
+        for (int i = 1; i <= 9; i++) {
+            String whiteKey = i + "W";
+            String ladyKey = i + "L";
+            csv.append(whiteKey).append(',').append(counts.getOrDefault(whiteKey, 0)).append('\n');
+            csv.append(ladyKey).append(',').append(counts.getOrDefault(ladyKey, 0)).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static boolean writeAtomic(File target, String content) {
+        File temp = new File(target.getPath() + TEMP_SUFFIX);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(content.getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(target)) {
+                Timber.tag(TAG).e("통계 파일 이름 변경 실패: %s", target.getAbsolutePath());
+                temp.delete();
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            Timber.tag(TAG).e("일별 통계 파일 저장 실패: %s", e.getMessage());
+            temp.delete();
+            return false;
+        }
+    }
+}
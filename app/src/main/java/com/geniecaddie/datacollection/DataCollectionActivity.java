@@ -10,12 +10,10 @@ import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 import android.view.View;
 import android.widget.Button;
+import android.widget.GridLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 
 import com.geniecaddie.KioskGolfBallCollectingApp.R;
@@ -33,7 +31,10 @@ import timber.log.Timber;
  * - 실시간 영상 표시
  * - 스냅샷 캡처
  */
-public class DataCollectionActivity extends Activity implements SurfaceHolder.Callback {
+public class DataCollectionActivity extends Activity
+    implements SurfaceHolder.Callback, MosaicController.Listener, StreamHealthSupervisor.Listener,
+    CameraCommandExecutor.Listener, AutoCollectionDaemon.Listener, MotionTrigger.Listener,
+    HoleCountStore.Listener, DecodeEnginePolicy.Listener {
 
     private static final String TAG = "DataCollection";
 
@@ -67,6 +68,10 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
             System.loadLibrary("jniplay");
             Log.d("DataCollectionActivity", "✅ jniplay 로드 성공");
 
+            // OpenCV (연속 캡처 선명도 평가)
+            System.loadLibrary("opencv_java4");
+            Log.d("DataCollectionActivity", "✅ opencv_java4 로드 성공");
+
             Log.d("DataCollectionActivity", "=== 모든 라이브러리 로드 완료 ===");
         } catch (UnsatisfiedLinkError e) {
             Log.e("DataCollectionActivity", "❌ 라이브러리 로드 실패: " + e.getMessage());
@@ -80,16 +85,31 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
     // UI 컴포넌트
     private SurfaceView surfaceView;
     private Button btnSnapshot;
+    private Button btnMosaic;
     private Button[] holeButtons;
 
     // 카메라 연결 매니저
     private CameraConnectionManager connectionManager;
+    private CameraCommandExecutor commandExecutor;
+    private CameraSource cameraSource;
+    private CameraSessionPool sessionPool;
+    private PlayPortReaper portReaper;
+    private CameraPrefetcher prefetcher;
+    private StreamHealthSupervisor healthSupervisor;
+    private DecodeEnginePolicy decodePolicy;
+    private StreamBufferSizer bufferSizer;
+    private final SwitchLatencyTracker latencyTracker = new SwitchLatencyTracker();
+    private MosaicController mosaicController;
+    private AutoCollectionDaemon autoCollector;
+    private CaptureDeduplicator deduplicator;
+    private CaptureManifest manifest;
+    private HoleCountStore holeCountStore;
+    private DailyStatsWriter statsWriter;
     private boolean isSurfaceReady = false;
+    private int parkedReconnectIndex = -1;     // Surface 준비 전에 들어온 자동 재연결 (surfaceCreated에서 실행)
+    private int currentCameraIndex = 0;
     private int captureCount = 0;
 
-    // 일별 홀별 수집 개수 (날짜 -> 홀정보 -> 개수)
-    private Map<String, Map<String, Integer>> dailyHoleCounts = new HashMap<>();
-
     // UI 표시용 TextView
     private TextView dailyStatsTextView;
 
@@ -159,14 +179,42 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
             // View 초기화
             initViews();
 
+            // 캡처 목록 (날짜별 manifest.bin) + 홀별 개수 (날짜별 hole_counts.bin, 없을 때만 백그라운드 재구성)
+            File golfBallDir = new File(Environment.getExternalStoragePublicDirectory(
+                Environment.DIRECTORY_DOWNLOADS), "GolfBallImages");
+            manifest = new CaptureManifest(golfBallDir);
+            holeCountStore = new HoleCountStore(golfBallDir, manifest, this);
+            holeCountStore.load();
+            statsWriter = new DailyStatsWriter(golfBallDir);
+
             // 일별 수집 통계 초기화
             initDailyStats();
 
         // NetSDK 초기화 상태 확인
         checkNetSDKStatus();
 
-        // ConnectionManager 초기화
-        connectionManager = new CameraConnectionManager(this);
+        // 카메라 소스 (CameraConfig.CAMERA_SOURCE: 실제 장비 / 녹화 파일 재생 / 합성 영상)
+        cameraSource = CameraSource.create();
+
+        // 세션 풀 초기화 (전체 카메라 백그라운드 로그인)
+        sessionPool = new CameraSessionPool(cameraSource);
+        sessionPool.start();
+
+        // ConnectionManager 초기화 (단일 화면과 모자이크가 포트 정리기를 공유)
+        portReaper = new PlayPortReaper();
+        prefetcher = new CameraPrefetcher(this, sessionPool, cameraSource);
+        decodePolicy = new DecodeEnginePolicy(this, this);
+        bufferSizer = new StreamBufferSizer(this);
+        deduplicator = new CaptureDeduplicator(this);
+        connectionManager = new CameraConnectionManager(this, sessionPool, cameraSource, portReaper,
+            prefetcher, decodePolicy, bufferSizer, deduplicator);
+        connectionManager.setMotionTrigger(CameraConfig.MOTION_TRIGGER_ENABLED, this);
+        commandExecutor = new CameraCommandExecutor(connectionManager, surfaceView, manifest, this);
+        healthSupervisor = new StreamHealthSupervisor(connectionManager, this);
+        mosaicController = new MosaicController(this, (GridLayout) findViewById(R.id.mosaicGrid),
+            sessionPool, cameraSource, portReaper, this);
+        autoCollector = new AutoCollectionDaemon(sessionPool, cameraSource, deduplicator, manifest,
+            golfBallDir, this);
 
             // 버튼 리스너 설정
             setupListeners();
@@ -187,6 +235,7 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
         surfaceView.getHolder().addCallback(this);
 
         btnSnapshot = findViewById(R.id.btnSnapshot);
+        btnMosaic = findViewById(R.id.btnMosaic);
 
         // 18개 홀 버튼 배열
         holeButtons = new Button[]{
@@ -202,6 +251,25 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
         };
     }
 
+    /**
+     * 재생 프로파일별 지연 측정 (결과는 Download/DahuaPlaySDKLogs/playback_latency_yyyyMMdd.txt)
+     */
+    private void measurePlaybackLatency() {
+        boolean started = connectionManager.measurePlaybackLatency(new PlaybackLatencyProbe.Callback() {
+            @Override
+            public void onFinished(String report) {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Toast.makeText(DataCollectionActivity.this, "재생 지연 측정 완료", Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        });
+        Toast.makeText(this, started ? "재생 지연 측정 시작 (약 40초)" : "재생 중이 아니거나 이미 측정 중입니다",
+            Toast.LENGTH_SHORT).show();
+    }
+
     /**
      * 리스너 설정
      */
@@ -214,6 +282,32 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
             }
         });
 
+        // 스냅샷 버튼 길게 누르기: 무인 자동 수집 시작/중지
+        btnSnapshot.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                toggleAutoCollection();
+                return true;
+            }
+        });
+
+        // 화면 길게 누르기: 재생 프로파일별 지연 측정
+        surfaceView.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                measurePlaybackLatency();
+                return true;
+            }
+        });
+
+        // 모자이크 버튼 (2x2 → 3x3 → 18분할 → 단일 화면 순환)
+        btnMosaic.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                toggleMosaic();
+            }
+        });
+
         // 18개 홀 버튼 (카메라 전환)
         for (int i = 0; i < holeButtons.length; i++) {
             final int cameraIndex = i;
@@ -227,268 +321,266 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
     }
 
     /**
-     * 카메라 전환
+     * 모자이크 배치 순환
+     * 단일 화면 메인 스트림은 모자이크 표시 전에 끊어서 디코딩 자원을 타일에 넘김
      */
-    private void switchCamera(final int cameraIndex) {
-        if (!isSurfaceReady) {
-            Toast.makeText(this, R.string.toast_surface_not_ready, Toast.LENGTH_SHORT).show();
-            return;
+    private void toggleMosaic() {
+        MosaicController.Layout current = mosaicController.getCurrentLayout();
+        final MosaicController.Layout next;
+        if (current == null) {
+            next = MosaicController.Layout.GRID_2X2;
+        } else if (current == MosaicController.Layout.GRID_2X2) {
+            next = MosaicController.Layout.GRID_3X3;
+        } else if (current == MosaicController.Layout.GRID_3X3) {
+            next = MosaicController.Layout.GRID_18;
+        } else {
+            next = null;
         }
 
-        final CameraInfo camera = CameraConfig.getCamera(cameraIndex);
-        if (camera == null) {
-            Timber.tag(TAG).e("카메라 정보 없음 - Index: %d", cameraIndex);
+        if (next == null) {
+            mosaicController.hide();
             return;
         }
 
-        // 버튼 비활성화
-        setHoleButtonsEnabled(false);
         btnSnapshot.setEnabled(false);
+        healthSupervisor.unwatch();
+        commandExecutor.requestDisconnect();
+        mosaicController.show(next, currentCameraIndex);
+    }
 
-        // 백그라운드 스레드에서 연결
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                final boolean success = connectionManager.connectAndPlay(camera, surfaceView);
-
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (success) {
-                            btnSnapshot.setEnabled(true);
-                            highlightCurrentCamera(cameraIndex);
-                        } else {
-                            Timber.tag(TAG).w("카메라 연결 실패: %s", camera.getName());
-                        }
-
-                        setHoleButtonsEnabled(true);
-                    }
-                });
-            }
-        }).start();
+    /**
+     * 모자이크 타일 탭 → 해당 카메라를 단일 화면 메인 스트림으로 승격
+     * 타일과 같은 풀 세션을 쓰므로 재로그인 없이 RealPlayEx만 다시 호출됨
+     */
+    @Override
+    public void onTileSelected(int cameraIndex) {
+        Timber.tag(TAG).i("모자이크 타일 선택 - 카메라 %d", cameraIndex);
+        mosaicController.hide(cameraIndex);     // 타일 세션 참조는 연결이 세션을 잡을 때까지 유지
+        switchCamera(cameraIndex, false);
     }
 
     /**
-     * 스냅샷 캡처
+     * 스트림 정지/끊김 후 자동 재연결 요청 (백오프는 StreamHealthSupervisor가 관리)
      */
-    private void captureSnapshot() {
-        if (!connectionManager.isConnected()) {
-            Toast.makeText(this, "카메라가 연결되지 않았습니다", Toast.LENGTH_SHORT).show();
+    @Override
+    public void onReconnectRequested(int cameraIndex) {
+        if (mosaicController.isShowing()) {
+            // 사용자가 모자이크로 바꿈 - 단일 화면 재연결은 더 이상 필요 없음
+            healthSupervisor.unwatch();
             return;
         }
-
-        final String filePath = generateFilePath();
-
-        btnSnapshot.setEnabled(false);
-
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                final boolean success = connectionManager.captureFrame(filePath);
-
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (success) {
-                            captureCount++;
-                            String fileName = new File(filePath).getName();
-                            String message = String.format(
-                                getString(R.string.toast_snapshot_success),
-                                fileName
-                            );
-                            Toast.makeText(DataCollectionActivity.this, message, Toast.LENGTH_SHORT).show();
-                            Timber.tag(TAG).i("캡처 성공 (총 %d개) - %s", captureCount, fileName);
-
-                            // 홀별 카운트 업데이트
-                            String holeInfo = extractHoleInfoFromFileName(fileName);
-                            if (holeInfo != null) {
-                                updateHoleCountOnSnapshot(holeInfo);
-                            }
-                        } else {
-                            Toast.makeText(
-                                DataCollectionActivity.this,
-                                R.string.toast_snapshot_failed,
-                                Toast.LENGTH_SHORT
-                            ).show();
-                            Timber.tag(TAG).w("캡처 실패");
-                        }
-
-                        btnSnapshot.setEnabled(true);
-                    }
-                });
-            }
-        }).start();
+        if (!isSurfaceReady) {
+            // 실패로 돌려보내면 Surface가 없는 동안 백오프 재시도가 계속됨 → Surface 생성까지 보류
+            Timber.tag(TAG).i("자동 재연결 보류 - Surface 준비 전 (카메라 %d)", cameraIndex);
+            parkedReconnectIndex = cameraIndex;
+            return;
+        }
+        Timber.tag(TAG).i("자동 재연결 - 카메라 %d", cameraIndex);
+        reconnectCamera(cameraIndex);
     }
 
     /**
-     * 파일 경로 생성
+     * 자동 재연결 (전환 지연 통계에서 제외 - 사용자 탭이 아니므로 계측 구간을 만들지 않음)
      */
-    private String generateFilePath() {
-        // Download/GolfBallImages 폴더
-        File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-        File golfBallDir = new File(downloadDir, "GolfBallImages");
-
-        // 오늘 날짜로 서브폴더 생성
-        String today = new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
-        File todayDir = new File(golfBallDir, today);
-
-        if (!todayDir.exists()) {
-            boolean created = todayDir.mkdirs();
-            if (!created) {
-                Timber.tag(TAG).e("날짜 폴더 생성 실패: %s", todayDir.getAbsolutePath());
-            }
-        }
-
-        // 파일명: yyyyMMdd_HHmmss_홀번호타입.jpg (날짜 정보 포함)
-        SimpleDateFormat fullSdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
-        String timestamp = fullSdf.format(new Date());
-
-        CameraInfo camera = connectionManager.getCurrentCamera();
-        String holeInfo = camera != null ? convertCameraNameToHoleInfo(camera.getName()) : "unknown";
+    private void reconnectCamera(int cameraIndex) {
+        switchCamera(cameraIndex, connectionManager.isSubStreamPreview(), false);
+    }
 
-        String fileName = String.format("%s_%s.jpg", timestamp, holeInfo);
+    /**
+     * 카메라 전환
+     */
+    private void switchCamera(final int cameraIndex) {
+        switchCamera(cameraIndex, connectionManager.isSubStreamPreview());
+    }
 
-        return new File(todayDir, fileName).getAbsolutePath();
+    private void switchCamera(final int cameraIndex, final boolean useSubStream) {
+        switchCamera(cameraIndex, useSubStream, true);
     }
 
     /**
-     * 카메라 이름을 간단한 홀 정보로 변환
-     * "Hole1_White" -> "1W"
-     * "Hole1_Lady" -> "1L"
+     * 카메라 전환
+     *
+     * @param useSubStream 서브 스트림으로 미리보기 여부
+     * @param measure 전환 지연 계측 여부 (사용자 탭만 계측)
      */
-    private String convertCameraNameToHoleInfo(String cameraName) {
-        if (cameraName == null) return "unknown";
+    private void switchCamera(final int cameraIndex, final boolean useSubStream, final boolean measure) {
+        if (!isSurfaceReady) {
+            Toast.makeText(this, R.string.toast_surface_not_ready, Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-        try {
-            // "Hole1_White" 형식에서 홀 번호와 타입 추출
-            if (cameraName.startsWith("Hole") && cameraName.contains("_")) {
-                String[] parts = cameraName.split("_");
-                if (parts.length >= 2) {
-                    String holePart = parts[0]; // "Hole1"
-                    String typePart = parts[1]; // "White" or "Lady"
+        final CameraInfo camera = CameraConfig.getCamera(cameraIndex);
+        if (camera == null) {
+            Timber.tag(TAG).e("카메라 정보 없음 - Index: %d", cameraIndex);
+            return;
+        }
 
-                    // 홀 번호 추출 (Hole1 -> 1)
-                    String holeNumber = holePart.substring(4);
+        // 모자이크 중이면 단일 화면으로 복귀
+        if (mosaicController.isShowing()) {
+            mosaicController.hide();
+        }
 
-                    // 타입 변환 (White -> W, Lady -> L)
-                    String typeShort = typePart.equals("White") ? "W" : "L";
+        // 전환 지연 계측 시작 (탭 시점)
+        final SwitchLatencyTracker.Span span = measure ? latencyTracker.begin(cameraIndex) : null;
 
-                    return holeNumber + typeShort;
-                }
-            }
-        } catch (Exception e) {
-            Timber.tag(TAG).w("카메라 이름 변환 실패: %s", cameraName);
+        // 사용자 전환이면 진행 중인 자동 복구 취소 (대기 중인 재시도가 이 전환을 덮어쓰지 않도록)
+        if (measure) {
+            healthSupervisor.unwatch();
+            parkedReconnectIndex = -1;
         }
 
-        return "unknown";
+        // 명령 큐에서 연결 (연속 탭은 마지막 요청만 실행되므로 버튼을 막지 않음)
+        commandExecutor.requestSwitch(cameraIndex, camera, useSubStream, span);
+    }
+
+    @Override
+    public void onSwitchFinished(int cameraIndex, boolean success) {
+        // 연결이 세션을 잡았으므로(또는 실패) 승격 타일에서 넘겨받은 참조 반납
+        mosaicController.releasePromotedSession();
+
+        if (success) {
+            currentCameraIndex = cameraIndex;
+            prefetcher.onCameraSwitched(cameraIndex);
+            healthSupervisor.watch(cameraIndex);
+            btnSnapshot.setEnabled(true);
+            highlightCurrentCamera(cameraIndex);
+        } else {
+            Timber.tag(TAG).w("카메라 연결 실패 - Index: %d", cameraIndex);
+            healthSupervisor.connectFailed(cameraIndex);
+        }
     }
 
     /**
-     * 일별 수집 통계 초기화
+     * 스냅샷 캡처
      */
-    private void initDailyStats() {
-        // UI 요소 초기화
-        dailyStatsTextView = findViewById(R.id.dailyStatsTextView);
-        if (dailyStatsTextView == null) {
-            Timber.tag(TAG).w("dailyStatsTextView를 찾을 수 없음 - UI에 추가 필요");
+    private void captureSnapshot() {
+        if (commandExecutor.isIdle()) {
+            Toast.makeText(this, "카메라가 연결되지 않았습니다", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // 파일 시스템 스캔으로 기존 데이터 로드
-        scanDailyHoleCounts();
+        btnSnapshot.setEnabled(false);
 
-        // UI 업데이트
-        updateDailyStatsUI();
+        // 진행 중인 전환이 있으면 끝난 뒤 캡처 (파일명은 실제 캡처한 카메라 기준)
+        commandExecutor.requestCapture();
     }
 
     /**
-     * 파일 시스템에서 오늘 날짜의 홀별 수집 개수 스캔
+     * 무인 자동 수집 시작/중지
      */
-    private void scanDailyHoleCounts() {
-        File golfBallDir = new File(Environment.getExternalStoragePublicDirectory(
-            Environment.DIRECTORY_DOWNLOADS), "GolfBallImages");
+    private void toggleAutoCollection() {
+        if (autoCollector.isRunning()) {
+            autoCollector.stop();
+            Toast.makeText(this, R.string.toast_collection_stopped, Toast.LENGTH_SHORT).show();
+        } else {
+            autoCollector.start();
+            Toast.makeText(this, R.string.toast_collection_started, Toast.LENGTH_SHORT).show();
+        }
+    }
 
-        if (!golfBallDir.exists()) {
-            Timber.tag(TAG).d("GolfBallImages 폴더가 존재하지 않음");
+    @Override
+    public void onMotionDetected(double foregroundRatio) {
+        // 캡처 중이거나 연결 전환 중이면 무시 (쿨다운 뒤 다시 감지됨)
+        if (!btnSnapshot.isEnabled() || commandExecutor.isIdle()) {
             return;
         }
+        Timber.tag(TAG).d("움직임 감지 캡처 (전경 %.1f%%)", foregroundRatio * 100);
+        captureSnapshot();
+    }
 
-        // 오늘 날짜 구하기
-        String today = new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
-        File todayDir = new File(golfBallDir, today);
-
-        if (!todayDir.exists()) {
-            Timber.tag(TAG).d("오늘 날짜 폴더가 존재하지 않음: %s", today);
-            return;
+    @Override
+    public void onCaptureFinished(CaptureManifest.Entry entry, CaptureResult result) {
+        if (result == CaptureResult.SAVED) {
+            String fileName = recordCapture(entry);
+            String message = String.format(
+                getString(R.string.toast_snapshot_success),
+                fileName
+            );
+            Toast.makeText(DataCollectionActivity.this, message, Toast.LENGTH_SHORT).show();
+        } else if (result == CaptureResult.DUPLICATE) {
+            Toast.makeText(
+                DataCollectionActivity.this,
+                R.string.toast_snapshot_duplicate,
+                Toast.LENGTH_SHORT
+            ).show();
+            Timber.tag(TAG).i("중복 캡처 - 저장 안 함");
+        } else {
+            Toast.makeText(
+                DataCollectionActivity.this,
+                R.string.toast_snapshot_failed,
+                Toast.LENGTH_SHORT
+            ).show();
+            Timber.tag(TAG).w("캡처 실패");
         }
 
-        // 오늘 폴더에서 파일들 스캔
-        File[] todayFiles = todayDir.listFiles(file ->
-            file.isFile() && file.getName().toLowerCase().endsWith(".jpg"));
+        btnSnapshot.setEnabled(true);
+    }
 
-        if (todayFiles == null || todayFiles.length == 0) {
-            Timber.tag(TAG).d("오늘 날짜에 파일이 없음");
-            return;
-        }
+    @Override
+    public Map<String, Integer> getTodayHoleCounts() {
+        return holeCountStore.snapshot();
+    }
 
-        // 홀별 카운트 초기화
-        Map<String, Integer> holeCounts = new HashMap<>();
-        for (int i = 1; i <= 9; i++) {
-            holeCounts.put(i + "W", 0);
-            holeCounts.put(i + "L", 0);
-        }
+    @Override
+    public void onHoleCountsRebuilt() {
+        updateDailyStatsUI();
+    }
 
-        // 파일별로 카운트
-        for (File file : todayFiles) {
-            String fileName = file.getName();
-            String holeInfo = extractHoleInfoFromFileName(fileName);
-            if (holeInfo != null && holeCounts.containsKey(holeInfo)) {
-                holeCounts.put(holeInfo, holeCounts.get(holeInfo) + 1);
-            }
+    /**
+     * 하드웨어 디코딩 검증 실패 → 같은 카메라를 소프트웨어 디코딩으로 다시 연결
+     */
+    @Override
+    public void onHardwareDecodeBroken(String streamKey) {
+        if (!isSurfaceReady || mosaicController.isShowing() || !connectionManager.isConnected()) {
+            return;     // 다음 연결부터 소프트웨어로 열림
         }
+        Timber.tag(TAG).i("소프트웨어 디코딩으로 재연결 - 카메라 %d (%s)", currentCameraIndex, streamKey);
+        reconnectCamera(currentCameraIndex);
+    }
+
+    @Override
+    public void onAutoCaptured(CaptureManifest.Entry entry) {
+        recordCapture(entry);
+    }
 
-        dailyHoleCounts.put(today, holeCounts);
-        Timber.tag(TAG).i("일별 수집 개수 스캔 완료: %d개 파일, %d개 홀 정보",
-            todayFiles.length, holeCounts.size());
+    /**
+     * 캡처 성공 기록 (수동/자동 공통) - 총 개수 + 홀별 카운트 (홀 정보는 캡처 목록 항목 기준)
+     *
+     * @return 파일 이름
+     */
+    private String recordCapture(CaptureManifest.Entry entry) {
+        captureCount++;
+        String fileName = entry.fileName();
+        Timber.tag(TAG).i("캡처 성공 (총 %d개) - %s", captureCount, fileName);
+
+        // 홀별 카운트 업데이트
+        updateHoleCountOnSnapshot(entry);
+        return fileName;
     }
 
     /**
-     * 파일명에서 홀 정보 추출 (HHmmss_홀정보.jpg -> 홀정보)
+     * 일별 수집 통계 초기화
      */
-    private String extractHoleInfoFromFileName(String fileName) {
-        try {
-            // "20250111_143022_5W.jpg" -> "5W"
-            String nameWithoutExt = fileName.substring(0, fileName.lastIndexOf('.'));
-            String[] parts = nameWithoutExt.split("_");
-            if (parts.length >= 3) {
-                return parts[2]; // 세 번째 부분이 홀 정보 (날짜_시간_홀정보)
-            }
-        } catch (Exception e) {
-            Timber.tag(TAG).w("파일명에서 홀 정보 추출 실패: %s", fileName);
+    private void initDailyStats() {
+        // UI 요소 초기화
+        dailyStatsTextView = findViewById(R.id.dailyStatsTextView);
+        if (dailyStatsTextView == null) {
+            Timber.tag(TAG).w("dailyStatsTextView를 찾을 수 없음 - UI에 추가 필요");
+            return;
         }
-        return null;
+
+        // UI 업데이트 (홀별 개수는 HoleCountStore가 이미 로드, 재구성 중이면 끝난 뒤 다시 갱신)
+        updateDailyStatsUI();
     }
 
     /**
      * 스냅샷 성공 시 홀 카운트 업데이트
      */
-    private void updateHoleCountOnSnapshot(String holeInfo) {
-        String today = new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
-
-        // 오늘 날짜 맵 가져오기 (없으면 생성)
-        Map<String, Integer> holeCounts = dailyHoleCounts.computeIfAbsent(today, k -> {
-            Map<String, Integer> counts = new HashMap<>();
-            for (int i = 1; i <= 9; i++) {
-                counts.put(i + "W", 0);
-                counts.put(i + "L", 0);
-            }
-            return counts;
-        });
-
-        // 해당 홀 카운트 증가
-        if (holeCounts.containsKey(holeInfo)) {
-            holeCounts.put(holeInfo, holeCounts.get(holeInfo) + 1);
-            Timber.tag(TAG).d("홀 카운트 업데이트: %s = %d", holeInfo, holeCounts.get(holeInfo));
+    private void updateHoleCountOnSnapshot(CaptureManifest.Entry entry) {
+        // 해당 홀 카운트 증가 (저장소의 카운터 1개만 갱신)
+        int count = holeCountStore.increment(entry);
+        if (count >= 0) {
+            Timber.tag(TAG).d("홀 카운트 업데이트: %s = %d", entry.holeKey, count);
 
             // UI 업데이트
             updateDailyStatsUI();
@@ -501,16 +593,19 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
     private void updateDailyStatsUI() {
         if (dailyStatsTextView == null) return;
 
-        String today = new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
         String displayDate = new SimpleDateFormat("yyyy.MM.dd", Locale.getDefault()).format(new Date());
-        Map<String, Integer> holeCounts = dailyHoleCounts.get(today);
+        Map<String, Integer> holeCounts = holeCountStore.snapshot();
 
         // 날짜 표시
         StringBuilder statsText = new StringBuilder();
         statsText.append(displayDate).append("\n");
 
-        if (holeCounts == null || holeCounts.isEmpty()) {
-            statsText.append("수집 데이터 없음");
+        int total = 0;
+        for (int count : holeCounts.values()) {
+            total += count;
+        }
+        if (total == 0) {
+            statsText.append(holeCountStore.isRebuilding() ? "수집 개수 집계 중..." : "수집 데이터 없음");
             dailyStatsTextView.setText(statsText.toString());
             return;
         }
@@ -522,7 +617,8 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
             int whiteCount = holeCounts.getOrDefault(whiteKey, 0);
             int ladyCount = holeCounts.getOrDefault(ladyKey, 0);
 
-            statsText.append(String.format("%dW:%d %dL:%d", i, whiteCount, i, ladyCount));
+            statsText.append(whiteKey).append(':').append(whiteCount)
+                .append(' ').append(ladyKey).append(':').append(ladyCount);
             if (i < 9) {
                 statsText.append("\n");
             }
@@ -530,50 +626,8 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
 
         dailyStatsTextView.setText(statsText.toString());
 
-        // 텍스트 파일로 동기화 저장
-        saveDailyStatsToFile(statsText.toString());
-    }
-
-    /**
-     * 일별 수집 통계를 텍스트 파일로 저장
-     */
-    private void saveDailyStatsToFile(String statsContent) {
-        try {
-            // 저장 경로: GolfBallImages/YYYYMMDD/daily_stats.txt
-            File golfBallDir = new File(Environment.getExternalStoragePublicDirectory(
-                Environment.DIRECTORY_DOWNLOADS), "GolfBallImages");
-
-            String today = new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
-            File todayDir = new File(golfBallDir, today);
-
-            // 폴더가 없으면 생성
-            if (!todayDir.exists()) {
-                if (!todayDir.mkdirs()) {
-                    Timber.tag(TAG).e("통계 파일 저장 폴더 생성 실패: %s", todayDir.getAbsolutePath());
-                    return;
-                }
-            }
-
-            // 파일 저장 (날짜 정보 포함)
-            File statsFile = new File(todayDir, "daily_stats_" + today + ".txt");
-            try (FileWriter writer = new FileWriter(statsFile, false)) { // 덮어쓰기
-                writer.write(statsContent);
-                writer.flush();
-                Timber.tag(TAG).d("일별 통계 파일 저장 완료: %s", statsFile.getAbsolutePath());
-            }
-
-        } catch (IOException e) {
-            Timber.tag(TAG).e("일별 통계 파일 저장 실패: %s", e.getMessage());
-        }
-    }
-
-    /**
-     * 홀 버튼 활성화/비활성화
-     */
-    private void setHoleButtonsEnabled(boolean enabled) {
-        for (Button button : holeButtons) {
-            button.setEnabled(enabled);
-        }
+        // 파일 저장은 writer 스레드에서 (연속 캡처는 한 번으로 합침)
+        statsWriter.submit(CaptureManifest.dayOf(System.currentTimeMillis()), statsText.toString(), holeCounts);
     }
 
     /**
@@ -598,6 +652,16 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
         try {
             isSurfaceReady = true;
             Timber.tag(TAG).d("Surface 생성됨");
+
+            // 보류된 자동 재연결 실행
+            if (parkedReconnectIndex >= 0) {
+                int cameraIndex = parkedReconnectIndex;
+                parkedReconnectIndex = -1;
+                if (!mosaicController.isShowing()) {
+                    Timber.tag(TAG).i("보류된 자동 재연결 - 카메라 %d", cameraIndex);
+                    reconnectCamera(cameraIndex);
+                }
+            }
         } catch (Exception e) {
             Timber.tag(TAG).e(e, "Surface 생성 중 에러");
             isSurfaceReady = false;
@@ -620,8 +684,8 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
             Timber.tag(TAG).d("Surface 파괴됨 - 스트리밍 중지");
 
             // Surface가 파괴될 때 즉시 스트리밍 중지 (BufferQueue 에러 방지)
-            if (connectionManager != null && connectionManager.isConnected()) {
-                connectionManager.disconnect();
+            if (commandExecutor != null) {
+                commandExecutor.disconnectAndWait();
             }
         } catch (Exception e) {
             Timber.tag(TAG).e(e, "Surface 파괴 중 에러");
@@ -636,8 +700,36 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
         Timber.tag(TAG).i("=== Activity Pause - 스트리밍 중지 ===");
 
         // 백그라운드로 갈 때 스트리밍 중지 (배터리 절약 및 BufferQueue 에러 방지)
-        if (connectionManager != null && connectionManager.isConnected()) {
-            connectionManager.disconnect();
+        // UI 스레드를 막지 않음 - 렌더링 중지 대기는 뒤따르는 surfaceDestroyed에서
+        if (commandExecutor != null) {
+            commandExecutor.requestDisconnect();
+        }
+
+        if (mosaicController != null) {
+            mosaicController.hide();
+        }
+
+        if (prefetcher != null) {
+            prefetcher.clear();
+        }
+
+        if (healthSupervisor != null) {
+            healthSupervisor.unwatch();
+        }
+        parkedReconnectIndex = -1;
+
+        if (connectionManager != null) {
+            Timber.tag(TAG).i("스냅샷 저장 통계 - %s", connectionManager.getSnapshotStats());
+        }
+
+        // 전환 지연 통계 파일 저장 (연결 종료 뒤 명령 스레드에서)
+        if (commandExecutor != null) {
+            commandExecutor.requestTask(new Runnable() {
+                @Override
+                public void run() {
+                    latencyTracker.dump();
+                }
+            });
         }
     }
 
@@ -647,8 +739,56 @@ public class DataCollectionActivity extends Activity implements SurfaceHolder.Ca
 
         Timber.tag(TAG).i("=== Activity 종료 ===");
 
+        if (healthSupervisor != null) {
+            healthSupervisor.release();
+        }
+
+        if (mosaicController != null) {
+            mosaicController.release();
+        }
+
+        if (autoCollector != null) {
+            autoCollector.shutdown();
+        }
+
+        if (commandExecutor != null) {
+            commandExecutor.shutdown();
+        }
+
         if (connectionManager != null) {
             connectionManager.release();
         }
+
+        if (holeCountStore != null) {
+            holeCountStore.close();
+        }
+
+        if (statsWriter != null) {
+            statsWriter.shutdown();
+        }
+
+        if (manifest != null) {
+            manifest.close();
+        }
+
+        if (portReaper != null) {
+            portReaper.shutdown();
+        }
+
+        if (decodePolicy != null) {
+            decodePolicy.shutdown();
+        }
+
+        if (bufferSizer != null) {
+            bufferSizer.shutdown();
+        }
+
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+        }
+
+        if (sessionPool != null) {
+            sessionPool.shutdown();
+        }
     }
 }
@@ -0,0 +1,439 @@
+package com.geniecaddie.datacollection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.company.PlaySDK.Constants;
+import com.company.PlaySDK.IPlaySDK;
+import com.company.PlaySDK.IPlaySDKCallBack;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import timber.log.Timber;
+
+/**
+ * 디코딩 엔진 선택 정책 (하드웨어 우선, 소프트웨어 폴백)
+ * - 포맷(코덱 + 해상도)별로 하드웨어 디코딩 가능 여부와 소프트웨어 디코딩 스레드 수를 기억
+ * - 하드웨어: PLAYSetEngine 실패 시 즉시 소프트웨어로 전환,
+ *   재생 후 검증에서 프레임이 안 나오거나 디코딩 해상도가 스트림과 다르면(화면 깨짐)
+ *   해당 포맷을 소프트웨어 전용으로 기록 → Listener로 재연결을 요청해 바로 소프트웨어로 다시 열림
+ * - 소프트웨어: 포맷별 최초 1회, 실제 스트림 샘플(I-프레임부터 최대 SAMPLE_MAX_FRAMES)을 모아
+ *   화면 없는 포트에서 스레드 수 후보별 디코딩 속도를 측정하고 가장 빠른 값을 저장
+ *
+ * 저장 위치: SharedPreferences "decode_engine"
+ * - format/<스트림키>  → 마지막으로 본 포맷 키 (enc<코덱>_<가로>x<세로>)
+ * - engine/<포맷키>    → "SW"면 하드웨어 금지
+ * - threads/<포맷키>   → 소프트웨어 디코딩 스레드 수 (벤치마크 결과)
+ */
+public class DecodeEnginePolicy {
+    private static final String TAG = "DecodeEngine";
+
+    private static final String PREFS_NAME = "decode_engine";
+    private static final String KEY_FORMAT = "format/";
+    private static final String KEY_ENGINE = "engine/";
+    private static final String KEY_THREADS = "threads/";
+    private static final String ENGINE_SW = "SW";
+    private static final int DEMUX_TYPE_VIDEO = 1;
+
+    // === 기본값 ===
+    private static final int DEFAULT_MAIN_THREADS = 4;
+    private static final int DEFAULT_SUB_THREADS = 1;
+
+    // === 하드웨어 검증 ===
+    private static final long HW_VERIFY_DELAY_MS = 4000;
+
+    // === 벤치마크 ===
+    private static final int[] BENCHMARK_THREADS = {1, 2, 3, 4, 6, 8};
+    private static final int SAMPLE_MAX_FRAMES = 100;
+    private static final int SAMPLE_MAX_BYTES = 8 * 1024 * 1024;
+    private static final int BENCHMARK_BUF_SIZE = 2 * 1024 * 1024;
+    private static final int BENCHMARK_CHUNK_SIZE = 64 * 1024;
+    private static final long BENCHMARK_TIMEOUT_MS = 15 * 1000;
+    private static final long INPUT_RETRY_PARK_NS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    public interface Listener {
+        /** 재생 중인 스트림의 하드웨어 디코딩이 검증에 실패함 - 재연결하면 소프트웨어로 열림 (UI 스레드) */
+        void onHardwareDecodeBroken(String streamKey);
+    }
+
+    /**
+     * 포트에 적용할 디코딩 설정
+     */
+    public static class DecodeConfig {
+        final boolean hardware;
+        final int threads;
+
+        DecodeConfig(boolean hardware, int threads) {
+            this.hardware = hardware;
+            this.threads = threads;
+        }
+
+        public boolean isHardware() {
+            return hardware;
+        }
+
+        @Override
+        public String toString() {
+            return hardware ? "HW" : "SW x" + threads;
+        }
+    }
+
+    /**
+     * 재생 중인 스트림 1개의 관찰 상태 (demux 콜백 스레드에서 갱신)
+     */
+    public class StreamObserver implements IPlaySDKCallBack.fDemuxCBFun {
+        final int port;
+        final String streamKey;
+        final DecodeConfig config;
+        volatile boolean active = true;
+        volatile String formatKey;
+        volatile int streamWidth;
+        volatile int streamHeight;
+
+        // 벤치마크 샘플 (소프트웨어 + 미측정 포맷일 때만)
+        private byte[] sample;
+        private int sampleLength = 0;
+        private int sampleFrames = 0;
+        private boolean sampling = false;
+        private boolean benchmarkClaimed = false;
+        private volatile boolean benchmarkSubmitted = false;
+
+        StreamObserver(int port, String streamKey, DecodeConfig config) {
+            this.port = port;
+            this.streamKey = streamKey;
+            this.config = config;
+        }
+
+        @Override
+        public void invoke(int nPort, byte[] pFrameData, int datalen, byte[] pFrameBodyData, int bodylen,
+                           IPlaySDKCallBack.DEMUX_INFO demuxInfo, long pUserData) {
+            if (!active || demuxInfo == null || demuxInfo.type != DEMUX_TYPE_VIDEO) {
+                return;
+            }
+
+            if (formatKey == null && demuxInfo.width > 0 && demuxInfo.height > 0) {
+                streamWidth = demuxInfo.width;
+                streamHeight = demuxInfo.height;
+                formatKey = "enc" + demuxInfo.encode + "_" + demuxInfo.width + "x" + demuxInfo.height;
+                onFormatDetected(this);
+                if (!config.hardware && !prefs.contains(KEY_THREADS + formatKey) && claimBenchmark(formatKey)) {
+                    benchmarkClaimed = true;
+                    sample = new byte[SAMPLE_MAX_BYTES];
+                }
+            }
+
+            if (sample != null) {
+                collectSample(pFrameData, datalen);
+            }
+        }
+
+        /**
+         * I-프레임부터 프레임 단위로 샘플 수집, 다 모이면 벤치마크 실행
+         */
+        private void collectSample(byte[] frame, int length) {
+            if (!sampling) {
+                if (!StreamFeeder.isDhavFrame(frame, length) || !StreamFeeder.isResyncPoint(frame, length)) {
+                    return;
+                }
+                sampling = true;
+            }
+
+            if (sampleLength + length > sample.length || sampleFrames >= SAMPLE_MAX_FRAMES) {
+                final byte[] data = sample;
+                final int dataLength = sampleLength;
+                final int frames = sampleFrames;
+                final String key = formatKey;
+                sample = null;
+                benchmarkSubmitted = true;
+                scheduler.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        runBenchmark(key, data, dataLength, frames);
+                    }
+                });
+                return;
+            }
+
+            System.arraycopy(frame, 0, sample, sampleLength, length);
+            sampleLength += length;
+            sampleFrames++;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final boolean hardwareEnabled = CameraConfig.USE_HW_DECODE;
+    private String benchmarkingFormat = null;      // 동시에 벤치마크는 1개만
+
+    public DecodeEnginePolicy(Context context, Listener listener) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.listener = listener;
+    }
+
+    /**
+     * 스트림 키 (장비 + 채널 + 스트림 종류)
+     */
+    public static String streamKey(CameraInfo camera, boolean subStream) {
+        return camera.getEndpointKey() + "/" + camera.getChannel() + "/" + (subStream ? "sub" : "main");
+    }
+
+    /**
+     * 스트림에 사용할 디코딩 설정 선택 (마지막으로 본 포맷 기준)
+     */
+    public DecodeConfig select(String streamKey, boolean subStream) {
+        int threads = subStream ? DEFAULT_SUB_THREADS : DEFAULT_MAIN_THREADS;
+        boolean hardware = hardwareEnabled;
+
+        String formatKey = prefs.getString(KEY_FORMAT + streamKey, null);
+        if (formatKey != null) {
+            threads = prefs.getInt(KEY_THREADS + formatKey, threads);
+            if (ENGINE_SW.equals(prefs.getString(KEY_ENGINE + formatKey, null))) {
+                hardware = false;
+            }
+        }
+
+        DecodeConfig config = new DecodeConfig(hardware, threads);
+        Timber.tag(TAG).d("디코딩 설정 선택 - %s (%s): %s", streamKey, formatKey, config);
+        return config;
+    }
+
+    /**
+     * 포트에 디코딩 설정 적용 (PLAYPlay 전에 호출)
+     * 하드웨어 엔진 설정이 실패하면 그 자리에서 소프트웨어로 바꿔 적용
+     *
+     * @return 실제로 적용된 설정 (하드웨어 실패 시 소프트웨어 설정)
+     */
+    public DecodeConfig apply(int port, DecodeConfig config) {
+        if (config.hardware) {
+            if (IPlaySDK.PLAYSetEngine(port, Constants.DECODE_HW, Constants.RENDER_NOTSET) != 0) {
+                return config;
+            }
+            Timber.tag(TAG).w("하드웨어 디코딩 설정 실패 - 소프트웨어로 전환 (Port: %d)", port);
+            config = new DecodeConfig(false, config.threads);
+        }
+
+        IPlaySDK.PLAYSetEngine(port, Constants.DECODE_SW, Constants.RENDER_NOTSET);
+        if (IPlaySDK.PLAYSetDecodeThreadNum(port, config.threads) == 0) {
+            Timber.tag(TAG).w("디코딩 스레드 설정 실패 (비필수)");
+        }
+        return config;
+    }
+
+    /**
+     * 재생 시작 후 관찰 시작 (포맷 감지, 하드웨어 검증, 소프트웨어 벤치마크 샘플 수집)
+     */
+    public StreamObserver observe(int port, String streamKey, DecodeConfig config) {
+        StreamObserver observer = new StreamObserver(port, streamKey, config);
+        IPlaySDK.PLAYSetDemuxCallBack(port, observer, 0);
+
+        if (config.hardware) {
+            scheduleHardwareCheck(observer);
+        }
+        return observer;
+    }
+
+    /**
+     * 관찰 종료 (포트를 닫기 전에 호출)
+     */
+    public void stopObserving(StreamObserver observer) {
+        if (observer == null) {
+            return;
+        }
+        observer.active = false;
+        IPlaySDK.PLAYSetDemuxCallBack(observer.port, null, 0);
+
+        // 샘플이 다 모이기 전에 스트림이 끝났으면 다음 스트림이 벤치마크할 수 있도록 양보
+        if (observer.benchmarkClaimed && !observer.benchmarkSubmitted) {
+            finishBenchmark();
+        }
+    }
+
+    /**
+     * 해당 포맷 하드웨어 디코딩 금지 (화면 깨짐 등 외부에서 판단한 경우에도 사용)
+     */
+    public void markHardwareBroken(String formatKey, String reason) {
+        if (formatKey == null) {
+            return;
+        }
+        prefs.edit().putString(KEY_ENGINE + formatKey, ENGINE_SW).apply();
+        Timber.tag(TAG).w("하드웨어 디코딩 금지 - %s (%s) → 다음 연결부터 소프트웨어", formatKey, reason);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void onFormatDetected(StreamObserver observer) {
+        prefs.edit().putString(KEY_FORMAT + observer.streamKey, observer.formatKey).apply();
+        Timber.tag(TAG).i("스트림 포맷 감지 - %s: %s (%s)", observer.streamKey, observer.formatKey, observer.config);
+    }
+
+    private synchronized boolean claimBenchmark(String formatKey) {
+        if (benchmarkingFormat != null) {
+            return false;
+        }
+        benchmarkingFormat = formatKey;
+        return true;
+    }
+
+    private synchronized void finishBenchmark() {
+        benchmarkingFormat = null;
+    }
+
+    /**
+     * 하드웨어 디코딩 검증 - 데이터는 들어오는데 프레임이 안 나오거나 해상도가 다르면 실패
+     */
+    private void scheduleHardwareCheck(final StreamObserver observer) {
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!observer.active || observer.formatKey == null) {
+                    return;     // 이미 종료됐거나 데이터 자체가 없음 (네트워크 문제는 StreamHealthSupervisor 담당)
+                }
+
+                int frameRate = IPlaySDK.PLAYGetCurrentFrameRate(observer.port);
+                int[] width = new int[1];
+                int[] height = new int[1];
+                IPlaySDK.PLAYGetPictureSize(observer.port, width, height);
+
+                if (frameRate <= 0 || width[0] <= 0) {
+                    markHardwareBroken(observer.formatKey, "디코딩 프레임 없음");
+                } else if (width[0] != observer.streamWidth || height[0] != observer.streamHeight) {
+                    markHardwareBroken(observer.formatKey, String.format(Locale.US, "디코딩 해상도 불일치 %dx%d",
+                        width[0], height[0]));
+                } else {
+                    Timber.tag(TAG).d("하드웨어 디코딩 검증 통과 - %s, %dfps", observer.formatKey, frameRate);
+                    return;
+                }
+                requestSoftwareReconnect(observer);
+            }
+        }, HW_VERIFY_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 검증에 실패한 스트림이 아직 재생 중이면 재연결 요청 (다음 select에서 소프트웨어로 열림)
+     */
+    private void requestSoftwareReconnect(final StreamObserver observer) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!observer.active) {
+                    return;     // 그 사이 전환/종료됨 - 다음 연결은 이미 소프트웨어
+                }
+                Timber.tag(TAG).i("하드웨어 디코딩 실패 스트림 재연결 요청 - %s", observer.streamKey);
+                listener.onHardwareDecodeBroken(observer.streamKey);
+            }
+        });
+    }
+
+    /**
+     * 소프트웨어 디코딩 스레드 수 벤치마크 (scheduler 스레드)
+     */
+    private void runBenchmark(String formatKey, byte[] data, int length, int frames) {
+        try {
+            int cpuCount = Runtime.getRuntime().availableProcessors();
+            int bestThreads = 0;
+            long bestMs = Long.MAX_VALUE;
+
+            for (int threads : BENCHMARK_THREADS) {
+                if (threads > cpuCount || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                long elapsed = decodeOnce(data, length, frames, threads);
+                Timber.tag(TAG).d("벤치마크 %s - 스레드 %d: %dms", formatKey, threads, elapsed);
+
+                // 10% 이상 빨라질 때만 스레드를 늘림 (같으면 적은 쪽)
+                if (elapsed > 0 && elapsed * 10 < bestMs * 9) {
+                    bestMs = elapsed;
+                    bestThreads = threads;
+                }
+            }
+
+            if (bestThreads > 0) {
+                prefs.edit().putInt(KEY_THREADS + formatKey, bestThreads).apply();
+                Timber.tag(TAG).i("벤치마크 완료 - %s: 스레드 %d (%d프레임 %dms)",
+                    formatKey, bestThreads, frames, bestMs);
+            }
+        } finally {
+            finishBenchmark();
+        }
+    }
+
+    /**
+     * 화면 없는 포트로 샘플 전체를 디코딩하는 데 걸린 시간
+     *
+     * @return 소요 시간 (실패/시간 초과 시 -1)
+     */
+    private long decodeOnce(byte[] data, int length, int frames, int threads) {
+        int port = IPlaySDK.PLAYGetFreePort();
+        if (port < 0) {
+            return -1;
+        }
+
+        final AtomicInteger decoded = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        final int target = frames;
+        IPlaySDKCallBack.fCBDecode counter = new IPlaySDKCallBack.fCBDecode() {
+            @Override
+            public void invoke(int nPort, IPlaySDKCallBack.FRAME_DECODE_INFO decodeInfo,
+                               IPlaySDKCallBack.FRAME_INFO_EX frameInfo, long pUserData) {
+                if (frameInfo != null && frameInfo.nWidth > 0 && decoded.incrementAndGet() >= target) {
+                    done.countDown();
+                }
+            }
+        };
+
+        try {
+            IPlaySDK.PLAYSetStreamOpenMode(port, Constants.STREAME_FILE);
+            if (IPlaySDK.PLAYOpenStream(port, null, 0, BENCHMARK_BUF_SIZE) == 0) {
+                return -1;
+            }
+            IPlaySDK.PLAYSetEngine(port, Constants.DECODE_SW, Constants.RENDER_NOTSET);
+            IPlaySDK.PLAYSetDecodeThreadNum(port, threads);
+            IPlaySDK.PLAYSetDecodeCallBack(port, counter, 0);
+            if (IPlaySDK.PLAYPlay(port, (android.view.Surface) null) == 0) {
+                return -1;
+            }
+
+            long start = SystemClock.elapsedRealtime();
+            long deadline = start + BENCHMARK_TIMEOUT_MS;
+            byte[] chunk = new byte[BENCHMARK_CHUNK_SIZE];
+            int offset = 0;
+            while (offset < length && SystemClock.elapsedRealtime() < deadline) {
+                int size = Math.min(chunk.length, length - offset);
+                System.arraycopy(data, offset, chunk, 0, size);
+                if (IPlaySDK.PLAYInputData(port, chunk, size) != 0) {
+                    offset += size;
+                } else {
+                    LockSupport.parkNanos(INPUT_RETRY_PARK_NS);
+                }
+            }
+
+            long remaining = deadline - SystemClock.elapsedRealtime();
+            if (remaining <= 0 || !done.await(remaining, TimeUnit.MILLISECONDS)) {
+                Timber.tag(TAG).w("벤치마크 시간 초과 - 스레드 %d (%d/%d프레임)", threads, decoded.get(), frames);
+                return -1;
+            }
+            return SystemClock.elapsedRealtime() - start;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            // 화면에 연결되지 않은 포트이므로 격리 없이 바로 해제
+            IPlaySDK.PLAYStop(port);
+            IPlaySDK.PLAYCloseStream(port);
+            IPlaySDK.PLAYReleasePort(port);
+        }
+    }
+}
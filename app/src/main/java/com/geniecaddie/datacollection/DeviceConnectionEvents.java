@@ -0,0 +1,67 @@
+package com.geniecaddie.datacollection;
+
+import com.company.NetSDK.CB_fDisConnect;
+import com.company.NetSDK.CB_fHaveReConnect;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import timber.log.Timber;
+
+/**
+ * NetSDK 장비 연결 이벤트 중계
+ * INetSDK.Init / SetAutoReconnect 콜백은 프로세스 전역 1개뿐이므로
+ * DemoApplication에서 여기 콜백을 등록하고, 관심 있는 객체는 Listener로 구독
+ *
+ * 콜백은 NetSDK 내부 스레드에서 호출되므로 Listener는 오래 걸리는 작업을 하지 말 것
+ */
+public final class DeviceConnectionEvents {
+    private static final String TAG = "DeviceConnection";
+
+    /**
+     * 장비 연결 이벤트 리스너 (NetSDK 스레드에서 호출)
+     */
+    public interface Listener {
+        void onDeviceDisconnected(long loginHandle, String ip, int port);
+
+        void onDeviceReconnected(long loginHandle, String ip, int port);
+    }
+
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * INetSDK.Init 등록용 - 장비 연결 끊김
+     */
+    public static final CB_fDisConnect DISCONNECT_CALLBACK = new CB_fDisConnect() {
+        @Override
+        public void invoke(long loginHandle, String ip, int port) {
+            Timber.tag(TAG).w("장비 연결 끊김 - %s:%d, Handle: %d", ip, port, loginHandle);
+            for (Listener listener : listeners) {
+                listener.onDeviceDisconnected(loginHandle, ip, port);
+            }
+        }
+    };
+
+    /**
+     * INetSDK.SetAutoReconnect 등록용 - SDK 자동 재연결 성공
+     */
+    public static final CB_fHaveReConnect RECONNECT_CALLBACK = new CB_fHaveReConnect() {
+        @Override
+        public void invoke(long loginHandle, String ip, int port) {
+            Timber.tag(TAG).i("장비 자동 재연결 - %s:%d, Handle: %d", ip, port, loginHandle);
+            for (Listener listener : listeners) {
+                listener.onDeviceReconnected(loginHandle, ip, port);
+            }
+        }
+    };
+
+    private DeviceConnectionEvents() {
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
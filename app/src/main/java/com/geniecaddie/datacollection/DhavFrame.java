@@ -0,0 +1,73 @@
+package com.geniecaddie.datacollection;
+
+/**
+ * DHAV 프레임 헤더 (Dahua 원시 스트림) 읽기/쓰기
+ *
+ * 헤더 24바이트: 'DHAV'(4) 유형(1) 부유형(1) 채널(1) 서브프레임(1) 순번(4 LE) 전체 길이(4 LE)
+ *               날짜시간(4) 타임스탬프 ms(2 LE, 65536에서 순환) 확장 길이(1) 체크섬(1, 0~22바이트 합)
+ * 전체 길이는 헤더 + 확장 + 데이터 + 꼬리('dhav' + 길이 4바이트)
+ */
+final class DhavFrame {
+    static final int HEADER_SIZE = 24;
+    static final int STAMP_MASK = 0xFFFF;
+
+    private static final int TYPE_OFFSET = 4;
+    private static final int SEQ_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 12;
+    private static final int STAMP_OFFSET = 20;
+    private static final int CHECKSUM_OFFSET = 23;
+    private static final int TYPE_AUDIO = 0xF0;
+    private static final int TYPE_AUX = 0xF1;
+
+    private DhavFrame() {
+    }
+
+    static boolean isHeader(byte[] data, int offset, int length) {
+        return length - offset >= HEADER_SIZE
+            && data[offset] == 'D' && data[offset + 1] == 'H' && data[offset + 2] == 'A' && data[offset + 3] == 'V';
+    }
+
+    /**
+     * 프레임 전체 길이 (헤더 포함)
+     */
+    static int length(byte[] data, int offset) {
+        return readIntLE(data, offset + LENGTH_OFFSET);
+    }
+
+    static int stamp(byte[] data, int offset) {
+        return (data[offset + STAMP_OFFSET] & 0xFF) | (data[offset + STAMP_OFFSET + 1] & 0xFF) << 8;
+    }
+
+    /**
+     * 비디오 프레임 여부 (오디오/부가 정보 프레임 제외)
+     */
+    static boolean isVideo(byte[] data, int offset) {
+        int type = data[offset + TYPE_OFFSET] & 0xFF;
+        return type != TYPE_AUDIO && type != TYPE_AUX;
+    }
+
+    /**
+     * 순번/타임스탬프를 바꾸고 헤더 체크섬 재계산
+     */
+    static void restamp(byte[] data, int offset, int seq, int stamp) {
+        data[offset + SEQ_OFFSET] = (byte) seq;
+        data[offset + SEQ_OFFSET + 1] = (byte) (seq >> 8);
+        data[offset + SEQ_OFFSET + 2] = (byte) (seq >> 16);
+        data[offset + SEQ_OFFSET + 3] = (byte) (seq >> 24);
+        data[offset + STAMP_OFFSET] = (byte) stamp;
+        data[offset + STAMP_OFFSET + 1] = (byte) (stamp >> 8);
+
+        int sum = 0;
+        for (int i = 0; i < CHECKSUM_OFFSET; i++) {
+            sum += data[offset + i] & 0xFF;
+        }
+        data[offset + CHECKSUM_OFFSET] = (byte) sum;
+    }
+
+    private static int readIntLE(byte[] data, int offset) {
+        return (data[offset] & 0xFF)
+            | (data[offset + 1] & 0xFF) << 8
+            | (data[offset + 2] & 0xFF) << 16
+            | (data[offset + 3] & 0xFF) << 24;
+    }
+}
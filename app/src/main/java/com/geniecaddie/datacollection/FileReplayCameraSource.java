@@ -0,0 +1,296 @@
+package com.geniecaddie.datacollection;
+
+import android.os.Environment;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * 녹화 파일 재생 소스 (장비 없이 전환/캡처/분석 경로 부하 테스트용)
+ *
+ * 파일 위치: Download/<REPLAY_DIR>/
+ * - 카메라별: <카메라 이름>.dav / .h264 / .264 (서브 스트림은 <이름>_sub.* 우선)
+ * - 카메라별 파일이 없으면 폴더 안의 파일 중 하나를 이름 기준으로 고정 배정
+ *
+ * 재생 방식 (파일 끝에서 처음으로 돌아가 반복)
+ * - .dav (DHAV): 프레임 단위로 전달, 원본 타임스탬프 간격 / 배속으로 진행
+ *   반복 시에도 순번/타임스탬프가 계속 증가하도록 헤더를 다시 씀
+ * - .h264 / .264 (Annex-B): 비디오 NAL까지 묶어 한 프레임씩 25fps / 배속으로 전달
+ */
+public class FileReplayCameraSource extends LocalCameraSource {
+    private static final String TAG = "FileReplaySource";
+
+    private static final String[] EXTENSIONS = {".dav", ".h264", ".264"};
+    private static final String SUB_SUFFIX = "_sub";
+
+    // === 재생 간격 ===
+    private static final long NOMINAL_FRAME_MS = 40;                // 25fps (간격을 알 수 없을 때)
+    private static final long MAX_STAMP_GAP_MS = 5000;              // 이보다 긴 간격은 녹화 끊김으로 보고 무시
+
+    // === 버퍼 ===
+    private static final int MAX_DHAV_FRAME = 4 * 1024 * 1024;
+    private static final int MAX_RAW_FILE = 64 * 1024 * 1024;       // Annex-B 파일은 통째로 읽음
+
+    private final File replayDir;
+    private final float speed;
+
+    public FileReplayCameraSource(String dirName, float speed) {
+        this.replayDir = new File(Environment.getExternalStoragePublicDirectory(
+            Environment.DIRECTORY_DOWNLOADS), dirName);
+        this.speed = speed > 0 ? speed : 1.0f;
+    }
+
+    @Override
+    boolean hasSource(CameraInfo camera) {
+        return findFile(camera, false) != null;
+    }
+
+    @Override
+    Producer createProducer(CameraInfo camera, boolean subStream) {
+        final File file = findFile(camera, subStream);
+        if (file == null) {
+            Timber.tag(TAG).w("재생 파일 없음 - %s (%s)", camera.getName(), replayDir.getAbsolutePath());
+            return null;
+        }
+
+        Timber.tag(TAG).i("%s%s ← %s (%.1f배속)", camera.getName(), subStream ? " (서브)" : "",
+            file.getName(), speed);
+        if (file.getName().toLowerCase(Locale.US).endsWith(".dav")) {
+            return new Producer() {
+                @Override
+                public void run(long streamHandle, DataSink sink) throws Exception {
+                    replayDhav(file, streamHandle, sink);
+                }
+            };
+        }
+        return new Producer() {
+            @Override
+            public void run(long streamHandle, DataSink sink) throws Exception {
+                replayAnnexB(file, streamHandle, sink);
+            }
+        };
+    }
+
+    // ========== 파일 선택 ==========
+
+    private File findFile(CameraInfo camera, boolean subStream) {
+        if (subStream) {
+            File sub = findNamed(camera.getName() + SUB_SUFFIX);
+            if (sub != null) {
+                return sub;
+            }
+        }
+        File named = findNamed(camera.getName());
+        if (named != null) {
+            return named;
+        }
+
+        // 카메라별 파일이 없으면 같은 카메라가 항상 같은 파일을 받도록 이름 해시로 배정
+        File[] files = replayDir.listFiles();
+        if (files == null) {
+            return null;
+        }
+        List<File> candidates = new ArrayList<>();
+        for (File file : files) {
+            if (file.isFile() && hasReplayExtension(file.getName())) {
+                candidates.add(file);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        File[] sorted = candidates.toArray(new File[0]);
+        Arrays.sort(sorted);
+        return sorted[Math.floorMod(camera.getName().hashCode(), sorted.length)];
+    }
+
+    private File findNamed(String baseName) {
+        for (String extension : EXTENSIONS) {
+            File file = new File(replayDir, baseName + extension);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasReplayExtension(String name) {
+        String lower = name.toLowerCase(Locale.US);
+        for (String extension : EXTENSIONS) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========== DHAV 재생 ==========
+
+    private void replayDhav(File file, long streamHandle, DataSink sink) throws IOException, InterruptedException {
+        byte[] frame = new byte[MAX_DHAV_FRAME];
+        int outSeq = 0;
+        int outStamp = 0;
+        long nextDueNs = System.nanoTime();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            int lastStamp = -1;
+            int frameCount = 0;
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    int length = readDhavFrame(in, frame);
+                    if (length < 0) {
+                        break;      // 파일 끝
+                    }
+
+                    // 비디오 프레임 간격만큼 진행 (오디오/부가 정보는 바로 뒤따라 보냄)
+                    if (DhavFrame.isVideo(frame, 0)) {
+                        int stamp = DhavFrame.stamp(frame, 0);
+                        long deltaMs = lastStamp < 0 ? NOMINAL_FRAME_MS : (stamp - lastStamp) & DhavFrame.STAMP_MASK;
+                        if (deltaMs > MAX_STAMP_GAP_MS) {
+                            deltaMs = NOMINAL_FRAME_MS;
+                        }
+                        lastStamp = stamp;
+                        if (frameCount > 0 || outSeq > 0) {
+                            outStamp = (int) ((outStamp + deltaMs) & DhavFrame.STAMP_MASK);
+                            nextDueNs += (long) (deltaMs * 1_000_000L / speed);
+                            sleepUntil(nextDueNs);
+                        }
+                    }
+
+                    DhavFrame.restamp(frame, 0, outSeq++, outStamp);
+                    sink.onData(streamHandle, frame, length);
+                    frameCount++;
+                }
+            }
+
+            if (frameCount == 0) {
+                Timber.tag(TAG).w("DHAV 프레임 없음 - %s", file.getName());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 다음 DHAV 프레임을 frame 앞쪽에 읽음 (헤더가 어긋나면 다음 'DHAV'까지 건너뜀)
+     *
+     * @return 프레임 길이, 파일 끝이면 -1
+     */
+    private static int readDhavFrame(DataInputStream in, byte[] frame) throws IOException {
+        try {
+            while (true) {
+                in.readFully(frame, 0, DhavFrame.HEADER_SIZE);
+                while (!DhavFrame.isHeader(frame, 0, DhavFrame.HEADER_SIZE)) {
+                    System.arraycopy(frame, 1, frame, 0, DhavFrame.HEADER_SIZE - 1);
+                    in.readFully(frame, DhavFrame.HEADER_SIZE - 1, 1);
+                }
+
+                int length = DhavFrame.length(frame, 0);
+                if (length < DhavFrame.HEADER_SIZE || length > frame.length) {
+                    Timber.tag(TAG).w("비정상 DHAV 프레임 길이 %d - 건너뜀", length);
+                    continue;
+                }
+                in.readFully(frame, DhavFrame.HEADER_SIZE, length - DhavFrame.HEADER_SIZE);
+                return length;
+            }
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    // ========== Annex-B (H.264) 재생 ==========
+
+    private void replayAnnexB(File file, long streamHandle, DataSink sink) throws IOException, InterruptedException {
+        byte[] data = readAll(file);
+        List<int[]> frames = splitAccessUnits(data);
+        if (frames.isEmpty()) {
+            Timber.tag(TAG).w("H.264 프레임 없음 - %s", file.getName());
+            return;
+        }
+
+        int maxFrame = 0;
+        for (int[] frame : frames) {
+            maxFrame = Math.max(maxFrame, frame[1]);
+        }
+        byte[] scratch = new byte[maxFrame];    // sink는 복사 후 반환하므로 재사용
+
+        long intervalNs = (long) (NOMINAL_FRAME_MS * 1_000_000L / speed);
+        long nextDueNs = System.nanoTime();
+        while (true) {
+            for (int[] frame : frames) {
+                sleepUntil(nextDueNs);
+                nextDueNs += intervalNs;
+                System.arraycopy(data, frame[0], scratch, 0, frame[1]);
+                sink.onData(streamHandle, scratch, frame[1]);
+            }
+        }
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        int length = (int) Math.min(file.length(), MAX_RAW_FILE);
+        byte[] data = new byte[length];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < length) {
+                int n = in.read(data, read, length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            return read == length ? data : Arrays.copyOf(data, read);
+        }
+    }
+
+    /**
+     * 시작 코드 기준으로 나누고 비디오 NAL(1: 일반, 5: IDR)까지를 한 프레임으로 묶음
+     * SPS/PPS/SEI는 뒤따르는 비디오 NAL과 같은 프레임으로 전달됨
+     *
+     * @return {시작 위치, 길이} 목록
+     */
+    static List<int[]> splitAccessUnits(byte[] data) {
+        List<int[]> frames = new ArrayList<>();
+        int unitStart = -1;
+        int i = nextStartCode(data, 0);
+        while (i >= 0) {
+            if (unitStart < 0) {
+                unitStart = i;
+            }
+            int payload = data[i + 2] == 1 ? i + 3 : i + 4;
+            int next = nextStartCode(data, payload);
+            int nalType = payload < data.length ? data[payload] & 0x1F : 0;
+            if (nalType == 1 || nalType == 5) {
+                int end = next < 0 ? data.length : next;
+                frames.add(new int[]{unitStart, end - unitStart});
+                unitStart = -1;
+            }
+            i = next;
+        }
+        return frames;
+    }
+
+    private static int nextStartCode(byte[] data, int from) {
+        for (int i = from; i + 3 < data.length; i++) {
+            if (data[i] == 0 && data[i + 1] == 0) {
+                if (data[i + 2] == 1) {
+                    return i;
+                }
+                if (data[i + 2] == 0 && data[i + 3] == 1) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
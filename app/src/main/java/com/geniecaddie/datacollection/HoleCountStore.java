@@ -0,0 +1,368 @@
+package com.geniecaddie.datacollection;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import timber.log.Timber;
+
+/**
+ * 홀별 일일 수집 개수 저장소 (날짜별 고정 레이아웃 메모리 맵 파일)
+ * - 위치: GolfBallImages/yyyyMMdd/hole_counts.bin (날짜 폴더를 지우면 함께 초기화)
+ * - 캡처마다 카운터 1개 + CRC만 갱신 (O(1)) → 시작 시 폴더 목록/파일명 파싱 없음
+ * - 파일이 없거나 CRC가 맞지 않을 때만 백그라운드에서 재구성
+ *   (캡처 목록 → 없으면 예전 방식 파일명 스캔), 끝나면 UI 스레드에서 Listener 호출
+ * - 캡처는 목록에 먼저 기록된 뒤 increment되므로, 재구성 중 들어온 캡처는
+ *   스캔에서 본 일련번호가 아닌 것만 결과에 더함 (이중 집계 방지)
+ * - 메모리 맵 쓰기는 프로세스가 죽어도 페이지 캐시에 남음, 동기화는 닫을 때만
+ *   (카운터와 CRC 사이에서 전원이 꺼지면 CRC 불일치 → 다음 실행에서 재구성)
+ *
+ * 레이아웃 (88바이트, 리틀 엔디언)
+ *   0 int MAGIC   4 short VERSION   6 short 카운터 수   8 int 날짜(yyyyMMdd)
+ *   12 int[18] 카운터 (카메라 인덱스 순서: 1W, 1L, 2W ... 9L)   84 int CRC32(0~83)
+ *
+ * UI 스레드 / 재구성 스레드에서 호출되므로 공개 메서드는 동기화
+ */
+public class HoleCountStore {
+    private static final String TAG = "HoleCountStore";
+
+    // === 파일 형식 ===
+    public static final String FILE_NAME = "hole_counts.bin";
+    private static final int MAGIC = 0x43484347;                    // "GCHC"
+    private static final short VERSION = 1;
+    private static final int HOLE_COUNT = 9;
+    private static final int COUNTER_COUNT = HOLE_COUNT * 2;
+    private static final int COUNTERS_OFFSET = 12;
+    private static final int CRC_OFFSET = COUNTERS_OFFSET + COUNTER_COUNT * 4;
+    private static final int FILE_SIZE = CRC_OFFSET + 4;
+
+    public interface Listener {
+        /** 재구성이 끝나 카운트가 바뀜 (UI 스레드) */
+        void onHoleCountsRebuilt();
+    }
+
+    private final File rootDir;
+    private final CaptureManifest manifest;
+    private final Listener listener;
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 열린 날짜 파일 (this로 동기화)
+    private String day;
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private final byte[] crcBytes = new byte[CRC_OFFSET];
+    private final CRC32 crc = new CRC32();
+
+    // 재구성 중 들어온 캡처 {카운터 인덱스, 일련번호} (스캔에 없던 것만 재구성 결과에 더함)
+    private boolean rebuilding = false;
+    private final List<int[]> pending = new ArrayList<>();
+
+    /**
+     * 스캔 결과 - 홀별 개수 + 집계에 포함된 캡처 일련번호
+     */
+    private static class ScanResult {
+        final int[] counts = new int[COUNTER_COUNT];
+        final Set<Integer> sequences = new HashSet<>();
+    }
+
+    public HoleCountStore(File rootDir, CaptureManifest manifest, Listener listener) {
+        this.rootDir = rootDir;
+        this.manifest = manifest;
+        this.listener = listener;
+    }
+
+    /**
+     * 오늘 날짜 파일 열기 (없거나 손상됐으면 백그라운드 재구성 시작)
+     */
+    public synchronized void load() {
+        openToday(true);
+    }
+
+    /**
+     * 캡처 1건 추가 (캡처 목록에 기록된 뒤 호출)
+     *
+     * @return 증가 후 개수, 알 수 없는 홀이면 -1
+     */
+    public synchronized int increment(CaptureManifest.Entry entry) {
+        int index = indexOf(entry.holeKey);
+        if (index < 0) {
+            return -1;
+        }
+        openToday(false);
+        if (rebuilding) {
+            pending.add(new int[] {index, entry.sequence});
+        }
+        if (buffer == null) {
+            return -1;
+        }
+        int count = buffer.getInt(COUNTERS_OFFSET + index * 4) + 1;
+        buffer.putInt(COUNTERS_OFFSET + index * 4, count);
+        updateCrc();
+        return count;
+    }
+
+    /**
+     * 오늘 홀별 개수 복사본 ("5W" → 개수, 18개 홀 모두 포함)
+     */
+    public synchronized Map<String, Integer> snapshot() {
+        openToday(false);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            counts.put(keyOf(i), buffer != null ? buffer.getInt(COUNTERS_OFFSET + i * 4) : 0);
+        }
+        return counts;
+    }
+
+    public synchronized boolean isRebuilding() {
+        return rebuilding;
+    }
+
+    public void close() {
+        rebuilder.shutdownNow();
+        synchronized (this) {
+            closeFile();
+            day = null;
+        }
+    }
+
+    /**
+     * 날짜가 바뀌었으면 새 날짜 파일로 (앱 실행 중 넘어간 날짜는 모든 캡처가 increment를 거치므로 재구성하지 않음)
+     */
+    private void openToday(boolean rebuildIfInvalid) {
+        String today = CaptureManifest.dayOf(System.currentTimeMillis());
+        if (today.equals(day) && buffer != null) {
+            return;
+        }
+        closeFile();
+        day = today;
+
+        File target = new File(new File(rootDir, today), FILE_NAME);
+        boolean existed = target.exists();
+        try {
+            File dir = target.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                throw new IOException("날짜 폴더 생성 실패: " + dir.getAbsolutePath());
+            }
+            file = new RandomAccessFile(target, "rw");
+            boolean valid = existed && file.length() == FILE_SIZE;
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            valid = valid && isValid(today);
+            if (valid) {
+                Timber.tag(TAG).d("홀별 개수 열기 - %s", today);
+                return;
+            }
+
+            if (existed) {
+                Timber.tag(TAG).w("홀별 개수 파일 손상 - %s 재구성", today);
+            }
+            reset(today);
+            if (rebuildIfInvalid) {
+                startRebuild(today);
+            }
+        } catch (IOException e) {
+            Timber.tag(TAG).e(e, "홀별 개수 파일 열기 실패 - %s", today);
+            closeFile();
+        }
+    }
+
+    private boolean isValid(String expectedDay) {
+        return buffer.getInt(0) == MAGIC
+            && buffer.getShort(4) == VERSION
+            && buffer.getShort(6) == COUNTER_COUNT
+            && buffer.getInt(8) == Integer.parseInt(expectedDay)
+            && buffer.getInt(CRC_OFFSET) == computeCrc();
+    }
+
+    /**
+     * 헤더 기록 + 카운터 0
+     */
+    private void reset(String today) {
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) COUNTER_COUNT);
+        buffer.putInt(8, Integer.parseInt(today));
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            buffer.putInt(COUNTERS_OFFSET + i * 4, 0);
+        }
+        updateCrc();
+    }
+
+    /**
+     * 디스크 스캔은 잠금 밖에서, 결과 반영은 잠금 안에서
+     * 그 사이 캡처는 pending에 모아 두고 스캔이 이미 센 일련번호는 빼고 더함
+     */
+    private void startRebuild(final String rebuildDay) {
+        rebuilding = true;
+        pending.clear();
+        rebuilder.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.currentTimeMillis();
+                ScanResult scan = scanDay(rebuildDay);
+                int merged = 0;
+                synchronized (HoleCountStore.this) {
+                    rebuilding = false;
+                    if (!rebuildDay.equals(day) || buffer == null) {
+                        pending.clear();
+                        return;     // 재구성 중 날짜가 바뀜
+                    }
+                    for (int[] capture : pending) {
+                        if (!scan.sequences.contains(capture[1])) {
+                            scan.counts[capture[0]]++;
+                            merged++;
+                        }
+                    }
+                    pending.clear();
+                    for (int i = 0; i < COUNTER_COUNT; i++) {
+                        buffer.putInt(COUNTERS_OFFSET + i * 4, scan.counts[i]);
+                    }
+                    updateCrc();
+                }
+                Timber.tag(TAG).i("홀별 개수 재구성 완료 - %s (%dms, 스캔 후 캡처 %d건)",
+                    rebuildDay, System.currentTimeMillis() - start, merged);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onHoleCountsRebuilt();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 날짜 폴더의 홀별 개수 (캡처 목록이 있으면 목록에서, 없으면 파일명 스캔)
+     */
+    private ScanResult scanDay(String scanDay) {
+        ScanResult result = new ScanResult();
+        int[] counts = result.counts;
+        try (CaptureManifest.Reader reader = CaptureManifest.Reader.open(manifest.fileFor(scanDay))) {
+            if (reader != null) {
+                CaptureManifest.Entry entry = new CaptureManifest.Entry();
+                for (int i = 0; i < reader.count(); i++) {
+                    reader.get(i, entry);
+                    result.sequences.add(entry.sequence);
+                    int index = indexOf(entry.holeKey);
+                    if (index >= 0) {
+                        counts[index]++;
+                    }
+                }
+                return result;
+            }
+        } catch (IOException e) {
+            Timber.tag(TAG).w("캡처 목록 읽기 실패 - 파일명 스캔으로 대체: %s", e.getMessage());
+        }
+
+        // 캡처 목록 도입 전 폴더
+        File[] files = new File(rootDir, scanDay).listFiles();
+        if (files == null) {
+            return result;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!file.isFile() || !name.toLowerCase().endsWith(".jpg")) {
+                continue;
+            }
+            int index = indexOf(holeKeyOfFileName(name));
+            if (index >= 0) {
+                counts[index]++;
+                int sequence = sequenceOfFileName(name);
+                if (sequence >= 0) {
+                    result.sequences.add(sequence);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 파일명에서 일련번호 ("20250111_143022_0007_5W.jpg" -> 7), 예전 형식이면 -1
+     */
+    static int sequenceOfFileName(String fileName) {
+        String[] parts = fileName.split("_");
+        if (parts.length != 4) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 파일명에서 홀 정보 ("20250111_143022_5W.jpg" / "20250111_143022_0007_5W.jpg" -> "5W")
+     */
+    static String holeKeyOfFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        int underscore = fileName.lastIndexOf('_');
+        if (dot < 0 || underscore < 0 || underscore > dot) {
+            return null;
+        }
+        return fileName.substring(underscore + 1, dot);
+    }
+
+    /**
+     * "5W" → 4 (카메라 인덱스와 같은 순서), 알 수 없으면 -1
+     */
+    static int indexOf(String holeKey) {
+        if (holeKey == null || holeKey.length() != 2) {
+            return -1;
+        }
+        int hole = holeKey.charAt(0) - '0';
+        char tee = holeKey.charAt(1);
+        if (hole < 1 || hole > HOLE_COUNT || (tee != 'W' && tee != 'L')) {
+            return -1;
+        }
+        return (hole - 1) * 2 + (tee == 'W' ? 0 : 1);
+    }
+
+    private static String keyOf(int index) {
+        return (index / 2 + 1) + (index % 2 == 0 ? "W" : "L");
+    }
+
+    private void updateCrc() {
+        buffer.putInt(CRC_OFFSET, computeCrc());
+    }
+
+    private int computeCrc() {
+        for (int i = 0; i < CRC_OFFSET; i++) {
+            crcBytes[i] = buffer.get(i);
+        }
+        crc.reset();
+        crc.update(crcBytes, 0, CRC_OFFSET);
+        return (int) crc.getValue();
+    }
+
+    private void closeFile() {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // 무시
+            }
+            file = null;
+        }
+    }
+}
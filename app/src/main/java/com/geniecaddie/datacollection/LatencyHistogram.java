@@ -0,0 +1,91 @@
+package com.geniecaddie.datacollection;
+
+/**
+ * 지연 시간 히스토그램 (기하 간격 버킷, 메모리 고정)
+ * - 버킷 경계는 1ms부터 10%씩 증가 → 백분위 오차 10% 이내
+ * - 상한(MAX_MS)을 넘는 값은 마지막 버킷에 누적
+ *
+ * 스레드 안전하지 않음 (호출자가 동기화)
+ */
+public class LatencyHistogram {
+    private static final double GROWTH = 1.1;
+    private static final long MAX_MS = 60 * 1000;
+    private static final long[] BOUNDS = buildBounds();
+
+    private final long[] counts = new long[BOUNDS.length];
+    private long total = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    private static long[] buildBounds() {
+        int size = 0;
+        for (double bound = 1; bound < MAX_MS; bound = Math.max(bound + 1, bound * GROWTH)) {
+            size++;
+        }
+
+        long[] bounds = new long[size + 1];
+        double bound = 1;
+        for (int i = 0; i < size; i++) {
+            bounds[i] = (long) bound;
+            bound = Math.max(bound + 1, bound * GROWTH);
+        }
+        bounds[size] = Long.MAX_VALUE;
+        return bounds;
+    }
+
+    public void record(long valueMs) {
+        if (valueMs < 0) {
+            return;
+        }
+
+        int low = 0;
+        int high = BOUNDS.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (BOUNDS[mid] >= valueMs) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        counts[low]++;
+        total++;
+        sum += valueMs;
+        max = Math.max(max, valueMs);
+    }
+
+    /**
+     * 백분위 값 (해당 버킷의 상한, 최대값을 넘지 않음)
+     *
+     * @param percentile 0~100
+     * @return ms (기록 없으면 -1)
+     */
+    public long percentile(double percentile) {
+        if (total == 0) {
+            return -1;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(BOUNDS[i], max);
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public long getMean() {
+        return total > 0 ? sum / total : -1;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
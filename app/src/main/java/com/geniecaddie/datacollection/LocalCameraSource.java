@@ -0,0 +1,129 @@
+package com.geniecaddie.datacollection;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * 장비 없이 단말 안에서 스트림을 만드는 소스의 공통 부분
+ * - 세션: 가짜 핸들만 발급 (keepalive는 항상 성공)
+ * - 스트림: 스트림마다 전용 스레드에서 Producer 실행, 중지 시 인터럽트 후 합류
+ * - 스냅샷: 지원하지 않음 → CameraConnectionManager가 디코딩 프레임으로 캡처
+ */
+abstract class LocalCameraSource implements CameraSource {
+    private static final String TAG = "LocalCameraSource";
+
+    private static final long STOP_JOIN_MS = 500;
+
+    // 소스 오류 코드 (getLastError)
+    static final int ERROR_NO_SOURCE = 1;
+    static final int ERROR_STREAM_FAILED = 2;
+
+    /**
+     * 스트림 데이터 생성 (전용 스레드에서 실행, 인터럽트되면 반환)
+     */
+    interface Producer {
+        void run(long streamHandle, DataSink sink) throws Exception;
+    }
+
+    private final AtomicLong nextHandle = new AtomicLong(1);
+    private final Map<Long, Thread> streams = new ConcurrentHashMap<>();
+    private volatile int lastError;
+
+    /**
+     * 카메라에 재생할 데이터가 있는지
+     */
+    abstract boolean hasSource(CameraInfo camera);
+
+    /**
+     * 스트림 생성기 준비 (실패 시 null)
+     */
+    abstract Producer createProducer(CameraInfo camera, boolean subStream);
+
+    @Override
+    public long login(CameraInfo camera) {
+        if (!hasSource(camera)) {
+            lastError = ERROR_NO_SOURCE;
+            Timber.tag(TAG).w("%s - 재생할 데이터 없음", camera.getName());
+            return 0;
+        }
+        return nextHandle.getAndIncrement();
+    }
+
+    @Override
+    public void logout(long sessionHandle) {
+    }
+
+    @Override
+    public boolean isAlive(long sessionHandle) {
+        return true;
+    }
+
+    @Override
+    public long startStream(long sessionHandle, final CameraInfo camera, boolean subStream, final DataSink sink) {
+        final Producer producer = createProducer(camera, subStream);
+        if (producer == null) {
+            lastError = ERROR_STREAM_FAILED;
+            return 0;
+        }
+
+        final long streamHandle = nextHandle.getAndIncrement();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    producer.run(streamHandle, sink);
+                } catch (InterruptedException e) {
+                    // 정상 중지
+                } catch (Exception e) {
+                    Timber.tag(TAG).e(e, "%s 스트림 생성 중 예외 발생", camera.getName());
+                }
+            }
+        }, "LocalStream-" + camera.getName() + (subStream ? "-sub" : ""));
+        streams.put(streamHandle, thread);
+        thread.start();
+        return streamHandle;
+    }
+
+    @Override
+    public void stopStream(long streamHandle) {
+        Thread thread = streams.remove(streamHandle);
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(STOP_JOIN_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            Timber.tag(TAG).w("%s 중지 대기 시간 초과", thread.getName());
+        }
+    }
+
+    @Override
+    public boolean snapshot(long sessionHandle, CameraInfo camera, String filePath) {
+        return false;
+    }
+
+    @Override
+    public int getLastError() {
+        return lastError;
+    }
+
+    /**
+     * 지정 시각(System.nanoTime 기준)까지 대기 (인터럽트되면 InterruptedException)
+     * 절대 시각으로 진행하므로 전달 시간이 쌓여도 재생 속도가 밀리지 않음
+     */
+    static void sleepUntil(long dueNs) throws InterruptedException {
+        long waitNs = dueNs - System.nanoTime();
+        if (waitNs > 0) {
+            Thread.sleep(waitNs / 1_000_000L, (int) (waitNs % 1_000_000L));
+        } else if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+}
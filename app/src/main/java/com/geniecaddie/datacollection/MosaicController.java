@@ -0,0 +1,531 @@
+package com.geniecaddie.datacollection;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.View;
+import android.widget.GridLayout;
+
+import com.company.PlaySDK.IPlaySDK;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * 멀티 카메라 모자이크 뷰 (2x2 / 3x3 / 18분할)
+ * - 타일마다 SurfaceView + 전용 PlaySDK 포트로 서브 스트림 디코딩
+ * - 로그인은 CameraSessionPool 세션을 공유 (타일 표시/승격 시 재로그인 없음)
+ *   승격한 타일의 세션 참조는 단일 화면 연결이 세션을 잡을 때까지 유지 (releasePromotedSession)
+ * - 배치 전환/숨김 시 이전 타일은 worker에서 모두 정지한 뒤에 View를 제거 (Surface 파괴 전 렌더링 정지)
+ * - 디코딩 예산 스케줄러: 전체 디코딩 픽셀/초 상한을 넘으면
+ *   포커스가 아닌 타일부터 I-프레임 전용 모드로 낮춤
+ *
+ * 모든 스트림(CameraSource)/PlaySDK 호출은 worker 스레드 하나에서만 수행됨
+ */
+public class MosaicController {
+    private static final String TAG = "MosaicController";
+
+    /**
+     * 모자이크 배치
+     */
+    public enum Layout {
+        GRID_2X2(2, 2),
+        GRID_3X3(3, 3),
+        GRID_18(6, 3);
+
+        final int columns;
+        final int rows;
+
+        Layout(int columns, int rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        int capacity() {
+            return columns * rows;
+        }
+    }
+
+    /**
+     * 타일 선택 리스너 (UI 스레드에서 호출)
+     */
+    public interface Listener {
+        void onTileSelected(int cameraIndex);
+    }
+
+    // === 디코딩 예산 ===
+    private static final long MAX_DECODED_PIXELS_PER_SEC = 1920L * 1080 * 30;   // 1080p30 1개 분량
+    private static final long DEFAULT_TILE_FRAME_PIXELS = 704L * 576;           // 서브 스트림 측정 전 가정치 (D1)
+    private static final int DEFAULT_TILE_FRAME_RATE = 25;
+    private static final int KEY_FRAME_FPS_ESTIMATE = 1;                        // I-프레임 전용 시 초당 프레임 추정
+    private static final long BUDGET_INTERVAL_MS = 2000;
+
+    // === 타일 스트림 ===
+    private static final int TILE_STREAM_BUF_SIZE = 512 * 1024;
+    private static final int TILE_RING_CAPACITY = 512 * 1024;
+    private static final int TILE_MAX_CHUNK_SIZE = 256 * 1024;
+    private static final int TILE_DECODE_THREADS = 1;
+    private static final long TILE_STOP_WAIT_MS = 2000;
+    private static final long RELEASE_WAIT_MS = 3000;           // 해제 시 타일 정지 대기 상한
+
+    /**
+     * 모자이크 타일 1개
+     */
+    private class Tile implements SurfaceHolder.Callback {
+        final int cameraIndex;
+        final CameraInfo camera;
+        final SurfaceView surfaceView;
+        final StreamFeeder feeder = new StreamFeeder(TILE_RING_CAPACITY, TILE_MAX_CHUNK_SIZE);
+
+        // worker 스레드 전용
+        int port = -1;
+        long loginHandle = 0;
+        volatile long realHandle = 0;
+        volatile CameraSource.DataSink activeSink;      // 현재 스트림의 sink (이전 스트림 데이터 걸러냄)
+        volatile boolean keepSession = false;           // 정지 시 세션 참조를 promotedCamera로 넘김
+        volatile boolean closed = false;                // 닫는 묶음에 들어감 - 늦게 온 surfaceCreated로 다시 시작하지 않음
+        long framePixels = DEFAULT_TILE_FRAME_PIXELS;
+        int frameRate = DEFAULT_TILE_FRAME_RATE;        // 전체 디코딩 중 마지막으로 잰 값 (I-프레임 전용 중에는 유지)
+        long rateMeasurableAt = 0;                      // 모드 전환 직후 측정값은 이전 모드가 섞이므로 이 시각 이후만 사용
+
+        Tile(int cameraIndex, SurfaceView surfaceView) {
+            this.cameraIndex = cameraIndex;
+            this.camera = CameraConfig.getCamera(cameraIndex);
+            this.surfaceView = surfaceView;
+        }
+
+        @Override
+        public void surfaceCreated(SurfaceHolder holder) {
+            try {
+                worker.execute(() -> startTile(this));
+            } catch (RejectedExecutionException e) {
+                // 종료됨
+            }
+        }
+
+        @Override
+        public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        }
+
+        @Override
+        public void surfaceDestroyed(SurfaceHolder holder) {
+            // Surface가 사라지기 전에 렌더링을 멈춰야 하므로 완료까지 대기
+            try {
+                waitFor(worker.submit(() -> stopTile(this)));
+            } catch (RejectedExecutionException e) {
+                // 종료됨 - release()에서 이미 정지
+            }
+        }
+    }
+
+    private final Context context;
+    private final GridLayout container;
+    private final CameraSessionPool sessionPool;
+    private final CameraSource source;
+    private final PlayPortReaper portReaper;
+    private final Listener listener;
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Tile> tiles = new CopyOnWriteArrayList<>();   // UI 스레드에서 구성, worker는 순회만
+    private ScheduledFuture<?> budgetTask;
+    private volatile int focusedCameraIndex = -1;
+    private Layout currentLayout = null;
+    private int anchorIndex = 0;
+    private int closingBatches = 0;                 // 정지 중인 이전 타일 묶음 수 (UI 스레드)
+    private CameraInfo promotedCamera;              // 승격 타일에서 넘겨받은 세션 참조 (worker 스레드)
+
+    public MosaicController(Context context, GridLayout container, CameraSessionPool sessionPool,
+                            CameraSource source, PlayPortReaper portReaper, Listener listener) {
+        this.context = context;
+        this.container = container;
+        this.sessionPool = sessionPool;
+        this.source = source;
+        this.portReaper = portReaper;
+        this.listener = listener;
+    }
+
+    /**
+     * 모자이크 표시 (UI 스레드)
+     *
+     * @param layout      배치
+     * @param anchorIndex 기준 카메라 인덱스 (해당 카메라가 포함된 페이지를 표시, 포커스 타일)
+     */
+    public void show(Layout layout, int anchorIndex) {
+        currentLayout = layout;
+        this.anchorIndex = anchorIndex;
+        focusedCameraIndex = anchorIndex;
+
+        // 이전 배치 타일이 있으면 정지가 끝난 뒤에 새 타일 구성 (closeTiles 완료 콜백)
+        closeTiles();
+        if (closingBatches == 0) {
+            buildTiles();
+        }
+
+        if (budgetTask == null) {
+            budgetTask = worker.scheduleWithFixedDelay(this::rebalance,
+                BUDGET_INTERVAL_MS, BUDGET_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 현재 배치로 타일 구성 (UI 스레드, 이전 타일 View는 모두 제거된 상태)
+     */
+    private void buildTiles() {
+        Layout layout = currentLayout;
+        int pageStart = (anchorIndex / layout.capacity()) * layout.capacity();
+        int pageEnd = Math.min(pageStart + layout.capacity(), CameraConfig.getCameraCount());
+
+        container.removeAllViews();
+        container.setColumnCount(layout.columns);
+        container.setRowCount(layout.rows);
+
+        for (int index = pageStart; index < pageEnd; index++) {
+            int position = index - pageStart;
+            SurfaceView surfaceView = new SurfaceView(context);
+
+            GridLayout.LayoutParams params = new GridLayout.LayoutParams(
+                GridLayout.spec(position / layout.columns, 1f),
+                GridLayout.spec(position % layout.columns, 1f));
+            params.width = 0;
+            params.height = 0;
+
+            final Tile tile = new Tile(index, surfaceView);
+            surfaceView.getHolder().addCallback(tile);
+            surfaceView.setOnClickListener(v -> listener.onTileSelected(tile.cameraIndex));
+            surfaceView.setOnLongClickListener(v -> {
+                setFocus(tile.cameraIndex);
+                return true;
+            });
+
+            tiles.add(tile);
+            container.addView(surfaceView, params);
+        }
+
+        container.setVisibility(View.VISIBLE);
+        Timber.tag(TAG).i("모자이크 표시 - %s, 카메라 %d~%d", layout, pageStart, pageEnd - 1);
+    }
+
+    /**
+     * 모자이크 숨기기 (UI 스레드)
+     * 타일 스트림을 worker에서 모두 정지한 뒤 View를 제거하므로 UI 스레드를 막지 않음
+     */
+    public void hide() {
+        hide(-1);
+    }
+
+    /**
+     * 모자이크 숨기고 타일 하나를 단일 화면으로 승격 (UI 스레드)
+     * 승격 타일의 세션 참조는 유지 → 유휴 세션 정리(LRU)가 연결 전에 로그아웃하지 않음
+     * 단일 화면 연결이 세션을 잡은 뒤 releasePromotedSession으로 반납
+     */
+    public void hide(int promotedCameraIndex) {
+        if (currentLayout == null) {
+            return;
+        }
+        currentLayout = null;
+
+        if (budgetTask != null) {
+            budgetTask.cancel(false);
+            budgetTask = null;
+        }
+
+        for (Tile tile : tiles) {
+            if (tile.cameraIndex == promotedCameraIndex) {
+                tile.keepSession = true;
+            }
+        }
+        closeTiles();
+        Timber.tag(TAG).i("모자이크 숨김");
+    }
+
+    /**
+     * 승격 타일에서 넘겨받은 세션 참조 반납 (단일 화면 연결 완료 후, 없으면 무시)
+     */
+    public void releasePromotedSession() {
+        try {
+            worker.execute(() -> {
+                if (promotedCamera != null) {
+                    sessionPool.release(promotedCamera);
+                    promotedCamera = null;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 종료됨 - release()에서 반납
+        }
+    }
+
+    public boolean isShowing() {
+        return currentLayout != null;
+    }
+
+    public Layout getCurrentLayout() {
+        return currentLayout;
+    }
+
+    /**
+     * 포커스 타일 변경 (포커스 타일은 항상 전체 프레임레이트로 디코딩)
+     */
+    public void setFocus(int cameraIndex) {
+        focusedCameraIndex = cameraIndex;
+        worker.execute(this::rebalance);
+        Timber.tag(TAG).d("포커스 타일 변경 - 카메라 %d", cameraIndex);
+    }
+
+    /**
+     * 해제 (Activity onDestroy에서 호출)
+     */
+    public void release() {
+        hide();
+        releasePromotedSession();
+        worker.shutdown();
+
+        // 포트 정리기/세션 풀이 종료되기 전에 타일 정지(포트 격리, 세션 반납)가 끝나야 함
+        try {
+            if (!worker.awaitTermination(RELEASE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                Timber.tag(TAG).w("모자이크 타일 정지 대기 시간 초과");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 현재 타일을 worker에서 모두 정지한 뒤 View 제거 (UI 스레드)
+     * 정지가 끝나면 그 사이 요청된 배치를 구성하거나 (show) 컨테이너를 숨김 (hide)
+     */
+    private void closeTiles() {
+        if (tiles.isEmpty()) {
+            return;
+        }
+        final List<Tile> closing = new ArrayList<>(tiles);
+        tiles.clear();      // rebalance 대상에서 제외
+        for (Tile tile : closing) {
+            tile.closed = true;     // 콜백 제거 전에 surfaceCreated가 와도 startTile이 무시
+        }
+        closingBatches++;
+
+        worker.execute(() -> {
+            for (Tile tile : closing) {
+                stopTile(tile);
+            }
+            mainHandler.post(() -> {
+                for (Tile tile : closing) {
+                    // 이미 정지했으므로 View 제거 시 Surface 콜백은 필요 없음
+                    tile.surfaceView.getHolder().removeCallback(tile);
+                    container.removeView(tile.surfaceView);
+                }
+                closingBatches--;
+                if (closingBatches > 0) {
+                    return;
+                }
+                if (currentLayout != null) {
+                    if (tiles.isEmpty()) {
+                        buildTiles();
+                    }
+                } else {
+                    container.setVisibility(View.GONE);
+                }
+            });
+        });
+    }
+
+    /**
+     * 타일 스트림 시작 (worker 스레드)
+     */
+    private void startTile(Tile tile) {
+        if (tile.closed || tile.port >= 0 || tile.camera == null) {
+            return;
+        }
+
+        tile.loginHandle = sessionPool.acquire(tile.camera);
+        if (tile.loginHandle == 0) {
+            Timber.tag(TAG).w("타일 로그인 실패 - %s", tile.camera.getName());
+            return;
+        }
+
+        tile.port = IPlaySDK.PLAYGetFreePort();
+        if (tile.port < 0) {
+            Timber.tag(TAG).e("타일 PlayPort 할당 실패 (격리 중인 포트: %d)", portReaper.getQuarantinedCount());
+            releaseSession(tile);
+            return;
+        }
+
+        IPlaySDK.PLAYSetDecodeThreadNum(tile.port, TILE_DECODE_THREADS);
+        if (IPlaySDK.PLAYOpenStream(tile.port, null, 0, TILE_STREAM_BUF_SIZE) == 0) {
+            Timber.tag(TAG).e("타일 PLAYOpenStream 실패 - Port: %d", tile.port);
+            IPlaySDK.PLAYReleasePort(tile.port);
+            tile.port = -1;
+            releaseSession(tile);
+            return;
+        }
+
+        if (IPlaySDK.PLAYPlay(tile.port, tile.surfaceView.getHolder().getSurface()) == 0) {
+            Timber.tag(TAG).e("타일 PLAYPlay 실패 - Port: %d", tile.port);
+            closePort(tile);
+            releaseSession(tile);
+            return;
+        }
+
+        // 소스에 따라 startStream 반환 전에 데이터가 올 수 있으므로 피더를 먼저 시작
+        setKeyFramesOnly(tile, false);
+        tile.rateMeasurableAt = SystemClock.elapsedRealtime() + BUDGET_INTERVAL_MS;   // 디코더 안정화 전 값 제외
+        tile.feeder.start(tile.port);
+        tile.activeSink = new CameraSource.DataSink() {
+            @Override
+            public void onData(long streamHandle, byte[] buffer, int size) {
+                if (this == tile.activeSink) {
+                    tile.feeder.offer(buffer, size);
+                }
+            }
+        };
+        tile.realHandle = source.startStream(tile.loginHandle, tile.camera, true, tile.activeSink);
+        if (tile.realHandle == 0) {
+            Timber.tag(TAG).e("타일 스트림 시작 실패 - %s, ErrorCode: %d",
+                tile.camera.getName(), source.getLastError());
+            stopTile(tile);
+            return;
+        }
+
+        Timber.tag(TAG).d("타일 시작 - %s, Port: %d", tile.camera.getName(), tile.port);
+    }
+
+    /**
+     * 타일 스트림 정지 (worker 스레드)
+     */
+    private void stopTile(Tile tile) {
+        tile.activeSink = null;
+        if (tile.realHandle != 0) {
+            source.stopStream(tile.realHandle);
+            tile.realHandle = 0;
+        }
+
+        tile.feeder.stop();
+
+        if (tile.port >= 0) {
+            closePort(tile);
+            if (tile.keepSession) {
+                handOverSession(tile);
+            } else {
+                releaseSession(tile);
+            }
+        }
+    }
+
+    /**
+     * 승격 타일 세션 참조를 넘겨받음 (이전에 넘겨받은 참조가 있으면 반납)
+     */
+    private void handOverSession(Tile tile) {
+        if (promotedCamera != null) {
+            sessionPool.release(promotedCamera);
+        }
+        promotedCamera = tile.camera;
+        tile.loginHandle = 0;
+    }
+
+    private void closePort(Tile tile) {
+        IPlaySDK.PLAYStop(tile.port);
+        IPlaySDK.PLAYFlush(tile.port);
+        portReaper.quarantine(tile.port);
+        tile.port = -1;
+    }
+
+    private void releaseSession(Tile tile) {
+        sessionPool.release(tile.camera);
+        tile.loginHandle = 0;
+    }
+
+    /**
+     * 디코딩 예산 재분배 (worker 스레드)
+     * 포커스 타일 → 나머지 순서로 전체 프레임레이트를 배정하고,
+     * 예산을 넘는 타일은 I-프레임 전용으로 낮춤
+     */
+    private void rebalance() {
+        List<Tile> active = new ArrayList<>();
+        Tile focused = null;
+
+        for (Tile tile : tiles) {
+            if (tile.port < 0) {
+                continue;
+            }
+            measure(tile);
+            if (tile.cameraIndex == focusedCameraIndex) {
+                focused = tile;
+            } else {
+                active.add(tile);
+            }
+        }
+
+        long remaining = MAX_DECODED_PIXELS_PER_SEC;
+        if (focused != null) {
+            setKeyFramesOnly(focused, false);
+            remaining -= focused.framePixels * focused.frameRate;
+        }
+
+        int reduced = 0;
+        for (Tile tile : active) {
+            long fullRate = tile.framePixels * tile.frameRate;
+            if (fullRate <= remaining) {
+                setKeyFramesOnly(tile, false);
+                remaining -= fullRate;
+            } else {
+                setKeyFramesOnly(tile, true);
+                remaining -= tile.framePixels * KEY_FRAME_FPS_ESTIMATE;
+                reduced++;
+            }
+        }
+
+        Timber.tag(TAG).d("디코딩 예산 재분배 - 타일 %d개, I-프레임 전용 %d개, 남은 예산 %d px/s",
+            active.size() + (focused != null ? 1 : 0), reduced, remaining);
+    }
+
+    private void setKeyFramesOnly(Tile tile, boolean keyFramesOnly) {
+        if (tile.feeder.isKeyFramesOnly() != keyFramesOnly) {
+            tile.feeder.setKeyFramesOnly(keyFramesOnly);
+            tile.rateMeasurableAt = SystemClock.elapsedRealtime() + BUDGET_INTERVAL_MS;
+        }
+    }
+
+    /**
+     * 타일 해상도/프레임레이트 측정 (측정 불가 시 이전 값 유지)
+     * PLAYGetCurrentFrameRate는 실제 디코딩한 프레임레이트이므로 I-프레임 전용 중에는 ~1fps가 나옴
+     * → 전체 디코딩 중이고 모드 전환 후 한 주기가 지난 값만 반영 (예산이 매 주기 뒤집히지 않도록)
+     */
+    private void measure(Tile tile) {
+        int[] width = new int[1];
+        int[] height = new int[1];
+        if (IPlaySDK.PLAYGetPictureSize(tile.port, width, height) != 0 && width[0] > 0 && height[0] > 0) {
+            tile.framePixels = (long) width[0] * height[0];
+        }
+
+        if (tile.feeder.isKeyFramesOnly() || SystemClock.elapsedRealtime() < tile.rateMeasurableAt) {
+            return;
+        }
+        int frameRate = IPlaySDK.PLAYGetCurrentFrameRate(tile.port);
+        if (frameRate > 0) {
+            tile.frameRate = frameRate;
+        }
+    }
+
+    private static void waitFor(Future<?> future) {
+        try {
+            future.get(TILE_STOP_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Timber.tag(TAG).w("타일 작업 대기 실패: %s", e.getMessage());
+        }
+    }
+}
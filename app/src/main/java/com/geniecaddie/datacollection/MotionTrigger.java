@@ -0,0 +1,242 @@
+package com.geniecaddie.datacollection;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.company.PlaySDK.IPlaySDKCallBack;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.video.BackgroundSubtractorMOG2;
+import org.opencv.video.Video;
+
+import timber.log.Timber;
+
+/**
+ * 움직임 감지 캡처 트리거
+ * - 재생 중인 포트의 디코딩 프레임(CameraConnectionManager의 프레임 탭)에서 MOTION_FRAME_SKIP 프레임마다 1장만 분석
+ * - 휘도 평면을 가로 ANALYSIS_WIDTH 픽셀로 건너뛰며 샘플링 (리사이즈 없이 stride로 직접 복사)
+ *   → BackgroundSubtractorMOG2 → 열림 연산으로 잡음 제거 → 관심 영역(MOTION_ROI)의 전경 비율
+ * - 전경 비율이 MOTION_MIN_FOREGROUND 이상인 분석이 MOTION_CONFIRM_FRAMES번 연속이면 Listener 호출
+ *   (MOTION_COOLDOWN_MS 동안은 다시 호출하지 않음)
+ *
+ * 버퍼와 Mat은 해상도가 바뀔 때만 다시 할당 (프레임마다 할당하지 않음)
+ * 분석은 디코딩 콜백 스레드에서만 수행, 다른 스레드는 플래그만 변경
+ */
+public class MotionTrigger {
+    private static final String TAG = "MotionTrigger";
+
+    // === 분석 ===
+    private static final int ANALYSIS_WIDTH = 160;                  // 샘플링 후 가로 픽셀 (이 이상)
+    private static final int MOG2_HISTORY = 300;                    // 분석 프레임 기준 (5fps면 약 1분)
+    private static final double MOG2_VAR_THRESHOLD = 25;
+    private static final int WARMUP_FRAMES = 25;                    // 배경 학습 전에는 트리거하지 않음
+
+    // === 통계 ===
+    private static final int LOG_EVERY_ANALYSES = 500;
+
+    /**
+     * 움직임 감지 리스너 (UI 스레드에서 호출)
+     */
+    public interface Listener {
+        void onMotionDetected(double foregroundRatio);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private volatile Listener listener;
+    private volatile boolean enabled = CameraConfig.MOTION_TRIGGER_ENABLED;
+    private volatile boolean resetRequested = false;
+
+    // 분석 상태 (디코딩 콜백 스레드 전용)
+    private int frameWidth;
+    private int frameHeight;
+    private int sampleStep;
+    private int sampleWidth;
+    private int sampleHeight;
+    private byte[] sample = new byte[0];
+    private BackgroundSubtractorMOG2 subtractor;
+    private Mat luma;
+    private Mat foreground;
+    private Mat roi;
+    private Mat kernel;
+    private int roiArea;
+    private int frameCounter = 0;
+    private int analyzed = 0;
+    private int consecutive = 0;
+    private long lastFiredAt = 0;
+    private long analysisNs = 0;
+    private int fired = 0;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 움직임 감지 켜기/끄기 (프레임 탭은 다음 연결부터 붙음)
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled) {
+            resetRequested = true;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 새 스트림 시작 시 배경 모델 초기화 (다음 분석 프레임에서 반영)
+     */
+    public void reset() {
+        resetRequested = true;
+    }
+
+    /**
+     * 디코딩 프레임 (디코딩 콜백 스레드)
+     */
+    void onDecodedFrame(IPlaySDKCallBack.FRAME_DECODE_INFO info) {
+        if (!enabled || info.pVideoDataY == null) {
+            return;
+        }
+        if (++frameCounter < CameraConfig.MOTION_FRAME_SKIP) {
+            return;
+        }
+        frameCounter = 0;
+
+        long startNs = System.nanoTime();
+        try {
+            if (resetRequested || info.nWidth[0] != frameWidth || info.nHeight[0] != frameHeight) {
+                resetRequested = false;
+                prepare(info.nWidth[0], info.nHeight[0]);
+            }
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("OpenCV 라이브러리 없음 - 움직임 감지 비활성");
+            enabled = false;
+            return;
+        }
+
+        downsample(info.pVideoDataY, info.nStride[0]);
+        luma.put(0, 0, sample);
+        subtractor.apply(luma, foreground);
+        Imgproc.morphologyEx(foreground, foreground, Imgproc.MORPH_OPEN, kernel);
+        double ratio = (double) Core.countNonZero(roi) / roiArea;
+
+        analysisNs += System.nanoTime() - startNs;
+        analyzed++;
+        if (analyzed % LOG_EVERY_ANALYSES == 0) {
+            Timber.tag(TAG).i("움직임 분석 %d회 - 평균 %.2fms (%dx%d → %dx%d), 트리거 %d회",
+                analyzed, analysisNs / 1e6 / analyzed, frameWidth, frameHeight, sampleWidth, sampleHeight, fired);
+        }
+
+        if (analyzed <= WARMUP_FRAMES) {
+            return;
+        }
+        consecutive = ratio >= CameraConfig.MOTION_MIN_FOREGROUND ? consecutive + 1 : 0;
+        if (consecutive < CameraConfig.MOTION_CONFIRM_FRAMES) {
+            return;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        if (now - lastFiredAt < CameraConfig.MOTION_COOLDOWN_MS) {
+            return;
+        }
+        lastFiredAt = now;
+        consecutive = 0;
+        fired++;
+        notifyMotion(ratio);
+    }
+
+    /**
+     * 리소스 해제 (포트가 모두 닫힌 뒤 호출)
+     */
+    public void release() {
+        enabled = false;
+        mainHandler.removeCallbacksAndMessages(null);
+        releaseMats();
+    }
+
+    private void notifyMotion(final double ratio) {
+        Timber.tag(TAG).d("움직임 감지 - 관심 영역 전경 %.1f%%", ratio * 100);
+        final Listener target = listener;
+        if (target == null) {
+            return;
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                target.onMotionDetected(ratio);
+            }
+        });
+    }
+
+    /**
+     * 해상도별 샘플 버퍼 / Mat / 배경 모델 준비
+     */
+    private void prepare(int width, int height) {
+        releaseMats();
+
+        frameWidth = width;
+        frameHeight = height;
+        sampleStep = Math.max(1, width / ANALYSIS_WIDTH);
+        sampleWidth = width / sampleStep;
+        sampleHeight = height / sampleStep;
+        if (sample.length != sampleWidth * sampleHeight) {
+            sample = new byte[sampleWidth * sampleHeight];
+        }
+
+        luma = new Mat(sampleHeight, sampleWidth, CvType.CV_8UC1);
+        foreground = new Mat(sampleHeight, sampleWidth, CvType.CV_8UC1);
+        kernel = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(3, 3));
+        subtractor = Video.createBackgroundSubtractorMOG2(MOG2_HISTORY, MOG2_VAR_THRESHOLD, false);
+
+        // 관심 영역 (x, y, w, h 비율) → 샘플 좌표
+        float[] region = CameraConfig.MOTION_ROI;
+        int x0 = clamp((int) (region[0] * sampleWidth), 0, sampleWidth - 1);
+        int y0 = clamp((int) (region[1] * sampleHeight), 0, sampleHeight - 1);
+        int x1 = clamp((int) ((region[0] + region[2]) * sampleWidth), x0 + 1, sampleWidth);
+        int y1 = clamp((int) ((region[1] + region[3]) * sampleHeight), y0 + 1, sampleHeight);
+        roi = foreground.submat(y0, y1, x0, x1);    // foreground와 메모리 공유
+        roiArea = (x1 - x0) * (y1 - y0);
+
+        analyzed = 0;
+        analysisNs = 0;
+        consecutive = 0;
+        Timber.tag(TAG).d("움직임 분석 준비 - %dx%d → %dx%d, 관심 영역 (%d,%d)-(%d,%d)",
+            width, height, sampleWidth, sampleHeight, x0, y0, x1, y1);
+    }
+
+    /**
+     * 휘도 평면을 sampleStep 간격으로 샘플링 (stride 고려)
+     */
+    private void downsample(byte[] y, int stride) {
+        int index = 0;
+        for (int row = 0; row < sampleHeight; row++) {
+            int base = row * sampleStep * stride;
+            for (int col = 0; col < sampleWidth; col++) {
+                sample[index++] = y[base + col * sampleStep];
+            }
+        }
+    }
+
+    private void releaseMats() {
+        if (luma != null) {
+            roi.release();
+            foreground.release();
+            luma.release();
+            kernel.release();
+            luma = null;
+        }
+        subtractor = null;
+        frameWidth = 0;     // 다음 분석 프레임에서 다시 준비
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,191 @@
+package com.geniecaddie.datacollection;
+
+import com.company.NetSDK.CB_fRealDataCallBackEx;
+import com.company.NetSDK.EM_LOCAL_MODE;
+import com.company.NetSDK.EM_LOGIN_SPAC_CAP_TYPE;
+import com.company.NetSDK.INetSDK;
+import com.company.NetSDK.NET_IN_LOGIN_WITH_HIGHLEVEL_SECURITY;
+import com.company.NetSDK.NET_IN_SNAP_PIC_TO_FILE_PARAM;
+import com.company.NetSDK.NET_OUT_LOGIN_WITH_HIGHLEVEL_SECURITY;
+import com.company.NetSDK.NET_OUT_SNAP_PIC_TO_FILE_PARAM;
+import com.company.NetSDK.NET_TIME;
+import com.company.NetSDK.SDK_RealPlayType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import timber.log.Timber;
+
+/**
+ * Dahua 장비 소스 (INetSDK)
+ * - 로그인: LoginWithHighLevelSecurity + SetLocalMode
+ * - keepalive: QueryDeviceTime 왕복
+ * - 스트림: RealPlayEx + SetRealDataCallBackEx (원시 오디오/비디오 혼합 데이터만 전달)
+ * - 스냅샷: SnapPictureToFile (카메라가 인코딩한 원본 해상도 JPEG)
+ */
+public class NetSdkCameraSource implements CameraSource {
+    private static final String TAG = "NetSdkCameraSource";
+
+    private static final int RAW_AUDIO_VIDEO_MIX_DATA = 0;
+    private static final int KEEPALIVE_WAIT_MS = 3000;                 // QueryDeviceTime 응답 대기
+
+    // 장비 스냅샷 (SnapPictureToFile)
+    private static final int DEVICE_SNAP_QUALITY = 6;              // 1~6, 6=최고 화질
+    private static final int DEVICE_SNAP_BUF_SIZE = 4 * 1024 * 1024;
+    private static final int DEVICE_SNAP_WAIT_MS = 3000;
+
+    // 콜백 객체가 GC되지 않도록 스트림이 살아있는 동안 보관
+    private final Map<Long, CB_fRealDataCallBackEx> callbacks = new ConcurrentHashMap<>();
+
+    @Override
+    public long login(CameraInfo camera) {
+        try {
+            NET_IN_LOGIN_WITH_HIGHLEVEL_SECURITY stuIn = new NET_IN_LOGIN_WITH_HIGHLEVEL_SECURITY();
+
+            // IP 설정
+            byte[] ipBytes = camera.getIp().getBytes();
+            System.arraycopy(ipBytes, 0, stuIn.szIP, 0, Math.min(ipBytes.length, stuIn.szIP.length));
+
+            // 포트 설정
+            stuIn.nPort = Integer.parseInt(camera.getPort());
+
+            // 사용자명 설정
+            byte[] userBytes = CameraConfig.USERNAME.getBytes();
+            System.arraycopy(userBytes, 0, stuIn.szUserName, 0, Math.min(userBytes.length, stuIn.szUserName.length));
+
+            // 비밀번호 설정
+            byte[] pwdBytes = CameraConfig.PASSWORD.getBytes();
+            System.arraycopy(pwdBytes, 0, stuIn.szPassword, 0, Math.min(pwdBytes.length, stuIn.szPassword.length));
+
+            // TCP 모드
+            stuIn.emSpecCap = EM_LOGIN_SPAC_CAP_TYPE.EM_LOGIN_SPEC_CAP_TCP;
+
+            NET_OUT_LOGIN_WITH_HIGHLEVEL_SECURITY stuOut = new NET_OUT_LOGIN_WITH_HIGHLEVEL_SECURITY();
+            long loginHandle = INetSDK.LoginWithHighLevelSecurity(stuIn, stuOut);
+
+            if (loginHandle == 0) {
+                int errorCode = INetSDK.GetLastError();
+                Timber.tag(TAG).e("NetSDK 로그인 실패 - IP: %s, Port: %s, ErrorCode: %d",
+                    camera.getIp(), camera.getPort(), errorCode);
+                return 0;
+            }
+
+            // 최적화 모드 설정
+            int nPlayValue = 0x01 | 0x02;
+            boolean ret = INetSDK.SetLocalMode(loginHandle, EM_LOCAL_MODE.EM_LOCAL_PLAY_FLAG_MODE, nPlayValue);
+            if (!ret) {
+                Timber.tag(TAG).w("SetLocalMode 설정 실패 (비필수)");
+            }
+
+            Timber.tag(TAG).d("NetSDK 로그인 성공 - %s, Handle: %d", camera.getEndpointKey(), loginHandle);
+            return loginHandle;
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).e(e, "NetSDK 라이브러리 로드 실패 - 카메라 연결 불가");
+            return 0;
+        } catch (Exception e) {
+            Timber.tag(TAG).e(e, "NetSDK 로그인 중 예외 발생");
+            return 0;
+        }
+    }
+
+    @Override
+    public void logout(long sessionHandle) {
+        try {
+            INetSDK.Logout(sessionHandle);
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("NetSDK Logout 라이브러리 오류 (무시)");
+        } catch (Exception e) {
+            Timber.tag(TAG).e(e, "NetSDK 로그아웃 중 예외 발생");
+        }
+    }
+
+    @Override
+    public boolean isAlive(long sessionHandle) {
+        try {
+            return INetSDK.QueryDeviceTime(sessionHandle, new NET_TIME(), KEEPALIVE_WAIT_MS);
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("NetSDK QueryDeviceTime 라이브러리 오류");
+            return false;
+        } catch (Exception e) {
+            Timber.tag(TAG).e(e, "keepalive 중 예외 발생");
+            return false;
+        }
+    }
+
+    @Override
+    public long startStream(long sessionHandle, CameraInfo camera, boolean subStream, final DataSink sink) {
+        try {
+            int streamType = subStream
+                ? SDK_RealPlayType.SDK_RType_Realplay_1   // Sub Stream
+                : SDK_RealPlayType.SDK_RType_Realplay_0;  // Main Stream
+            long realHandle = INetSDK.RealPlayEx(sessionHandle, camera.getChannel(), streamType);
+            if (realHandle == 0) {
+                return 0;
+            }
+
+            CB_fRealDataCallBackEx callback = new CB_fRealDataCallBackEx() {
+                @Override
+                public void invoke(long rHandle, int dataType, byte[] buffer, int bufSize, int param) {
+                    if (dataType == RAW_AUDIO_VIDEO_MIX_DATA) {
+                        sink.onData(rHandle, buffer, bufSize);
+                    }
+                }
+            };
+            callbacks.put(realHandle, callback);
+            INetSDK.SetRealDataCallBackEx(realHandle, callback, 1);
+            return realHandle;
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).e(e, "NetSDK RealPlayEx 라이브러리 오류");
+            return 0;
+        }
+    }
+
+    @Override
+    public void stopStream(long streamHandle) {
+        try {
+            INetSDK.StopRealPlayEx(streamHandle);
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("NetSDK StopRealPlayEx 라이브러리 오류 (무시)");
+        } finally {
+            callbacks.remove(streamHandle);
+        }
+    }
+
+    @Override
+    public boolean snapshot(long sessionHandle, CameraInfo camera, String filePath) {
+        try {
+            NET_IN_SNAP_PIC_TO_FILE_PARAM stuIn = new NET_IN_SNAP_PIC_TO_FILE_PARAM();
+            stuIn.stuParam.Channel = camera.getChannel();
+            stuIn.stuParam.Quality = DEVICE_SNAP_QUALITY;
+            stuIn.stuParam.mode = 0;    // 1회 요청
+
+            byte[] pathBytes = filePath.getBytes();
+            System.arraycopy(pathBytes, 0, stuIn.szFilePath, 0, Math.min(pathBytes.length, stuIn.szFilePath.length));
+
+            NET_OUT_SNAP_PIC_TO_FILE_PARAM stuOut = new NET_OUT_SNAP_PIC_TO_FILE_PARAM(DEVICE_SNAP_BUF_SIZE);
+
+            if (!INetSDK.SnapPictureToFile(sessionHandle, stuIn, stuOut, DEVICE_SNAP_WAIT_MS)) {
+                Timber.tag(TAG).w("SnapPictureToFile 실패 - ErrorCode: %d", INetSDK.GetLastError());
+                return false;
+            }
+
+            Timber.tag(TAG).i("장비 스냅샷 성공 - %d bytes, Path: %s", stuOut.dwPicBufRetLen, filePath);
+            return true;
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("NetSDK SnapPictureToFile 라이브러리 오류");
+            return false;
+        } catch (Exception e) {
+            Timber.tag(TAG).e(e, "장비 스냅샷 중 예외 발생");
+            return false;
+        }
+    }
+
+    @Override
+    public int getLastError() {
+        try {
+            return INetSDK.GetLastError();
+        } catch (UnsatisfiedLinkError e) {
+            return -1;
+        }
+    }
+}
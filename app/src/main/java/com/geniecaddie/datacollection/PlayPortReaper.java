@@ -0,0 +1,173 @@
+package com.geniecaddie.datacollection;
+
+import android.os.SystemClock;
+
+import com.company.PlaySDK.Constants;
+import com.company.PlaySDK.IPlaySDK;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * PlaySDK 포트 정리 담당 (격리 큐 + 단일 스케줄러 스레드)
+ *
+ * PLAYStop 직후 바로 PLAYCloseStream/PLAYReleasePort를 호출하면
+ * Mali GPU의 비동기 명령 큐와 충돌할 수 있으므로 포트를 잠시 격리한 뒤 해제함
+ * - 소스 버퍼(PLAYGetSourceBufferRemain)가 비면 즉시 해제
+ * - 비지 않아도 최대 격리 시간이 지나면 해제
+ * - 격리 포트 수가 상한을 넘으면 가장 오래된 포트부터 강제 해제 (강제여도 최소 격리 시간은 지킴)
+ *
+ * 모든 네이티브 정리 호출은 스케줄러 스레드 하나에서만 수행됨
+ */
+public class PlayPortReaper {
+    private static final String TAG = "PlayPortReaper";
+
+    // === 정책 상수 ===
+    private static final long POLL_INTERVAL_MS = 50;          // 격리 큐 점검 주기
+    private static final long MIN_QUARANTINE_MS = 100;        // PLAYStop 후 최소 대기 (GPU 명령 큐 배출)
+    private static final long MAX_QUARANTINE_MS = 1000;       // 버퍼가 안 비어도 이 시간 후 해제
+    private static final int MAX_QUARANTINED_PORTS = 24;      // 동시에 격리 가능한 포트 수 (18분할 타일 + 단일 화면 포트 이상)
+
+    /**
+     * 격리된 포트 1개
+     */
+    private static class Entry {
+        final int port;
+        final long quarantinedAt;
+        boolean forced = false;
+
+        Entry(int port, long quarantinedAt) {
+            this.port = port;
+            this.quarantinedAt = quarantinedAt;
+        }
+    }
+
+    private final ArrayDeque<Entry> quarantine = new ArrayDeque<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledFuture<?> pollTask;
+    private boolean shuttingDown = false;                              // quarantine 락으로 보호
+    private final ArrayList<Entry> readyEntries = new ArrayList<>();   // 스케줄러 스레드 전용
+
+    /**
+     * 포트 격리 (PLAYStop/PLAYFlush 이후 호출)
+     */
+    public void quarantine(int port) {
+        synchronized (quarantine) {
+            quarantine.addLast(new Entry(port, SystemClock.elapsedRealtime()));
+
+            // 상한 초과분은 오래된 순서로 강제 해제 표시
+            int excess = quarantine.size() - MAX_QUARANTINED_PORTS;
+            if (excess > 0) {
+                Timber.tag(TAG).w("격리 포트 상한 초과 (%d개) - 오래된 포트 %d개 강제 해제",
+                    quarantine.size(), excess);
+                Iterator<Entry> it = quarantine.iterator();
+                while (excess > 0 && it.hasNext()) {
+                    it.next().forced = true;
+                    excess--;
+                }
+            }
+
+            if (pollTask == null) {
+                pollTask = scheduler.scheduleWithFixedDelay(this::poll,
+                    0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        Timber.tag(TAG).d("포트 %d 격리 (격리 중: %d / 최대 포트: %d)",
+            port, getQuarantinedCount(), Constants.FUNC_MAX_PORT);
+    }
+
+    /**
+     * 현재 격리 중(아직 해제되지 않은) 포트 수
+     */
+    public int getQuarantinedCount() {
+        synchronized (quarantine) {
+            return quarantine.size();
+        }
+    }
+
+    /**
+     * 종료 - 남은 포트를 모두 해제하고 스케줄러 정지
+     * 호출 스레드를 막지 않도록 정리는 스케줄러 스레드에서 수행
+     */
+    public void shutdown() {
+        synchronized (quarantine) {
+            shuttingDown = true;
+            for (Entry entry : quarantine) {
+                entry.forced = true;
+            }
+        }
+        scheduler.execute(this::poll);
+        scheduler.shutdown();
+    }
+
+    /**
+     * 격리 큐 점검 (스케줄러 스레드)
+     */
+    private void poll() {
+        long now = SystemClock.elapsedRealtime();
+        readyEntries.clear();
+
+        synchronized (quarantine) {
+            Iterator<Entry> it = quarantine.iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (isReleasable(entry, now)) {
+                    readyEntries.add(entry);
+                    it.remove();
+                }
+            }
+
+            if (quarantine.isEmpty() && pollTask != null) {
+                pollTask.cancel(false);
+                pollTask = null;
+            }
+        }
+
+        // 네이티브 해제는 락 밖에서 수행 (quarantine() 호출자를 막지 않도록)
+        for (Entry entry : readyEntries) {
+            releasePort(entry, now);
+        }
+        readyEntries.clear();
+    }
+
+    /**
+     * 해제 가능 여부 판단 (quarantine 락을 잡은 상태에서 호출)
+     */
+    private boolean isReleasable(Entry entry, long now) {
+        long age = now - entry.quarantinedAt;
+        if (age < MIN_QUARANTINE_MS && !shuttingDown) {
+            return false;       // 강제 해제라도 PLAYStop 직후는 피함
+        }
+        if (entry.forced || age >= MAX_QUARANTINE_MS) {
+            return true;
+        }
+
+        try {
+            return IPlaySDK.PLAYGetSourceBufferRemain(entry.port) <= 0;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * 스트림 닫기 + 포트 해제
+     */
+    private void releasePort(Entry entry, long now) {
+        try {
+            IPlaySDK.PLAYCloseStream(entry.port);
+            IPlaySDK.PLAYReleasePort(entry.port);
+            Timber.tag(TAG).i("포트 %d 해제 완료 ✅ (격리 %dms%s)",
+                entry.port, now - entry.quarantinedAt, entry.forced ? ", 강제" : "");
+        } catch (Exception e) {
+            Timber.tag(TAG).e(e, "포트 %d 해제 중 예외", entry.port);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.geniecaddie.datacollection;
+
+/**
+ * PlaySDK JNI 출력 인자 (Integer)
+ * - PLAYGetPicJPEG / PLAYGetRealFrameBitRate 등은 넘긴 Integer 객체의 value 필드를 JNI에서 직접 바꿈
+ * - Integer.valueOf(0)은 캐시된 공용 객체라 JNI가 바꾸면 프로세스 전체의 0이 오염됨
+ *   → 호출마다 캐시되지 않은 새 객체가 필요하므로 deprecated 생성자를 이 한 곳에서만 사용
+ */
+final class PlaySdkOutParams {
+
+    private PlaySdkOutParams() {
+    }
+
+    /**
+     * JNI가 값을 채울 새 Integer (초기값 0, 호출마다 새 객체)
+     */
+    @SuppressWarnings({"deprecation", "removal"})
+    static Integer newInt() {
+        return new Integer(0);
+    }
+}
@@ -0,0 +1,383 @@
+package com.geniecaddie.datacollection;
+
+import android.os.Environment;
+import android.os.SystemClock;
+
+import com.company.PlaySDK.IPlaySDK;
+import com.company.PlaySDK.IPlaySDKCallBack;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import timber.log.Timber;
+
+/**
+ * 재생 프로파일별 입력→화면 지연 측정
+ *
+ * 1. 재생 중인 스트림에서 I-프레임부터 DHAV 프레임을 모음 (StreamFeeder.Tap)
+ * 2. 모은 프레임을 원래 프레임 간격으로 반복 재생하면서 각 프레임의 DHAV 타임스탬프를
+ *    입력 순번 기반 값으로 바꿔 씀 → 입력 시각을 타임스탬프로 찾을 수 있는 합성 스트림
+ * 3. 프로파일마다 화면 없는 포트에 PLAYInputData로 넣고
+ *    디코딩 콜백 / 표시 콜백의 nStamp로 입력 시각을 찾아 지연을 히스토그램에 기록
+ * 4. 결과 표를 Download/DahuaPlaySDKLogs/playback_latency_yyyyMMdd.txt 에 저장
+ *
+ * 네트워크/카메라 지연은 포함하지 않음 (PlaySDK 버퍼링 + 디코딩 + 표시 구간만)
+ */
+public class PlaybackLatencyProbe implements StreamFeeder.Tap {
+    private static final String TAG = "PlaybackLatency";
+
+    // === 수집 상수 ===
+    private static final int CAPTURE_MAX_BYTES = 4 * 1024 * 1024;
+    private static final int CAPTURE_MAX_FRAMES = 100;
+
+    // === 측정 상수 ===
+    private static final long PROBE_DURATION_MS = 10 * 1000;       // 프로파일당 재생 시간
+    private static final long DRAIN_WAIT_MS = 1000;                // 입력 종료 후 남은 프레임 대기
+    private static final int PROBE_BUF_SIZE = 2 * 1024 * 1024;
+    private static final int DEFAULT_FRAME_INTERVAL_MS = 40;       // 25fps
+    private static final int MIN_FRAME_INTERVAL_MS = 10;
+    private static final int MAX_FRAME_INTERVAL_MS = 200;
+    private static final int MAX_INPUT_RETRIES = 50;
+    private static final long INPUT_RETRY_PARK_NS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /**
+     * 측정 완료 콜백 (측정 스레드에서 호출)
+     */
+    public interface Callback {
+        void onFinished(String report);
+    }
+
+    /**
+     * 프로파일 1개 측정 결과
+     */
+    private static class Result {
+        final LatencyHistogram decode = new LatencyHistogram();
+        final LatencyHistogram display = new LatencyHistogram();
+        int framesIn = 0;
+        int framesLate = 0;
+        int framesFailed = 0;
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+
+    // 수집 상태 (this로 동기화)
+    private StreamFeeder capturingFeeder;
+    private Callback callback;
+    private byte[] capture;
+    private int captureLength = 0;
+    private int captureChunks = 0;
+
+    /**
+     * 측정 시작 - 재생 중인 피더에서 프레임을 모은 뒤 백그라운드에서 프로파일별 측정
+     *
+     * @return 이미 측정 중이면 false
+     */
+    public synchronized boolean start(StreamFeeder feeder, Callback callback) {
+        if (!busy.compareAndSet(false, true)) {
+            return false;
+        }
+        this.capturingFeeder = feeder;
+        this.callback = callback;
+        this.capture = new byte[CAPTURE_MAX_BYTES];
+        this.captureLength = 0;
+        this.captureChunks = 0;
+        feeder.setTap(this);
+        Timber.tag(TAG).i("재생 지연 측정 - 프레임 수집 시작");
+        return true;
+    }
+
+    /**
+     * 수집 중이면 중단 (스트림 종료 시 - 다른 카메라 프레임이 섞이지 않도록)
+     * 이미 측정 중이면 그대로 진행
+     */
+    public synchronized void cancelCapture() {
+        if (capture == null) {
+            return;
+        }
+        capturingFeeder.setTap(null);
+        capturingFeeder = null;
+        capture = null;
+        busy.set(false);
+        Timber.tag(TAG).w("재생 지연 측정 - 스트림 종료로 수집 중단");
+    }
+
+    public void shutdown() {
+        cancelCapture();
+        executor.shutdownNow();
+    }
+
+    // ========== StreamFeeder.Tap (NetSDK 네트워크 스레드) ==========
+
+    @Override
+    public synchronized void onData(byte[] buffer, int size) {
+        if (capture == null) {
+            return;
+        }
+        if (captureLength == 0
+            && (!StreamFeeder.isDhavFrame(buffer, size) || !StreamFeeder.isResyncPoint(buffer, size))) {
+            return;     // I-프레임부터 수집
+        }
+
+        if (captureLength + size > capture.length || captureChunks >= CAPTURE_MAX_FRAMES) {
+            final byte[] data = capture;
+            final int length = captureLength;
+            final Callback finishedCallback = callback;
+            capture = null;
+            capturingFeeder.setTap(null);
+            capturingFeeder = null;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        finishedCallback.onFinished(measureAll(data, length));
+                    } finally {
+                        busy.set(false);
+                    }
+                }
+            });
+            return;
+        }
+
+        System.arraycopy(buffer, 0, capture, captureLength, size);
+        captureLength += size;
+        captureChunks++;
+    }
+
+    // ========== 측정 스레드 ==========
+
+    private String measureAll(byte[] data, int length) {
+        List<byte[]> frames = splitVideoFrames(data, length);
+        if (frames.size() < 2) {
+            Timber.tag(TAG).w("재생 지연 측정 실패 - DHAV 비디오 프레임 부족 (%d)", frames.size());
+            return "DHAV 비디오 프레임 부족";
+        }
+        int intervalMs = frameInterval(frames);
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "# 재생 지연 (입력 → 콜백 ms), 프레임 %d개 반복, 간격 %dms, 프로파일당 %ds\n",
+            frames.size(), intervalMs, PROBE_DURATION_MS / 1000));
+
+        for (PlaybackProfile profile : PlaybackProfile.values()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            Result result = measure(profile, frames, intervalMs);
+            if (result == null) {
+                report.append(String.format(Locale.US, "\n[%s] 포트 준비 실패\n", profile.label));
+                continue;
+            }
+            report.append(String.format(Locale.US, "\n[%s] 입력 %d, 늦은 프레임 드롭 %d, 입력 실패 %d\n",
+                profile.label, result.framesIn, result.framesLate, result.framesFailed));
+            appendHistogram(report, "디코딩", result.decode);
+            appendHistogram(report, "표시", result.display);
+        }
+
+        String text = report.toString();
+        Timber.tag(TAG).i("%s", text);
+        save(text);
+        return text;
+    }
+
+    /**
+     * 프로파일 1개 측정 (화면 없는 포트)
+     *
+     * @return 포트 준비 실패 시 null
+     */
+    private Result measure(PlaybackProfile profile, List<byte[]> frames, int intervalMs) {
+        int port = IPlaySDK.PLAYGetFreePort();
+        if (port < 0) {
+            return null;
+        }
+
+        final Result result = new Result();
+        final Map<Integer, Long> inputAt = new ConcurrentHashMap<>();
+
+        IPlaySDKCallBack.fCBDecode decodeCallback = new IPlaySDKCallBack.fCBDecode() {
+            @Override
+            public void invoke(int nPort, IPlaySDKCallBack.FRAME_DECODE_INFO decodeInfo,
+                               IPlaySDKCallBack.FRAME_INFO_EX frameInfo, long pUserData) {
+                if (frameInfo == null || frameInfo.nWidth <= 0) {
+                    return;
+                }
+                Long at = inputAt.get(frameInfo.nStamp & DhavFrame.STAMP_MASK);
+                if (at != null) {
+                    synchronized (result.decode) {
+                        result.decode.record(SystemClock.elapsedRealtime() - at);
+                    }
+                }
+            }
+        };
+        IPlaySDKCallBack.fDisplayCBFun displayCallback = new IPlaySDKCallBack.fDisplayCBFun() {
+            @Override
+            public void invoke(int nPort, byte[] pBuf, int nSize, int nWidth, int nHeight, int nStamp,
+                               int nType, long pUserData) {
+                Long at = inputAt.remove(nStamp & DhavFrame.STAMP_MASK);
+                if (at != null) {
+                    synchronized (result.display) {
+                        result.display.record(SystemClock.elapsedRealtime() - at);
+                    }
+                }
+            }
+        };
+
+        try {
+            profile.applyBeforeOpen(port);
+            if (IPlaySDK.PLAYOpenStream(port, null, 0, PROBE_BUF_SIZE) == 0) {
+                return null;
+            }
+            profile.applyAfterOpen(port);
+            IPlaySDK.PLAYSetDecodeCallBack(port, decodeCallback, 0);
+            IPlaySDK.PLAYSetDisplayCallBack(port, displayCallback, 0);
+            if (IPlaySDK.PLAYPlay(port, (android.view.Surface) null) == 0) {
+                return null;
+            }
+
+            byte[] scratch = new byte[maxLength(frames)];
+            long start = SystemClock.elapsedRealtime();
+            boolean skippingLate = false;
+            for (int seq = 0; SystemClock.elapsedRealtime() - start < PROBE_DURATION_MS; seq++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                byte[] frame = frames.get(seq % frames.size());
+                if (skippingLate && !StreamFeeder.isResyncPoint(frame, frame.length)) {
+                    result.framesLate++;
+                } else {
+                    skippingLate = false;
+                    int stamp = (seq * intervalMs) & DhavFrame.STAMP_MASK;
+                    System.arraycopy(frame, 0, scratch, 0, frame.length);
+                    DhavFrame.restamp(scratch, 0, seq, stamp);
+                    inputAt.put(stamp, SystemClock.elapsedRealtime());
+                    result.framesIn++;
+
+                    if (!input(port, scratch, frame.length, profile.dropsLateFrames())) {
+                        inputAt.remove(stamp);
+                        if (profile.dropsLateFrames()) {
+                            skippingLate = true;
+                            result.framesLate++;
+                        } else {
+                            result.framesFailed++;
+                        }
+                    }
+                }
+
+                // 원래 프레임 간격으로 입력 (늦어졌으면 대기 없이 다음 프레임)
+                long wait = start + (long) (seq + 1) * intervalMs - SystemClock.elapsedRealtime();
+                if (wait > 0) {
+                    SystemClock.sleep(wait);
+                }
+            }
+            SystemClock.sleep(DRAIN_WAIT_MS);
+            return result;
+        } finally {
+            // 화면에 연결되지 않은 포트이므로 격리 없이 바로 해제
+            IPlaySDK.PLAYStop(port);
+            IPlaySDK.PLAYCloseStream(port);
+            IPlaySDK.PLAYReleasePort(port);
+        }
+    }
+
+    /**
+     * 디코더 입력 (드롭 모드가 아니면 StreamFeeder와 같이 잠시 재시도)
+     */
+    private static boolean input(int port, byte[] data, int length, boolean dropLate) {
+        int attempts = dropLate ? 1 : MAX_INPUT_RETRIES;
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            if (IPlaySDK.PLAYInputData(port, data, length) != 0) {
+                return true;
+            }
+            LockSupport.parkNanos(INPUT_RETRY_PARK_NS);
+        }
+        return false;
+    }
+
+    /**
+     * 수집한 바이트열을 DHAV 프레임 단위로 나눔 (오디오/부가 정보 프레임 제외)
+     */
+    private static List<byte[]> splitVideoFrames(byte[] data, int length) {
+        List<byte[]> frames = new ArrayList<>();
+        int offset = 0;
+        while (DhavFrame.isHeader(data, offset, length)) {
+            int frameLength = DhavFrame.length(data, offset);
+            if (frameLength < DhavFrame.HEADER_SIZE || offset + frameLength > length) {
+                break;      // 프레임 경계가 어긋남
+            }
+
+            if (DhavFrame.isVideo(data, offset)) {
+                byte[] frame = new byte[frameLength];
+                System.arraycopy(data, offset, frame, 0, frameLength);
+                frames.add(frame);
+            }
+            offset += frameLength;
+        }
+        return frames;
+    }
+
+    /**
+     * 원본 타임스탬프로 평균 프레임 간격 추정
+     */
+    private static int frameInterval(List<byte[]> frames) {
+        int first = DhavFrame.stamp(frames.get(0), 0);
+        int last = DhavFrame.stamp(frames.get(frames.size() - 1), 0);
+        int interval = ((last - first) & DhavFrame.STAMP_MASK) / (frames.size() - 1);
+        if (interval < MIN_FRAME_INTERVAL_MS || interval > MAX_FRAME_INTERVAL_MS) {
+            return DEFAULT_FRAME_INTERVAL_MS;
+        }
+        return interval;
+    }
+
+    private static int maxLength(List<byte[]> frames) {
+        int max = 0;
+        for (byte[] frame : frames) {
+            max = Math.max(max, frame.length);
+        }
+        return max;
+    }
+
+    private static void appendHistogram(StringBuilder report, String label, LatencyHistogram histogram) {
+        synchronized (histogram) {
+            if (histogram.getCount() == 0) {
+                report.append(String.format(Locale.US, "  %-6s 콜백 없음\n", label));
+                return;
+            }
+            report.append(String.format(Locale.US, "  %-6s p50 %5d  p95 %5d  p99 %5d  max %5d  (n=%d)\n",
+                label, histogram.percentile(50), histogram.percentile(95),
+                histogram.percentile(99), histogram.getMax(), histogram.getCount()));
+        }
+    }
+
+    /**
+     * 결과 저장 (덮어쓰기)
+     */
+    private static void save(String report) {
+        File logDir = new File(Environment.getExternalStoragePublicDirectory(
+            Environment.DIRECTORY_DOWNLOADS), "DahuaPlaySDKLogs");
+        if (!logDir.exists() && !logDir.mkdirs()) {
+            Timber.tag(TAG).e("지연 측정 폴더 생성 실패: %s", logDir.getAbsolutePath());
+            return;
+        }
+
+        String today = new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
+        File file = new File(logDir, "playback_latency_" + today + ".txt");
+        try (FileWriter writer = new FileWriter(file, false)) {
+            writer.write(report);
+            Timber.tag(TAG).d("재생 지연 측정 저장: %s", file.getAbsolutePath());
+        } catch (IOException e) {
+            Timber.tag(TAG).e("재생 지연 측정 저장 실패: %s", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.geniecaddie.datacollection;
+
+import com.company.PlaySDK.Constants;
+import com.company.PlaySDK.IPlaySDK;
+
+import timber.log.Timber;
+
+/**
+ * PlaySDK 재생 프로파일 (지연 vs 부드러움)
+ *
+ * - REALTIME: 실시간 우선. 버퍼링 최소, 버퍼가 쌓이면 빨리 재생해서 따라잡고,
+ *   한계를 넘으면 PLAYInputData가 거부 → StreamFeeder가 다음 I-프레임까지 늦은 프레임을 버림
+ * - DEFAULT: PlaySDK 기본값 (아무것도 설정하지 않음, 기존 동작)
+ * - SMOOTH: 유창성 우선. 넉넉히 버퍼링해서 네트워크 흔들림을 흡수 (지연 증가)
+ *
+ * 시간 값 단위는 ms, 캐시 모드는 PLAYSetCacheMode 값 (0: 끄기, 1: 적응형, 2: 실시간 우선, 3: 유창성 우선)
+ */
+public enum PlaybackProfile {
+    //        이름         열기 모드                 캐시 모드  지연  임계   시작 느림 빠름  실패   늦은 프레임 드롭
+    REALTIME("실시간",   Constants.STREAME_REALTIME, 2,       0,    120,   0,   0,   80,  400,  true),
+    DEFAULT("기본",      -1,                         -1,      -1,   -1,    -1,  -1,  -1,  -1,   false),
+    SMOOTH("부드럽게",   Constants.STREAME_REALTIME, 3,       200,  1000,  200, 100, 600, 2000, false);
+
+    private static final String TAG = "PlaybackProfile";
+
+    private static final int NOT_SET = -1;     // 설정하지 않음 (PlaySDK 기본값)
+
+    final String label;
+    private final int openMode;
+    private final int cacheMode;
+    private final int delayMs;
+    private final int delayThresholdMs;
+    private final int startMs;
+    private final int slowMs;
+    private final int fastMs;
+    private final int failMs;
+    private final boolean dropLateFrames;
+
+    PlaybackProfile(String label, int openMode, int cacheMode, int delayMs, int delayThresholdMs,
+                    int startMs, int slowMs, int fastMs, int failMs, boolean dropLateFrames) {
+        this.label = label;
+        this.openMode = openMode;
+        this.cacheMode = cacheMode;
+        this.delayMs = delayMs;
+        this.delayThresholdMs = delayThresholdMs;
+        this.startMs = startMs;
+        this.slowMs = slowMs;
+        this.fastMs = fastMs;
+        this.failMs = failMs;
+        this.dropLateFrames = dropLateFrames;
+    }
+
+    /**
+     * PLAYOpenStream 전에 호출
+     */
+    public void applyBeforeOpen(int port) {
+        if (openMode != NOT_SET) {
+            IPlaySDK.PLAYSetStreamOpenMode(port, openMode);
+        }
+    }
+
+    /**
+     * PLAYOpenStream 후, PLAYPlay / 첫 PLAYInputData 전에 호출
+     */
+    public void applyAfterOpen(int port) {
+        if (cacheMode != NOT_SET && IPlaySDK.PLAYSetCacheMode(port, cacheMode) == 0) {
+            Timber.tag(TAG).w("PLAYSetCacheMode 실패 - Port: %d, %s", port, label);
+        }
+        if (delayMs != NOT_SET && IPlaySDK.PLAYSetDelayTime(port, delayMs, delayThresholdMs) == 0) {
+            Timber.tag(TAG).w("PLAYSetDelayTime 실패 - Port: %d, %s", port, label);
+        }
+        if (startMs != NOT_SET && IPlaySDK.PLAYSetPlayMethod(port, startMs, slowMs, fastMs, failMs) == 0) {
+            Timber.tag(TAG).w("PLAYSetPlayMethod 실패 - Port: %d, %s", port, label);
+        }
+    }
+
+    /**
+     * 디코더가 입력을 거부하면 재시도하지 않고 다음 I-프레임까지 버릴지
+     */
+    public boolean dropsLateFrames() {
+        return dropLateFrames;
+    }
+}
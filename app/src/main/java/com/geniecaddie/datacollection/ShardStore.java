@@ -0,0 +1,537 @@
+package com.geniecaddie.datacollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * 묶음 저장소 (tar 샤드, WebDataset 형식)
+ * - 캡처마다 JPEG 파일을 만드는 대신 날짜 폴더/shards/shard_NNNN.tar에 이어 씀
+ *   → 폴더 목록 / 미디어 스캔 / 내보내기가 큰 파일 몇 개의 순차 복사로 줄어듦
+ * - 샘플 키 = 캡처 파일 이름(확장자 제외), 원본은 <키>.jpg, 축소본은 <키>.thumb.jpg
+ * - 쓰는 중인 샤드는 .part, maxBytes를 넘기면 색인 멤버(INDEX_NAME) + tar 끝 블록을 쓰고
+ *   동기화한 뒤 .tar로 이름 변경 (봉인) → .tar 파일은 항상 완전한 파일
+ * - 샘플마다 동기화 후 반환 → 목록(CaptureManifest)에 기록된 위치는 항상 디스크에 있음
+ * - 비정상 종료로 남은 .part는 다시 열 때 헤더를 처음부터 검사해 마지막 온전한 멤버 뒤를 잘라내고 이어 씀
+ *   (지난 날짜의 .part는 처음 열 때 봉인)
+ *
+ * 색인 멤버 데이터 (리틀 엔디언)
+ *   [long 데이터 위치][int 길이][short 이름 길이][이름] 반복 + 0 채움 + 끝 16바이트 [int MAGIC][int 개수][long 색인 시작 위치]
+ *   멤버 크기를 512 배수로 맞춰 파일 끝 tar 끝 블록(1024바이트) 바로 앞이 항상 트레일러
+ *
+ * CaptureManifest 잠금 안에서만 호출 (자체 동기화 없음)
+ */
+public class ShardStore {
+    private static final String TAG = "ShardStore";
+
+    // === tar ===
+    private static final int BLOCK = 512;
+    private static final int NAME_SIZE = 100;
+    private static final int SIZE_OFFSET = 124;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int END_SIZE = BLOCK * 2;
+
+    // === 샤드 파일 ===
+    public static final String SHARD_DIR = "shards";
+    private static final String SHARD_PREFIX = "shard_";
+    private static final String SEALED_SUFFIX = ".tar";
+    private static final String OPEN_SUFFIX = ".part";
+    public static final String INDEX_NAME = "__index__.bin";
+    public static final String JPEG_SUFFIX = ".jpg";
+    public static final String THUMB_SUFFIX = ".thumb.jpg";
+
+    // === 색인 ===
+    private static final int INDEX_MAGIC = 0x58534347;              // "GCSX"
+    private static final int TRAILER_SIZE = 16;
+    private static final int INDEX_ENTRY_FIXED = 14;                // long + int + short
+
+    private static final byte[] ZEROS = new byte[END_SIZE];
+
+    /**
+     * 샤드 안 멤버 1개
+     */
+    public static class Member {
+        public final String name;
+        public final long offset;       // 데이터 시작 위치
+        public final int length;
+
+        Member(String name, long offset, int length) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final File rootDir;
+    private final long maxBytes;
+
+    // 쓰는 중인 샤드
+    private String openDay;
+    private int openIndex = -1;
+    private File openFile;
+    private FileChannel channel;
+    private long size;
+    private int indexBytes;             // 봉인 시 색인 항목 크기 합
+    private final List<Member> members = new ArrayList<>();
+    private final byte[] header = new byte[BLOCK];
+    private boolean staleChecked = false;
+
+    public ShardStore(File rootDir, long maxBytes) {
+        this.rootDir = rootDir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 날짜 / 번호의 샤드 파일 (봉인됐으면 .tar, 아니면 .part)
+     */
+    public static File shardFile(File rootDir, String day, int index) {
+        File dir = new File(new File(rootDir, day), SHARD_DIR);
+        String name = String.format(Locale.US, "%s%04d", SHARD_PREFIX, index);
+        File sealed = new File(dir, name + SEALED_SUFFIX);
+        return sealed.exists() ? sealed : new File(dir, name + OPEN_SUFFIX);
+    }
+
+    /**
+     * 샘플 추가 (원본 + 선택 축소본), 동기화까지 끝낸 뒤 entry에 샤드 번호 / 위치 / 길이 기록
+     *
+     * @param thumb null이면 원본만
+     */
+    public void append(CaptureManifest.Entry entry, byte[] jpeg, int length,
+                       byte[] thumb, int thumbLength) throws IOException {
+        String key = entry.fileName();
+        key = key.substring(0, key.length() - JPEG_SUFFIX.length());
+        String jpegName = key + JPEG_SUFFIX;
+        String thumbName = key + THUMB_SUFFIX;
+
+        ensureOpen(CaptureManifest.dayOf(entry.wallClockMs));
+
+        // 이번 샘플 + 늘어날 색인까지 넣으면 상한을 넘는 경우 새 샤드로 (빈 샤드는 크기와 무관하게 씀)
+        long needed = BLOCK + padded(length) + INDEX_ENTRY_FIXED + jpegName.length();
+        if (thumb != null) {
+            needed += BLOCK + padded(thumbLength) + INDEX_ENTRY_FIXED + thumbName.length();
+        }
+        long sealedSize = size + needed + BLOCK + padded(indexBytes + TRAILER_SIZE) + END_SIZE;
+        if (!members.isEmpty() && sealedSize > maxBytes) {
+            String day = openDay;
+            seal();
+            ensureOpen(day);
+        }
+
+        try {
+            long offset = writeMember(jpegName, jpeg, length, entry.wallClockMs);
+            if (thumb != null) {
+                writeMember(thumbName, thumb, thumbLength, entry.wallClockMs);
+            }
+            channel.force(false);
+
+            entry.shard = openIndex;
+            entry.fileOffset = offset;
+            entry.fileLength = length;
+        } catch (IOException e) {
+            // 쓰다 만 멤버는 다음에 열 때 정리되도록 닫기만 함
+            closeChannel();
+            throw e;
+        }
+    }
+
+    /**
+     * 쓰는 중인 샤드 닫기 (봉인하지 않음 - 다음 실행에서 이어 씀)
+     */
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.force(true);
+            } catch (IOException e) {
+                Timber.tag(TAG).w("샤드 동기화 실패: %s", e.getMessage());
+            }
+        }
+        closeChannel();
+    }
+
+    /**
+     * 샤드의 멤버 목록 (봉인된 샤드는 끝의 색인, 쓰는 중인 샤드는 헤더를 처음부터 읽음)
+     */
+    public static List<Member> readIndex(File shardFile) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(shardFile, "r")) {
+            List<Member> result = new ArrayList<>();
+            long length = raf.length();
+            if (shardFile.getName().endsWith(SEALED_SUFFIX) && length >= END_SIZE + TRAILER_SIZE) {
+                ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(raf.getChannel(), trailer, length - END_SIZE - TRAILER_SIZE);
+                if (trailer.getInt(0) == INDEX_MAGIC) {
+                    int count = trailer.getInt(4);
+                    long indexAt = trailer.getLong(8);
+                    ByteBuffer index = ByteBuffer.allocate((int) (length - END_SIZE - TRAILER_SIZE - indexAt))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                    readFully(raf.getChannel(), index, indexAt);
+                    index.flip();
+                    byte[] name = new byte[NAME_SIZE];
+                    for (int i = 0; i < count; i++) {
+                        long offset = index.getLong();
+                        int memberLength = index.getInt();
+                        int nameLength = index.getShort();
+                        index.get(name, 0, nameLength);
+                        result.add(new Member(new String(name, 0, nameLength, StandardCharsets.US_ASCII),
+                            offset, memberLength));
+                    }
+                    return result;
+                }
+                Timber.tag(TAG).w("샤드 색인 없음 - 헤더 검사로 대체: %s", shardFile.getName());
+            }
+            scan(raf.getChannel(), length, new byte[BLOCK], result);
+            return result;
+        }
+    }
+
+    /**
+     * 샘플 1개 스트리밍 읽기 (색인/목록의 위치와 길이, 다른 멤버는 읽지 않음)
+     */
+    public static InputStream openSample(File shardFile, long offset, final int length) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(shardFile, "r");
+        raf.seek(offset);
+        return new InputStream() {
+            private int remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int value = raf.read();
+                if (value >= 0) {
+                    remaining--;
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = raf.read(buffer, off, Math.min(len, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+
+            @Override
+            public int available() {
+                return remaining;
+            }
+
+            @Override
+            public void close() throws IOException {
+                raf.close();
+            }
+        };
+    }
+
+    /**
+     * 날짜 샤드 열기 (날짜가 바뀌면 이전 샤드 봉인, 남은 .part가 있으면 정리 후 이어 씀)
+     */
+    private void ensureOpen(String day) throws IOException {
+        if (day.equals(openDay) && channel != null) {
+            return;
+        }
+        if (channel != null) {
+            seal();
+        }
+        if (!staleChecked) {
+            staleChecked = true;
+            sealStale(day);
+        }
+
+        File dir = new File(new File(rootDir, day), SHARD_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("샤드 폴더 생성 실패: " + dir.getAbsolutePath());
+        }
+
+        int next = 0;
+        int resume = -1;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                int index = parseIndex(file.getName());
+                if (index < 0) {
+                    continue;
+                }
+                next = Math.max(next, index + 1);
+                if (file.getName().endsWith(OPEN_SUFFIX)) {
+                    resume = Math.max(resume, index);
+                }
+            }
+        }
+
+        int index = resume >= 0 ? resume : next;
+        open(day, index, shardFile(rootDir, day, index));
+    }
+
+    /**
+     * 샤드 파일 열기 - 기존 .part는 마지막 온전한 멤버까지 남기고 잘라냄
+     */
+    private void open(String day, int index, File file) throws IOException {
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        openDay = day;
+        openIndex = index;
+        openFile = file;
+        members.clear();
+        indexBytes = 0;
+
+        long length = channel.size();
+        size = scan(channel, length, header, members);
+        for (Member member : members) {
+            indexBytes += INDEX_ENTRY_FIXED + member.name.length();
+        }
+        if (size != length) {
+            channel.truncate(size);
+            Timber.tag(TAG).w("샤드 잘린 멤버 정리 - %s (%d → %d바이트)", file.getName(), length, size);
+        }
+        Timber.tag(TAG).d("샤드 열기 - %s/%s (멤버 %d개)", day, file.getName(), members.size());
+    }
+
+    /**
+     * 색인 멤버 + tar 끝 블록 기록, 동기화 후 .tar로 이름 변경
+     */
+    private void seal() throws IOException {
+        int dataLength = padded(indexBytes + TRAILER_SIZE);
+        ByteBuffer index = ByteBuffer.allocate(dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        for (Member member : members) {
+            byte[] name = member.name.getBytes(StandardCharsets.US_ASCII);
+            index.putLong(member.offset).putInt(member.length).putShort((short) name.length).put(name);
+        }
+        long indexAt = size + BLOCK;
+        index.position(dataLength - TRAILER_SIZE);
+        index.putInt(INDEX_MAGIC).putInt(members.size()).putLong(indexAt);
+        int count = members.size();
+
+        writeMember(INDEX_NAME, index.array(), dataLength, System.currentTimeMillis());
+        writeFully(channel, ByteBuffer.wrap(ZEROS, 0, END_SIZE), size);
+        size += END_SIZE;
+        channel.force(true);
+        closeChannel();
+
+        String name = openFile.getName();
+        File sealed = new File(openFile.getParentFile(), name.substring(0, name.length() - OPEN_SUFFIX.length()) + SEALED_SUFFIX);
+        if (!openFile.renameTo(sealed)) {
+            throw new IOException("샤드 이름 변경 실패: " + openFile.getAbsolutePath());
+        }
+        Timber.tag(TAG).i("샤드 봉인 - %s/%s (샘플 멤버 %d개, %dMB)", openDay, sealed.getName(), count, size / (1024 * 1024));
+        openDay = null;
+        openIndex = -1;
+    }
+
+    /**
+     * 지난 날짜 폴더에 남은 .part 봉인 (프로세스당 한 번)
+     */
+    private void sealStale(String today) {
+        File[] days = rootDir.listFiles();
+        if (days == null) {
+            return;
+        }
+        for (File dayDir : days) {
+            if (!dayDir.isDirectory() || dayDir.getName().equals(today)) {
+                continue;
+            }
+            File[] files = new File(dayDir, SHARD_DIR).listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                int index = parseIndex(file.getName());
+                if (index < 0 || !file.getName().endsWith(OPEN_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    open(dayDir.getName(), index, file);
+                    seal();
+                } catch (IOException e) {
+                    Timber.tag(TAG).e(e, "지난 샤드 봉인 실패: %s", file.getAbsolutePath());
+                    closeChannel();
+                }
+            }
+        }
+    }
+
+    /**
+     * tar 멤버 1개 기록 (헤더 + 512 배수로 채운 데이터)
+     *
+     * @return 데이터 시작 위치
+     */
+    private long writeMember(String name, byte[] data, int length, long mtimeMs) throws IOException {
+        fillHeader(name, length, mtimeMs);
+        long dataAt = size + BLOCK;
+        writeFully(channel, ByteBuffer.wrap(header), size);
+        writeFully(channel, ByteBuffer.wrap(data, 0, length), dataAt);
+        int pad = padded(length) - length;
+        if (pad > 0) {
+            writeFully(channel, ByteBuffer.wrap(ZEROS, 0, pad), dataAt + length);
+        }
+        size = dataAt + length + pad;
+        if (!INDEX_NAME.equals(name)) {
+            members.add(new Member(name, dataAt, length));
+            indexBytes += INDEX_ENTRY_FIXED + name.length();
+        }
+        return dataAt;
+    }
+
+    /**
+     * ustar 헤더 (이름 100바이트 이내, 일반 파일)
+     */
+    private void fillHeader(String name, long length, long mtimeMs) {
+        Arrays.fill(header, (byte) 0);
+        byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, NAME_SIZE));
+        putOctal(100, 8, 0644);                         // mode
+        putOctal(108, 8, 0);                            // uid
+        putOctal(116, 8, 0);                            // gid
+        putOctal(SIZE_OFFSET, 12, length);
+        putOctal(136, 12, mtimeMs / 1000);
+        header[156] = '0';                              // 일반 파일
+        byte[] magic = "ustar".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(magic, 0, header, MAGIC_OFFSET, magic.length);
+        header[263] = '0';
+        header[264] = '0';
+
+        putOctal(CHECKSUM_OFFSET, 7, checksum(header));
+        header[CHECKSUM_OFFSET + 7] = ' ';
+    }
+
+    private void putOctal(int offset, int fieldSize, long value) {
+        String digits = String.format(Locale.US, "%0" + (fieldSize - 1) + "o", value);
+        byte[] bytes = digits.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, fieldSize - 1);
+        header[offset + fieldSize - 1] = 0;
+    }
+
+    /**
+     * 헤더 체크섬 (체크섬 칸은 공백으로 계산)
+     */
+    private static long checksum(byte[] block) {
+        long sum = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            boolean inField = i >= CHECKSUM_OFFSET && i < CHECKSUM_OFFSET + 8;
+            sum += inField ? ' ' : (block[i] & 0xFF);
+        }
+        return sum;
+    }
+
+    /**
+     * 처음부터 멤버 헤더 검사 (색인 멤버 / 끝 블록 / 깨진 헤더 / 잘린 데이터에서 멈춤)
+     *
+     * @return 마지막 온전한 멤버의 끝 위치
+     */
+    private static long scan(FileChannel channel, long length, byte[] block, List<Member> out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        long position = 0;
+        while (position + BLOCK <= length) {
+            buffer.clear();
+            readFully(channel, buffer, position);
+            if (!isValidHeader(block)) {
+                break;
+            }
+            String name = readName(block);
+            long memberLength = parseOctal(block, SIZE_OFFSET, 12);
+            long dataEnd = position + BLOCK + memberLength;
+            if (INDEX_NAME.equals(name) || memberLength < 0 || dataEnd > length) {
+                break;
+            }
+            out.add(new Member(name, position + BLOCK, (int) memberLength));
+            position = position + BLOCK + padded(memberLength);
+        }
+        return Math.min(position, length);
+    }
+
+    private static boolean isValidHeader(byte[] block) {
+        if (block[MAGIC_OFFSET] != 'u' || block[MAGIC_OFFSET + 4] != 'r') {
+            return false;
+        }
+        return parseOctal(block, CHECKSUM_OFFSET, 8) == checksum(block);
+    }
+
+    private static String readName(byte[] block) {
+        int length = 0;
+        while (length < NAME_SIZE && block[length] != 0) {
+            length++;
+        }
+        return new String(block, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 8진수 필드 (앞뒤 공백/NUL 무시, 형식이 틀리면 -1)
+     */
+    private static long parseOctal(byte[] block, int offset, int fieldSize) {
+        long value = 0;
+        boolean digits = false;
+        for (int i = offset; i < offset + fieldSize; i++) {
+            byte b = block[i];
+            if (b >= '0' && b <= '7') {
+                value = value * 8 + (b - '0');
+                digits = true;
+            } else if (b == 0 || b == ' ') {
+                if (digits) {
+                    break;
+                }
+            } else {
+                return -1;
+            }
+        }
+        return digits ? value : -1;
+    }
+
+    private static int parseIndex(String fileName) {
+        if (!fileName.startsWith(SHARD_PREFIX)) {
+            return -1;
+        }
+        int dot = fileName.indexOf('.');
+        try {
+            return Integer.parseInt(fileName.substring(SHARD_PREFIX.length(), dot));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static int padded(long length) {
+        return (int) ((length + BLOCK - 1) / BLOCK * BLOCK);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("샤드 파일 끝");
+            }
+            position += read;
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 무시
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.geniecaddie.datacollection;
+
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/**
+ * 스냅샷 JPEG 비동기 저장
+ * - 캡처 쪽은 풀에서 빌린 byte[]에 JPEG을 받고(PLAYGetPicJPEG) 바로 반환 → 저장은 writer 스레드에서
+ * - 버퍼는 MAX_BUFFERS개까지만 만들어 재사용 (캡처마다 수 MB 할당하지 않음)
+ *   모든 버퍼가 저장 대기 중이면 acquire가 null → 호출자는 동기 캡처로 대체 (저장소가 밀릴 때의 상한)
+ * - 원본 + 학습용 축소본(ThumbnailWriter)은 한 번의 저장 작업으로 함께 기록
+ * - 캡처 목록 항목을 함께 넘기면 저장 성공 후 writer 스레드에서 목록에 추가 (CaptureManifest)
+ *   묶음 저장이면 개별 파일 대신 샤드에 기록 (ShardStore)
+ * - 임시 파일에 쓴 뒤 이름 변경 → 중간에 종료돼도 반쯤 쓴 .jpg가 남지 않음
+ * - 대기 건수 / 저장 지연(요청 → 완료) / 실패 건수 기록
+ */
+public class SnapshotWriter {
+    private static final String TAG = "SnapshotWriter";
+
+    // === 버퍼 풀 ===
+    private static final int MAX_BUFFERS = 4;
+    private static final int MIN_BUFFER_SIZE = 512 * 1024;
+
+    // === 통계 ===
+    private static final int LOG_EVERY_WRITES = 20;
+    private static final long SHUTDOWN_WAIT_MS = 5000;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    // 반납된 버퍼 (pool로 동기화)
+    private final ArrayDeque<byte[]> pool = new ArrayDeque<>();
+    private int allocated = 0;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LatencyHistogram writeLatency = new LatencyHistogram();   // writeLatency로 동기화
+    private int maxQueueDepth = 0;
+    private long bytesWritten = 0;
+    private int failures = 0;
+    private int poolExhausted = 0;
+
+    /**
+     * JPEG 버퍼 빌리기 (저장 요청하면 저장 후 자동 반납, 사용하지 않으면 release로 반납)
+     *
+     * @param minSize 필요한 최소 크기
+     * @return 버퍼, 모든 버퍼가 저장 대기 중이면 null
+     */
+    public byte[] acquire(int minSize) {
+        int size = Math.max(minSize, MIN_BUFFER_SIZE);
+        synchronized (pool) {
+            byte[] buffer = pool.pollFirst();
+            if (buffer != null && buffer.length >= size) {
+                return buffer;
+            }
+            if (buffer != null) {
+                allocated--;    // 해상도가 커져서 작은 버퍼는 버림
+            }
+            if (allocated >= MAX_BUFFERS) {
+                poolExhausted++;
+                Timber.tag(TAG).w("JPEG 버퍼 모두 사용 중 (저장 대기 %d건)", queueDepth.get());
+                return null;
+            }
+            allocated++;
+        }
+        return new byte[size];
+    }
+
+    public void release(byte[] buffer) {
+        synchronized (pool) {
+            pool.addLast(buffer);
+        }
+    }
+
+    /**
+     * 파일 저장 요청 (버퍼 소유권이 writer로 넘어감)
+     *
+     * @return 요청 접수 여부 (종료 후에는 false, 버퍼는 반납됨)
+     */
+    public boolean write(byte[] buffer, int length, String filePath) {
+        return write(buffer, length, filePath, null, 0, null, null);
+    }
+
+    /**
+     * 원본 + 축소본 함께 저장 요청 (한 작업으로 연속 기록, 두 버퍼 모두 writer로 넘어감)
+     *
+     * @param thumbBuffer null이면 원본만 저장
+     * @param entry 저장 성공 시 목록에 추가할 항목 (null이면 기록 안 함)
+     * @return 요청 접수 여부 (종료 후에는 false, 버퍼는 반납됨)
+     */
+    public boolean write(final byte[] buffer, final int length, final String filePath,
+                         final byte[] thumbBuffer, final int thumbLength, final String thumbPath,
+                         final CaptureManifest.Entry entry) {
+        final long requestedAt = SystemClock.elapsedRealtime();
+        int depth = queueDepth.incrementAndGet();
+        synchronized (writeLatency) {
+            maxQueueDepth = Math.max(maxQueueDepth, depth);
+        }
+
+        try {
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    boolean success;
+                    int written = length;
+                    if (entry != null && entry.storeInShard(buffer, length, thumbBuffer, thumbLength)) {
+                        success = true;
+                        written += thumbBuffer != null ? thumbLength : 0;
+                    } else {
+                        success = writeFile(buffer, length, filePath);
+                        // 원본 저장에 실패하면 짝 없는 축소본은 남기지 않음
+                        if (success && thumbBuffer != null) {
+                            success = writeFile(thumbBuffer, thumbLength, thumbPath);
+                            written += thumbLength;
+                        }
+                        if (success && entry != null) {
+                            entry.fileLength = length;
+                            entry.commit();
+                        }
+                    }
+                    release(buffer);
+                    if (thumbBuffer != null) {
+                        release(thumbBuffer);
+                    }
+                    queueDepth.decrementAndGet();
+                    record(SystemClock.elapsedRealtime() - requestedAt, written, success);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            Timber.tag(TAG).w("종료된 writer에 저장 요청 - 무시: %s", filePath);
+            queueDepth.decrementAndGet();
+            release(buffer);
+            if (thumbBuffer != null) {
+                release(thumbBuffer);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 앞서 요청한 저장(축소본 등)이 끝난 뒤 목록에 추가 - SDK가 직접 파일로 저장한 캡처용
+     * (묶음 저장이면 이때 축소본까지 함께 샤드로 옮김)
+     */
+    public void commitAfterPending(final CaptureManifest.Entry entry) {
+        try {
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    entry.commit();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.commit();
+        }
+    }
+
+    /**
+     * 저장 대기 건수
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * 통계 요약 (한 줄)
+     */
+    public String formatStats() {
+        synchronized (writeLatency) {
+            return String.format(Locale.US,
+                "저장 %d건 (%dKB), 실패 %d, 대기 %d (최대 %d), 버퍼 부족 %d, 지연 p50 %dms p95 %dms max %dms",
+                writeLatency.getCount(), bytesWritten / 1024, failures, queueDepth.get(), maxQueueDepth,
+                poolExhausted, writeLatency.percentile(50), writeLatency.percentile(95), writeLatency.getMax());
+        }
+    }
+
+    /**
+     * 종료 (대기 중인 저장은 끝까지 수행, Activity onDestroy)
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                Timber.tag(TAG).w("저장 대기 시간 초과 - 남은 %d건", queueDepth.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Timber.tag(TAG).i("스냅샷 저장 종료 - %s", formatStats());
+    }
+
+    private void record(long latencyMs, int length, boolean success) {
+        long count;
+        synchronized (writeLatency) {
+            writeLatency.record(latencyMs);
+            if (success) {
+                bytesWritten += length;
+            } else {
+                failures++;
+            }
+            count = writeLatency.getCount();
+        }
+
+        Timber.tag(TAG).d("저장 %s - %dKB, %dms (대기 %d건)",
+            success ? "완료" : "실패", length / 1024, latencyMs, queueDepth.get());
+        if (count % LOG_EVERY_WRITES == 0) {
+            Timber.tag(TAG).i("스냅샷 저장 통계 - %s", formatStats());
+        }
+    }
+
+    private static boolean writeFile(byte[] buffer, int length, String filePath) {
+        File target = new File(filePath);
+        File temp = new File(filePath + TEMP_SUFFIX);
+        try {
+            File dir = target.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                Timber.tag(TAG).e("저장 폴더 생성 실패: %s", dir.getAbsolutePath());
+                return false;
+            }
+
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(buffer, 0, length);
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(target)) {
+                Timber.tag(TAG).e("저장 파일 이름 변경 실패: %s", filePath);
+                temp.delete();
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            Timber.tag(TAG).e(e, "스냅샷 저장 실패: %s", filePath);
+            temp.delete();
+            return false;
+        }
+    }
+}
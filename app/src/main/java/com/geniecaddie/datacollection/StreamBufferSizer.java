@@ -0,0 +1,185 @@
+package com.geniecaddie.datacollection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+
+import com.company.PlaySDK.IPlaySDK;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * PLAYOpenStream 소스 버퍼 크기 학습 (스트림별)
+ * - 재생 중 1초마다 입력 바이트율(StreamFeeder)과 소스 버퍼 잔량(PLAYGetSourceBufferRemain)을 샘플링
+ * - 스트림 종료 시 다음 크기 결정
+ *   · 기본: 최대 바이트율 × HEADROOM_SECONDS
+ *   · 버퍼가 75% 이상 찼거나 PLAYInputData가 거부된 데이터가 있으면 최소 2배로 확대
+ *   · 25% 미만으로만 쓰였으면 절반까지만 축소 (한 번에 급감하지 않도록)
+ * - 결과는 SharedPreferences "stream_buffer"에 스트림 키별로 저장 → 다음 세션에서 사용
+ */
+public class StreamBufferSizer {
+    private static final String TAG = "StreamBufferSizer";
+
+    private static final String PREFS_NAME = "stream_buffer";
+
+    // === 크기 정책 ===
+    private static final int DEFAULT_BUF_SIZE = 2 * 1024 * 1024;    // 학습 전 기본값 (기존 고정값)
+    private static final int MIN_BUF_SIZE = 256 * 1024;
+    private static final int MAX_BUF_SIZE = 16 * 1024 * 1024;
+    private static final int SIZE_ALIGN = 64 * 1024;
+    private static final int HEADROOM_SECONDS = 2;
+    private static final float GROW_FILL_RATIO = 0.75f;
+    private static final float SHRINK_FILL_RATIO = 0.25f;
+
+    // === 샘플링 ===
+    private static final long SAMPLE_INTERVAL_MS = 1000;
+    private static final int MIN_SAMPLES = 5;                      // 이보다 짧은 재생은 학습하지 않음
+
+    /**
+     * 재생 중인 스트림 1개의 측정 상태 (sampler 스레드에서만 갱신)
+     */
+    public class Measurement {
+        final int port;
+        final String streamKey;
+        final int bufferSize;
+        final StreamFeeder feeder;
+        ScheduledFuture<?> task;
+
+        long lastBytesIn = -1;      // 첫 샘플에서 기준값 설정 (피더는 포트를 연 뒤에 시작됨)
+        long lastSampleAt;
+        long peakBytesPerSec = 0;
+        int peakRemain = 0;
+        int peakReportedBitRate = 0;
+        int samples = 0;
+
+        Measurement(int port, String streamKey, int bufferSize, StreamFeeder feeder) {
+            this.port = port;
+            this.streamKey = streamKey;
+            this.bufferSize = bufferSize;
+            this.feeder = feeder;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+
+    public StreamBufferSizer(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 스트림에 사용할 소스 버퍼 크기 (학습값, 없으면 기본값)
+     */
+    public int sizeFor(String streamKey) {
+        return prefs.getInt(streamKey, DEFAULT_BUF_SIZE);
+    }
+
+    /**
+     * 측정 시작 (PLAYOpenStream 성공 후)
+     */
+    public Measurement start(int port, String streamKey, int bufferSize, StreamFeeder feeder) {
+        final Measurement measurement = new Measurement(port, streamKey, bufferSize, feeder);
+        measurement.task = sampler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sample(measurement);
+            }
+        }, SAMPLE_INTERVAL_MS, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        return measurement;
+    }
+
+    /**
+     * 측정 종료 및 학습 (포트를 닫기 전에 호출, 호출 스레드를 막지 않음)
+     */
+    public void finish(final Measurement measurement) {
+        if (measurement == null) {
+            return;
+        }
+        measurement.task.cancel(false);
+
+        // 취소 후 같은 스레드에서 처리하므로 진행 중이던 sample()과 겹치지 않음
+        final long rejected = measurement.feeder.getBytesRejected();
+        sampler.execute(new Runnable() {
+            @Override
+            public void run() {
+                learn(measurement, rejected);
+            }
+        });
+    }
+
+    public void shutdown() {
+        sampler.shutdown();
+    }
+
+    /**
+     * 1초 샘플 (sampler 스레드)
+     */
+    private void sample(Measurement measurement) {
+        long now = SystemClock.elapsedRealtime();
+        long bytesIn = measurement.feeder.getBytesIn();
+        long elapsed = now - measurement.lastSampleAt;
+        if (measurement.lastBytesIn < 0 || bytesIn < measurement.lastBytesIn) {
+            measurement.lastBytesIn = bytesIn;     // 기준값 (첫 샘플 또는 피더 재시작)
+            measurement.lastSampleAt = now;
+            return;
+        }
+        if (elapsed <= 0) {
+            return;
+        }
+
+        long bytesPerSec = (bytesIn - measurement.lastBytesIn) * 1000 / elapsed;
+        measurement.lastBytesIn = bytesIn;
+        measurement.lastSampleAt = now;
+        measurement.peakBytesPerSec = Math.max(measurement.peakBytesPerSec, bytesPerSec);
+
+        int remain = IPlaySDK.PLAYGetSourceBufferRemain(measurement.port);
+        measurement.peakRemain = Math.max(measurement.peakRemain, remain);
+
+        // 디코더가 보고하는 비트레이트는 비교/로그용
+        Integer bitRate = PlaySdkOutParams.newInt();     // JNI가 값을 채움
+        if (IPlaySDK.PLAYGetRealFrameBitRate(measurement.port, bitRate) != 0) {
+            measurement.peakReportedBitRate = Math.max(measurement.peakReportedBitRate, bitRate);
+        }
+
+        measurement.samples++;
+    }
+
+    /**
+     * 다음 세션 버퍼 크기 결정 (sampler 스레드)
+     */
+    private void learn(Measurement measurement, long rejectedBytes) {
+        if (measurement.samples < MIN_SAMPLES || measurement.peakBytesPerSec == 0) {
+            return;
+        }
+
+        int current = measurement.bufferSize;
+        float peakFill = (float) measurement.peakRemain / current;
+
+        long target = measurement.peakBytesPerSec * HEADROOM_SECONDS;
+        if (peakFill >= GROW_FILL_RATIO || rejectedBytes > 0) {
+            target = Math.max(target, (long) current * 2);
+        } else if (peakFill < SHRINK_FILL_RATIO) {
+            target = Math.max(target, current / 2);
+        } else {
+            target = Math.max(target, current);
+        }
+
+        int next = align((int) Math.min(MAX_BUF_SIZE, Math.max(MIN_BUF_SIZE, target)));
+        if (next != current || !prefs.contains(measurement.streamKey)) {
+            prefs.edit().putInt(measurement.streamKey, next).apply();
+        }
+
+        Timber.tag(TAG).i("버퍼 학습 - %s: %dKB → %dKB (최대 입력 %dKB/s, 디코더 보고 %d, 최대 점유 %d%%, 거부 %d bytes)",
+            measurement.streamKey, current / 1024, next / 1024, measurement.peakBytesPerSec / 1024,
+            measurement.peakReportedBitRate, (int) (peakFill * 100), rejectedBytes);
+    }
+
+    private static int align(int size) {
+        return (size + SIZE_ALIGN - 1) / SIZE_ALIGN * SIZE_ALIGN;
+    }
+}
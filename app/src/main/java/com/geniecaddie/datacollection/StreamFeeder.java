@@ -0,0 +1,411 @@
+package com.geniecaddie.datacollection;
+
+import com.company.PlaySDK.IPlaySDK;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import timber.log.Timber;
+
+/**
+ * NetSDK 실시간 데이터 콜백 → PlaySDK 디코더 사이의 버퍼
+ *
+ * NetSDK 네트워크 스레드(생산자)는 미리 할당된 링 버퍼에 복사만 하고 바로 반환하며,
+ * 전용 피더 스레드(소비자)가 꺼내서 PLAYInputData로 넘김
+ * → 디코딩이 느려져도 소켓 읽기가 멈추지 않음
+ *
+ * 링 레코드 형식: [길이 4바이트][데이터] (링 끝에서 감싸 돌아감)
+ *
+ * 백프레셔 정책:
+ * - 링에 공간이 없으면 해당 청크를 버리고 드롭 모드로 전환
+ * - 드롭 모드에서는 다음 I-프레임(DHAV 0xFD)까지 전부 버림 (P-프레임만 넣으면 화면이 깨지므로)
+ * - 한 프레임이 여러 청크로 오면 DHAV 헤더가 없는 이어지는 청크는 앞 프레임의 일부
+ *   → DHAV 스트림을 한 번 본 뒤에는 헤더 없는 청크에서 다시 넣기 시작하지 않음
+ *   (DHAV를 못 본 다른 포맷은 판별 불가하므로 모든 청크에서 재개)
+ *
+ * I-프레임 전용 모드: 모자이크의 비포커스 타일처럼 프레임레이트를 낮춰도 되는 경우
+ * DHAV P-프레임을 넣지 않아 디코딩량을 GOP 길이만큼 줄임
+ *
+ * 늦은 프레임 드롭 모드: 실시간 재생 프로파일에서 디코더가 입력을 거부하면(지연 한계 초과)
+ * 재시도하지 않고 다음 I-프레임까지 버려서 화면이 실제 장면보다 뒤처지지 않도록 함
+ */
+public class StreamFeeder {
+    private static final String TAG = "StreamFeeder";
+
+    // === 버퍼 상수 ===
+    private static final int DEFAULT_RING_CAPACITY = 4 * 1024 * 1024;  // 4MB (메인 스트림)
+    private static final int DEFAULT_MAX_CHUNK_SIZE = 1024 * 1024;     // 1MB (4K I-프레임 수용)
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    // === 피더 스레드 대기 상수 ===
+    private static final long IDLE_PARK_NS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long INPUT_RETRY_PARK_NS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final int MAX_INPUT_RETRIES = 50;               // 디코더 입력 실패 시 최대 100ms 재시도
+    private static final long STOP_WARN_MS = 500;                  // 종료 대기 경고 간격
+
+    /**
+     * 수신 데이터 관찰자 (NetSDK 네트워크 스레드에서 호출되므로 복사만 하고 바로 반환해야 함)
+     */
+    public interface Tap {
+        void onData(byte[] buffer, int size);
+    }
+
+    // DHAV 프레임 헤더 (Dahua 원시 스트림)
+    private static final int DHAV_TYPE_OFFSET = 4;
+    private static final byte DHAV_TYPE_I_FRAME = (byte) 0xFD;
+
+    private final int ringCapacity;
+    private final int ringMask;
+    private final int maxChunkSize;
+    private final byte[] ring;
+    private final byte[] scratch;       // 피더 스레드 전용
+
+    // 단일 생산자/단일 소비자 위치 (단조 증가, 인덱스는 & ringMask)
+    private final AtomicLong writePos = new AtomicLong();
+    private final AtomicLong readPos = new AtomicLong();
+
+    private volatile boolean running = false;
+    private volatile int port = -1;
+    private Thread feederThread;
+
+    // 생산자 스레드 전용 상태 (start()는 producerReset으로 초기화 요청만 함)
+    private volatile boolean producerReset = false;
+    private boolean dropping = false;
+    private boolean producerDhavSeen = false;
+    private boolean skippingFrame = false;      // I-프레임 전용 모드로 건너뛰는 프레임의 이어지는 청크
+    private volatile boolean keyFramesOnly = false;
+    private volatile boolean dropLateFrames = false;
+    private volatile Tap tap;
+
+    // 소비자 스레드 전용 상태 (피더 스레드 시작 전에 초기화)
+    private boolean skippingLate = false;
+    private boolean consumerDhavSeen = false;
+
+    // 통계 (각 카운터는 한 스레드만 씀)
+    private volatile long bytesIn = 0;          // 생산자
+    private volatile long bytesDropped = 0;     // 생산자
+    private volatile long bytesFailed = 0;      // 소비자 (디코더가 끝내 거부한 데이터)
+    private volatile long bytesFed = 0;         // 소비자
+    private volatile long bytesSkipped = 0;     // 생산자 (I-프레임 전용 모드로 건너뛴 데이터)
+    private volatile long bytesLate = 0;        // 소비자 (늦은 프레임 드롭 모드로 버린 데이터)
+
+    public StreamFeeder() {
+        this(DEFAULT_RING_CAPACITY, DEFAULT_MAX_CHUNK_SIZE);
+    }
+
+    /**
+     * @param ringCapacity 링 크기 (2의 거듭제곱)
+     * @param maxChunkSize 콜백 청크 최대 크기 (초과 청크는 드롭)
+     */
+    public StreamFeeder(int ringCapacity, int maxChunkSize) {
+        if (Integer.bitCount(ringCapacity) != 1 || maxChunkSize > ringCapacity) {
+            throw new IllegalArgumentException("ringCapacity는 2의 거듭제곱이어야 함: " + ringCapacity);
+        }
+        this.ringCapacity = ringCapacity;
+        this.ringMask = ringCapacity - 1;
+        this.maxChunkSize = maxChunkSize;
+        this.ring = new byte[ringCapacity];
+        this.scratch = new byte[maxChunkSize];
+    }
+
+    /**
+     * 피더 시작 (RealPlayEx 성공 후, 데이터 콜백 등록 전에 호출)
+     */
+    public synchronized void start(int playPort) {
+        if (running) {
+            stop();
+        }
+
+        writePos.set(0);
+        readPos.set(0);
+        producerReset = true;   // 생산자가 다음 offer에서 드롭 모드로 초기화 (첫 I-프레임부터 넣기 시작)
+        skippingLate = false;
+        consumerDhavSeen = false;
+        bytesIn = 0;
+        bytesDropped = 0;
+        bytesFailed = 0;
+        bytesFed = 0;
+        bytesSkipped = 0;
+        bytesLate = 0;
+
+        port = playPort;
+        running = true;
+
+        feederThread = new Thread(this::feedLoop, "StreamFeeder-" + playPort);
+        feederThread.start();
+        Timber.tag(TAG).d("피더 시작 - Port: %d", playPort);
+    }
+
+    /**
+     * 피더 중지 (포트를 닫기 전에 호출)
+     * 피더 스레드가 실제로 끝날 때까지 대기 → 반환 후에는 해당 포트로 PLAYInputData가 더 이상 호출되지 않음
+     * (PLAYInputData 안에 머무는 동안 포트를 닫으면 안 되므로 시간 제한 없이 기다리고 경고만 남김)
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        Thread thread = feederThread;
+        feederThread = null;
+
+        if (thread != null) {
+            boolean interrupted = false;
+            long waitStart = System.currentTimeMillis();
+            while (thread.isAlive()) {
+                LockSupport.unpark(thread);
+                try {
+                    thread.join(STOP_WARN_MS);
+                } catch (InterruptedException e) {
+                    interrupted = true;     // 포트 보호가 우선 - 끝날 때까지 계속 대기
+                }
+                if (thread.isAlive()) {
+                    Timber.tag(TAG).w("피더 스레드 종료 대기 중 - Port: %d (%dms, 디코더 입력 중)",
+                        port, System.currentTimeMillis() - waitStart);
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Timber.tag(TAG).i("피더 종료 - Port: %d, 입력: %d, 디코더 전달: %d, 드롭: %d bytes (늦은 프레임 %d)",
+            port, bytesIn, bytesFed, getBytesDropped(), bytesLate);
+        port = -1;
+    }
+
+    /**
+     * 데이터 넣기 (NetSDK 네트워크 스레드에서만 호출)
+     *
+     * @param buffer 콜백 버퍼 (size 이후는 쓰레기일 수 있음)
+     * @param size   유효 데이터 길이 (bufSize)
+     */
+    public void offer(byte[] buffer, int size) {
+        if (!running || size <= 0) {
+            return;
+        }
+
+        bytesIn += size;
+
+        Tap currentTap = tap;
+        if (currentTap != null) {
+            currentTap.onData(buffer, size);
+        }
+
+        if (producerReset) {
+            producerReset = false;
+            dropping = true;
+            producerDhavSeen = false;
+            skippingFrame = false;
+        }
+
+        boolean header = isDhavFrame(buffer, size);
+        producerDhavSeen |= header;
+        boolean resync = isResyncPoint(buffer, size, producerDhavSeen);
+
+        // 프레임 단위로 판단 - 헤더 청크에서 정하고 이어지는 청크는 같은 결정을 따름
+        if (header) {
+            skippingFrame = keyFramesOnly && !resync;
+        }
+        if (skippingFrame) {
+            bytesSkipped += size;
+            return;
+        }
+
+        if (dropping && !resync) {
+            bytesDropped += size;
+            return;
+        }
+
+        int recordSize = RECORD_HEADER_SIZE + size;
+        long write = writePos.get();
+        long free = ringCapacity - (write - readPos.get());
+
+        if (size > maxChunkSize || recordSize > free) {
+            if (!dropping) {
+                Timber.tag(TAG).w("디코더 지연 - 다음 I-프레임까지 드롭 (Port: %d)", port);
+            }
+            dropping = true;
+            bytesDropped += size;
+            return;
+        }
+
+        dropping = false;
+        putInt(write, size);
+        putBytes(write + RECORD_HEADER_SIZE, buffer, size);
+        writePos.lazySet(write + recordSize);
+    }
+
+    /**
+     * I-프레임 전용 모드 설정 (DHAV 스트림에서만 유효, 다음 청크부터 적용)
+     */
+    public void setKeyFramesOnly(boolean keyFramesOnly) {
+        this.keyFramesOnly = keyFramesOnly;
+    }
+
+    public boolean isKeyFramesOnly() {
+        return keyFramesOnly;
+    }
+
+    /**
+     * 늦은 프레임 드롭 모드 설정 (PlaybackProfile.dropsLateFrames)
+     */
+    public void setDropLateFrames(boolean dropLateFrames) {
+        this.dropLateFrames = dropLateFrames;
+    }
+
+    /**
+     * 수신 데이터 관찰자 설정 (null이면 해제)
+     */
+    public void setTap(Tap tap) {
+        this.tap = tap;
+    }
+
+    public long getBytesSkipped() {
+        return bytesSkipped;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesFed() {
+        return bytesFed;
+    }
+
+    public long getBytesDropped() {
+        return bytesDropped + bytesFailed + bytesLate;
+    }
+
+    public long getBytesLate() {
+        return bytesLate;
+    }
+
+    /**
+     * 디코더 소스 버퍼가 가득 차서 끝내 넣지 못한 데이터
+     */
+    public long getBytesRejected() {
+        return bytesFailed;
+    }
+
+    /**
+     * 피더 스레드 루프 (소비자)
+     */
+    private void feedLoop() {
+        final int feedPort = port;
+
+        while (running) {
+            long read = readPos.get();
+            if (read == writePos.get()) {
+                LockSupport.parkNanos(IDLE_PARK_NS);
+                continue;
+            }
+
+            // 링에서 꺼낸 뒤 바로 공간 반환 (디코더 대기 중에도 생산자가 쓸 수 있도록)
+            int size = getInt(read);
+            getBytes(read + RECORD_HEADER_SIZE, scratch, size);
+            readPos.lazySet(read + RECORD_HEADER_SIZE + size);
+
+            consumerDhavSeen |= isDhavFrame(scratch, size);
+            if (skippingLate) {
+                if (!isResyncPoint(scratch, size, consumerDhavSeen)) {
+                    bytesLate += size;
+                    continue;
+                }
+                skippingLate = false;
+            }
+
+            feed(feedPort, size);
+        }
+    }
+
+    /**
+     * 디코더에 전달 (버퍼가 가득 찼으면 잠시 대기 후 재시도)
+     * 늦은 프레임 드롭 모드에서는 재시도 없이 다음 I-프레임까지 건너뜀
+     */
+    private void feed(int feedPort, int size) {
+        if (dropLateFrames) {
+            if (IPlaySDK.PLAYInputData(feedPort, scratch, size) != 0) {
+                bytesFed += size;
+            } else {
+                skippingLate = true;
+                bytesLate += size;
+            }
+            return;
+        }
+
+        for (int attempt = 0; attempt < MAX_INPUT_RETRIES && running; attempt++) {
+            if (IPlaySDK.PLAYInputData(feedPort, scratch, size) != 0) {
+                bytesFed += size;
+                return;
+            }
+            LockSupport.parkNanos(INPUT_RETRY_PARK_NS);
+        }
+        bytesFailed += size;
+    }
+
+    /**
+     * 드롭 모드에서 다시 넣기 시작해도 되는 청크인지 (스트림 상태 포함)
+     * DHAV 스트림이면 I-프레임 헤더 청크만 허용 (헤더 없는 청크는 앞 프레임의 이어지는 부분)
+     *
+     * @param dhavSeen 이 스트림에서 DHAV 헤더를 본 적 있는지
+     */
+    private static boolean isResyncPoint(byte[] buffer, int size, boolean dhavSeen) {
+        if (isDhavFrame(buffer, size)) {
+            return buffer[DHAV_TYPE_OFFSET] == DHAV_TYPE_I_FRAME;
+        }
+        return !dhavSeen;
+    }
+
+    /**
+     * 청크 단독 판단 (스트림 상태 없이)
+     * DHAV 프레임이면 I-프레임만 허용, 그 외 포맷은 판별 불가하므로 허용
+     */
+    static boolean isResyncPoint(byte[] buffer, int size) {
+        if (!isDhavFrame(buffer, size)) {
+            return true;
+        }
+        return buffer[DHAV_TYPE_OFFSET] == DHAV_TYPE_I_FRAME;
+    }
+
+    static boolean isDhavFrame(byte[] buffer, int size) {
+        return size > DHAV_TYPE_OFFSET
+            && buffer[0] == 'D' && buffer[1] == 'H' && buffer[2] == 'A' && buffer[3] == 'V';
+    }
+
+    // ========== 링 버퍼 접근 ==========
+
+    private void putInt(long pos, int value) {
+        ring[(int) (pos & ringMask)] = (byte) (value >>> 24);
+        ring[(int) ((pos + 1) & ringMask)] = (byte) (value >>> 16);
+        ring[(int) ((pos + 2) & ringMask)] = (byte) (value >>> 8);
+        ring[(int) ((pos + 3) & ringMask)] = (byte) value;
+    }
+
+    private int getInt(long pos) {
+        return ((ring[(int) (pos & ringMask)] & 0xFF) << 24)
+            | ((ring[(int) ((pos + 1) & ringMask)] & 0xFF) << 16)
+            | ((ring[(int) ((pos + 2) & ringMask)] & 0xFF) << 8)
+            | (ring[(int) ((pos + 3) & ringMask)] & 0xFF);
+    }
+
+    private void putBytes(long pos, byte[] src, int length) {
+        int index = (int) (pos & ringMask);
+        int first = Math.min(length, ringCapacity - index);
+        System.arraycopy(src, 0, ring, index, first);
+        if (first < length) {
+            System.arraycopy(src, first, ring, 0, length - first);
+        }
+    }
+
+    private void getBytes(long pos, byte[] dst, int length) {
+        int index = (int) (pos & ringMask);
+        int first = Math.min(length, ringCapacity - index);
+        System.arraycopy(ring, index, dst, 0, first);
+        if (first < length) {
+            System.arraycopy(ring, 0, dst, first, length - first);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.geniecaddie.datacollection;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/**
+ * 스트림 상태 감시 + 자동 재연결
+ * - 장비 끊김/자동 재연결 콜백 구독 (DeviceConnectionEvents)
+ * - 정지 감지: 실시간 데이터 입력 바이트(StreamFeeder)가 늘지 않거나
+ *   데이터는 오는데 PLAYGetCurrentFrameRate가 0으로 유지되면 정지로 판단
+ * - 재연결: 지터가 섞인 지수 백오프로 Listener에 재연결 요청
+ *   (실제 연결은 사용자 탭과 같은 경로를 타도록 Activity가 수행)
+ * - 카메라별 연결 유지 시간 / 재연결 횟수 집계
+ *
+ * 상태는 scheduler 스레드에서만 변경됨 (공개 메서드는 작업을 넘기기만 함)
+ */
+public class StreamHealthSupervisor implements DeviceConnectionEvents.Listener {
+    private static final String TAG = "StreamHealth";
+
+    // === 감시 상수 ===
+    private static final long CHECK_INTERVAL_MS = 1000;
+    private static final long STARTUP_GRACE_MS = 5000;         // 연결 직후 첫 I-프레임 대기
+    private static final long STALL_TIMEOUT_MS = 5000;         // 이 시간 동안 진행 없으면 정지
+
+    // === 백오프 상수 ===
+    private static final long BACKOFF_BASE_MS = 1000;
+    private static final long BACKOFF_MAX_MS = 30 * 1000;
+
+    /**
+     * 재연결 요청 리스너 (UI 스레드에서 호출)
+     */
+    public interface Listener {
+        void onReconnectRequested(int cameraIndex);
+    }
+
+    /**
+     * 카메라별 상태 통계
+     */
+    public static class CameraHealth {
+        long totalUptimeMs = 0;
+        long connectedAt = 0;          // 0이면 현재 미연결
+        int reconnectCount = 0;        // 자동 재연결 성공 횟수
+        int stallCount = 0;            // 정지 감지 횟수
+        int disconnectCount = 0;       // 장비 끊김 콜백 횟수
+
+        public long getUptimeMs() {
+            long uptime = totalUptimeMs;
+            if (connectedAt != 0) {
+                uptime += SystemClock.elapsedRealtime() - connectedAt;
+            }
+            return uptime;
+        }
+
+        public int getReconnectCount() {
+            return reconnectCount;
+        }
+
+        public int getStallCount() {
+            return stallCount;
+        }
+
+        public int getDisconnectCount() {
+            return disconnectCount;
+        }
+
+        CameraHealth copy() {
+            CameraHealth copy = new CameraHealth();
+            copy.totalUptimeMs = totalUptimeMs;
+            copy.connectedAt = connectedAt;
+            copy.reconnectCount = reconnectCount;
+            copy.stallCount = stallCount;
+            copy.disconnectCount = disconnectCount;
+            return copy;
+        }
+    }
+
+    private final CameraConnectionManager connectionManager;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private final CameraHealth[] health;
+
+    // scheduler 스레드 전용 상태
+    private int watchedIndex = -1;
+    private long watchStartedAt = 0;
+    private long lastBytesIn = 0;
+    private long lastProgressAt = 0;
+    private long zeroFrameRateSince = 0;
+    private boolean recovering = false;
+    private int attempt = 0;
+    private ScheduledFuture<?> checkTask;
+    private ScheduledFuture<?> retryTask;
+
+    // unwatch마다 증가 (호출 스레드에서 바로) - 이미 UI 스레드에 올라간 재연결 요청을 무효화
+    private final AtomicInteger generation = new AtomicInteger();
+
+    public StreamHealthSupervisor(CameraConnectionManager connectionManager, Listener listener) {
+        this.connectionManager = connectionManager;
+        this.listener = listener;
+        this.health = new CameraHealth[CameraConfig.getCameraCount()];
+        for (int i = 0; i < health.length; i++) {
+            health[i] = new CameraHealth();
+        }
+        DeviceConnectionEvents.addListener(this);
+    }
+
+    /**
+     * 연결 성공 알림 - 해당 카메라 감시 시작
+     */
+    public void watch(final int cameraIndex) {
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean wasRecovery = recovering && watchedIndex == cameraIndex;
+                stopWatching();
+
+                watchedIndex = cameraIndex;
+                long now = SystemClock.elapsedRealtime();
+                watchStartedAt = now;
+                lastBytesIn = 0;
+                lastProgressAt = now;
+                zeroFrameRateSince = 0;
+                CameraHealth cameraHealth = health[cameraIndex];
+                synchronized (cameraHealth) {
+                    cameraHealth.connectedAt = now;
+                    if (wasRecovery) {
+                        cameraHealth.reconnectCount++;
+                    }
+                }
+
+                if (wasRecovery) {
+                    Timber.tag(TAG).i("재연결 성공 - 카메라 %d (시도 %d회, 누적 재연결 %d회)",
+                        cameraIndex, attempt, cameraHealth.reconnectCount);
+                }
+                recovering = false;
+                attempt = 0;
+
+                checkTask = scheduler.scheduleWithFixedDelay(StreamHealthSupervisor.this::check,
+                    CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    /**
+     * 연결 실패 알림 - 가장 최근에 실패한 카메라를 백오프 후 재시도
+     * 다른 카메라를 복구 중이었으면 그 복구는 버리고 새 카메라로 처음부터 (사용자가 마지막으로 고른 카메라 우선)
+     */
+    public void connectFailed(final int cameraIndex) {
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                stopWatching();
+                if (!recovering || watchedIndex != cameraIndex) {
+                    attempt = 0;
+                }
+                watchedIndex = cameraIndex;
+                recovering = true;
+                scheduleRetry();
+            }
+        });
+    }
+
+    /**
+     * 감시 중지 (Activity onPause, 모자이크 전환 등 의도적인 연결 종료)
+     */
+    public void unwatch() {
+        generation.incrementAndGet();
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                stopWatching();
+                recovering = false;
+                attempt = 0;
+                watchedIndex = -1;
+            }
+        });
+    }
+
+    /**
+     * 카메라별 상태 통계 (스냅샷)
+     */
+    public CameraHealth getHealth(int cameraIndex) {
+        CameraHealth source = health[cameraIndex];
+        synchronized (source) {
+            return source.copy();
+        }
+    }
+
+    /**
+     * 전체 카메라 상태 요약 (로그/통계 파일용)
+     */
+    public String getSummary() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < health.length; i++) {
+            CameraHealth snapshot = getHealth(i);
+            CameraInfo camera = CameraConfig.getCamera(i);
+            builder.append(String.format(Locale.US, "%s: 연결 %ds, 재연결 %d, 정지 %d, 끊김 %d%n",
+                camera != null ? camera.getName() : String.valueOf(i),
+                snapshot.getUptimeMs() / 1000, snapshot.reconnectCount,
+                snapshot.stallCount, snapshot.disconnectCount));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 종료 (Activity onDestroy)
+     */
+    public void release() {
+        DeviceConnectionEvents.removeListener(this);
+        scheduler.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+        Timber.tag(TAG).i("스트림 감시 종료%n%s", getSummary());
+    }
+
+    // ========== DeviceConnectionEvents.Listener (NetSDK 스레드) ==========
+
+    @Override
+    public void onDeviceDisconnected(long loginHandle, final String ip, final int port) {
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!isWatchedEndpoint(ip, port)) {
+                    return;
+                }
+                synchronized (health[watchedIndex]) {
+                    health[watchedIndex].disconnectCount++;
+                }
+                startRecovery("장비 연결 끊김");
+            }
+        });
+    }
+
+    @Override
+    public void onDeviceReconnected(long loginHandle, final String ip, final int port) {
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                // 장비가 돌아왔으면 백오프 대기 없이 바로 재연결 시도
+                if (recovering && isWatchedEndpoint(ip, port)) {
+                    Timber.tag(TAG).i("장비 복귀 - 즉시 재연결 시도");
+                    cancelRetry();
+                    requestReconnect();
+                }
+            }
+        });
+    }
+
+    // ========== scheduler 스레드 ==========
+
+    /**
+     * 주기 점검 - 입력 바이트/프레임레이트 진행 확인
+     */
+    private void check() {
+        if (watchedIndex < 0 || recovering) {
+            return;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        if (now - watchStartedAt < STARTUP_GRACE_MS) {
+            return;
+        }
+
+        long bytesIn = connectionManager.getStreamFeeder().getBytesIn();
+        if (bytesIn != lastBytesIn) {
+            lastBytesIn = bytesIn;
+            lastProgressAt = now;
+        } else if (now - lastProgressAt >= STALL_TIMEOUT_MS) {
+            markStalled(String.format(Locale.US, "입력 없음 %dms", now - lastProgressAt));
+            return;
+        }
+
+        int frameRate = connectionManager.getCurrentFrameRate();
+        if (frameRate > 0) {
+            zeroFrameRateSince = 0;
+        } else if (zeroFrameRateSince == 0) {
+            zeroFrameRateSince = now;
+        } else if (now - zeroFrameRateSince >= STALL_TIMEOUT_MS) {
+            markStalled(String.format(Locale.US, "디코딩 프레임 없음 %dms", now - zeroFrameRateSince));
+        }
+    }
+
+    private void markStalled(String reason) {
+        synchronized (health[watchedIndex]) {
+            health[watchedIndex].stallCount++;
+        }
+        startRecovery("스트림 정지 (" + reason + ")");
+    }
+
+    private void startRecovery(String reason) {
+        if (recovering) {
+            return;
+        }
+        Timber.tag(TAG).w("카메라 %d %s - 자동 재연결 시작", watchedIndex, reason);
+        stopWatching();
+        recovering = true;
+        attempt = 0;
+        scheduleRetry();
+    }
+
+    private void scheduleRetry() {
+        cancelRetry();
+        long delay = backoffDelay(attempt);
+        Timber.tag(TAG).d("카메라 %d 재연결 %d회차 - %dms 후", watchedIndex, attempt + 1, delay);
+        retryTask = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                requestReconnect();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void requestReconnect() {
+        if (!recovering || watchedIndex < 0) {
+            return;
+        }
+        attempt++;
+        final int cameraIndex = watchedIndex;
+        final int requestedIn = generation.get();
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (requestedIn != generation.get()) {
+                    return;     // 요청 후 사용자 전환/의도적 종료로 취소됨
+                }
+                listener.onReconnectRequested(cameraIndex);
+            }
+        });
+    }
+
+    /**
+     * 지터 섞인 지수 백오프: [d/2, d) 구간 균등 분포 (d = base * 2^attempt, 상한 적용)
+     * 여러 카메라가 동시에 끊겨도 재연결 시점이 흩어지도록 함
+     */
+    private long backoffDelay(int attempt) {
+        long delay = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(attempt, 16));
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * half);
+    }
+
+    /**
+     * 현재 감시 종료 (연결 유지 시간 누적)
+     */
+    private void stopWatching() {
+        if (checkTask != null) {
+            checkTask.cancel(false);
+            checkTask = null;
+        }
+        cancelRetry();
+
+        if (watchedIndex >= 0) {
+            CameraHealth cameraHealth = health[watchedIndex];
+            synchronized (cameraHealth) {
+                if (cameraHealth.connectedAt != 0) {
+                    cameraHealth.totalUptimeMs += SystemClock.elapsedRealtime() - cameraHealth.connectedAt;
+                    cameraHealth.connectedAt = 0;
+                }
+            }
+        }
+    }
+
+    private void cancelRetry() {
+        if (retryTask != null) {
+            retryTask.cancel(false);
+            retryTask = null;
+        }
+    }
+
+    private boolean isWatchedEndpoint(String ip, int port) {
+        CameraInfo camera = CameraConfig.getCamera(watchedIndex);
+        return camera != null && camera.getIp().equals(ip) && camera.getPort().equals(String.valueOf(port));
+    }
+}
@@ -0,0 +1,187 @@
+package com.geniecaddie.datacollection;
+
+import android.os.Environment;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import timber.log.Timber;
+
+/**
+ * 카메라 전환 지연 계측
+ * - 버튼 탭부터 첫 디코딩 프레임까지 단계별 시각을 Span으로 기록
+ * - 완료된 Span은 카메라별/단계별 히스토그램(탭 기준 누적 ms)에 반영
+ * - dump()로 p50/p95/p99 표를 파일에 저장
+ *
+ * Span.mark는 여러 스레드(UI, 연결, NetSDK 콜백, PlaySDK 콜백)에서 호출되며 단계별로 최초 1회만 기록됨
+ */
+public class SwitchLatencyTracker {
+    private static final String TAG = "SwitchLatency";
+
+    /**
+     * 전환 단계 (순서대로 진행)
+     */
+    public enum Phase {
+        CONNECT_START("연결 시작"),      // 연결 스레드 진입
+        SESSION("세션"),                 // 로그인 핸들 확보
+        PORT_OPEN("포트"),               // PlaySDK 포트 + Surface 준비
+        REAL_PLAY("RealPlay"),          // RealPlayEx 성공
+        FIRST_DATA("첫 데이터"),         // 첫 실시간 데이터 콜백
+        FIRST_FRAME("첫 프레임");        // 첫 디코딩 프레임
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 전환 1회의 계측 구간
+     */
+    public class Span {
+        final int cameraIndex;
+        final long tapAt;
+        private final AtomicLongArray marks = new AtomicLongArray(Phase.values().length);
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        Span(int cameraIndex, long tapAt) {
+            this.cameraIndex = cameraIndex;
+            this.tapAt = tapAt;
+        }
+
+        /**
+         * 단계 도달 기록 (최초 1회만 유효), FIRST_FRAME이면 Span 완료
+         */
+        public void mark(Phase phase) {
+            if (!marks.compareAndSet(phase.ordinal(), 0, SystemClock.elapsedRealtime())) {
+                return;
+            }
+            if (phase == Phase.FIRST_FRAME) {
+                finish(true);
+            }
+        }
+
+        /**
+         * 연결 실패/취소 (히스토그램에는 반영하지 않고 실패 횟수만 증가)
+         */
+        public void abandon() {
+            finish(false);
+        }
+
+        public boolean isMarked(Phase phase) {
+            return marks.get(phase.ordinal()) != 0;
+        }
+
+        private void finish(boolean success) {
+            if (finished.compareAndSet(false, true)) {
+                record(this, success);
+            }
+        }
+    }
+
+    private final LatencyHistogram[][] histograms;     // [카메라][단계]
+    private final int[] failures;
+
+    public SwitchLatencyTracker() {
+        int cameraCount = CameraConfig.getCameraCount();
+        Phase[] phases = Phase.values();
+        histograms = new LatencyHistogram[cameraCount][phases.length];
+        for (int camera = 0; camera < cameraCount; camera++) {
+            for (int phase = 0; phase < phases.length; phase++) {
+                histograms[camera][phase] = new LatencyHistogram();
+            }
+        }
+        failures = new int[cameraCount];
+    }
+
+    /**
+     * 전환 계측 시작 (버튼 탭 시점)
+     */
+    public Span begin(int cameraIndex) {
+        return new Span(cameraIndex, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * 카메라별 단계 지연 표를 파일로 저장
+     * 위치: Download/DahuaPlaySDKLogs/switch_latency_yyyyMMdd.txt (덮어쓰기)
+     */
+    public void dump() {
+        File logDir = new File(Environment.getExternalStoragePublicDirectory(
+            Environment.DIRECTORY_DOWNLOADS), "DahuaPlaySDKLogs");
+        if (!logDir.exists() && !logDir.mkdirs()) {
+            Timber.tag(TAG).e("지연 통계 폴더 생성 실패: %s", logDir.getAbsolutePath());
+            return;
+        }
+
+        String today = new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
+        File file = new File(logDir, "switch_latency_" + today + ".txt");
+        try (FileWriter writer = new FileWriter(file, false)) {
+            writer.write(format());
+            Timber.tag(TAG).d("전환 지연 통계 저장: %s", file.getAbsolutePath());
+        } catch (IOException e) {
+            Timber.tag(TAG).e("전환 지연 통계 저장 실패: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * 통계 표 (탭 기준 누적 ms, p50/p95/p99/max)
+     */
+    public synchronized String format() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("# 카메라 전환 지연 (버튼 탭 기준 누적 ms)\n");
+
+        Phase[] phases = Phase.values();
+        for (int camera = 0; camera < histograms.length; camera++) {
+            LatencyHistogram total = histograms[camera][Phase.FIRST_FRAME.ordinal()];
+            if (total.getCount() == 0 && failures[camera] == 0) {
+                continue;
+            }
+
+            CameraInfo info = CameraConfig.getCamera(camera);
+            builder.append(String.format(Locale.US, "\n[%s] 성공 %d, 실패 %d\n",
+                info != null ? info.getName() : String.valueOf(camera), total.getCount(), failures[camera]));
+
+            for (Phase phase : phases) {
+                LatencyHistogram histogram = histograms[camera][phase.ordinal()];
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                builder.append(String.format(Locale.US, "  %-8s p50 %5d  p95 %5d  p99 %5d  max %5d  (n=%d)\n",
+                    phase.label, histogram.percentile(50), histogram.percentile(95),
+                    histogram.percentile(99), histogram.getMax(), histogram.getCount()));
+            }
+        }
+        return builder.toString();
+    }
+
+    private synchronized void record(Span span, boolean success) {
+        if (span.cameraIndex < 0 || span.cameraIndex >= histograms.length) {
+            return;
+        }
+
+        if (!success) {
+            failures[span.cameraIndex]++;
+            return;
+        }
+
+        StringBuilder line = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            long markedAt = span.marks.get(phase.ordinal());
+            if (markedAt == 0) {
+                continue;   // 프리페치 인수처럼 건너뛴 단계
+            }
+            long offset = markedAt - span.tapAt;
+            histograms[span.cameraIndex][phase.ordinal()].record(offset);
+            line.append(String.format(Locale.US, " %s %dms", phase.label, offset));
+        }
+        Timber.tag(TAG).i("전환 지연 - 카메라 %d:%s", span.cameraIndex, line);
+    }
+}
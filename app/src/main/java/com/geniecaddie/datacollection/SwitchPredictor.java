@@ -0,0 +1,123 @@
+package com.geniecaddie.datacollection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * 다음 카메라 예측기 (전환 이력 기반 1차 마르코프)
+ * - 카메라 A → B 전환 횟수를 누적하고, 현재 카메라에서 가장 자주 간 카메라 순으로 예측
+ * - 이력이 없거나 동률이면 홀 순서(1W → 1L → 2W ...)를 우선
+ * - 전환 이력은 SharedPreferences에 저장하여 앱 재시작 후에도 유지
+ */
+public class SwitchPredictor {
+    private static final String TAG = "SwitchPredictor";
+
+    private static final String PREFS_NAME = "switch_predictor";
+    private static final String KEY_TRANSITIONS = "transitions";
+    private static final int MAX_COUNT = 1000;     // 도달 시 해당 행을 절반으로 감쇠 (오래된 습관 희석)
+
+    private final SharedPreferences prefs;
+    private final int cameraCount;
+    private final int[][] transitions;
+    private int lastIndex = -1;
+
+    public SwitchPredictor(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.cameraCount = CameraConfig.getCameraCount();
+        this.transitions = new int[cameraCount][cameraCount];
+        load();
+    }
+
+    /**
+     * 카메라 전환 기록
+     */
+    public synchronized void record(int cameraIndex) {
+        if (cameraIndex < 0 || cameraIndex >= cameraCount) {
+            return;
+        }
+
+        if (lastIndex >= 0 && lastIndex != cameraIndex) {
+            int[] row = transitions[lastIndex];
+            if (++row[cameraIndex] >= MAX_COUNT) {
+                for (int i = 0; i < cameraCount; i++) {
+                    row[i] /= 2;
+                }
+            }
+            save();
+        }
+        lastIndex = cameraIndex;
+    }
+
+    /**
+     * 현재 카메라 다음으로 전환될 가능성이 높은 카메라
+     *
+     * @param currentIndex 현재 카메라 인덱스
+     * @param count        예측 개수
+     * @return 가능성 높은 순서의 카메라 인덱스 (현재 카메라 제외)
+     */
+    public synchronized List<Integer> predict(int currentIndex, int count) {
+        List<Integer> result = new ArrayList<>(count);
+        if (currentIndex < 0 || currentIndex >= cameraCount) {
+            return result;
+        }
+
+        int[] row = transitions[currentIndex];
+        while (result.size() < count && result.size() < cameraCount - 1) {
+            int best = -1;
+            // 홀 순서대로 훑으므로 동률이면 바로 다음 카메라가 먼저 선택됨
+            for (int step = 1; step < cameraCount; step++) {
+                int candidate = (currentIndex + step) % cameraCount;
+                if (result.contains(candidate)) {
+                    continue;
+                }
+                if (best < 0 || row[candidate] > row[best]) {
+                    best = candidate;
+                }
+            }
+            result.add(best);
+        }
+        return result;
+    }
+
+    private void load() {
+        String saved = prefs.getString(KEY_TRANSITIONS, null);
+        if (saved == null) {
+            return;
+        }
+
+        try {
+            String[] values = saved.split(",");
+            if (values.length != cameraCount * cameraCount) {
+                Timber.tag(TAG).w("저장된 전환 이력 크기 불일치 (카메라 구성 변경) - 초기화");
+                return;
+            }
+            for (int i = 0; i < values.length; i++) {
+                transitions[i / cameraCount][i % cameraCount] = Integer.parseInt(values[i]);
+            }
+        } catch (NumberFormatException e) {
+            Timber.tag(TAG).w("저장된 전환 이력 파싱 실패 - 초기화");
+            for (int[] row : transitions) {
+                Arrays.fill(row, 0);
+            }
+        }
+    }
+
+    private void save() {
+        StringBuilder builder = new StringBuilder(cameraCount * cameraCount * 2);
+        for (int from = 0; from < cameraCount; from++) {
+            for (int to = 0; to < cameraCount; to++) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(transitions[from][to]);
+            }
+        }
+        prefs.edit().putString(KEY_TRANSITIONS, builder.toString()).apply();
+    }
+}
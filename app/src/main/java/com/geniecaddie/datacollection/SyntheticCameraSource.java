@@ -0,0 +1,222 @@
+package com.geniecaddie.datacollection;
+
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * 합성 영상 소스 (장비/녹화 파일 없이 전환/캡처/분석 경로 부하 테스트용)
+ * - 녹색 그라데이션 배경 위로 흰 공이 움직이는 2초 영상을 해상도별로 한 번만 H.264로 인코딩해 보관
+ * - 모든 카메라 스트림은 보관한 프레임을 25fps / 배속으로 반복 전달 (스트림마다 인코더를 돌리지 않음)
+ * - 반복 구간 시작 프레임만 I-프레임 (SPS/PPS 포함) → 전환 시 첫 I-프레임 대기도 실제와 비슷하게 발생
+ */
+public class SyntheticCameraSource extends LocalCameraSource {
+    private static final String TAG = "SyntheticSource";
+
+    // === 영상 ===
+    private static final int FRAME_RATE = 25;
+    private static final int LOOP_FRAMES = 50;                      // 2초 반복
+    private static final long FRAME_INTERVAL_MS = 1000 / FRAME_RATE;
+    private static final int MAIN_WIDTH = 1280;
+    private static final int MAIN_HEIGHT = 720;
+    private static final int MAIN_BIT_RATE = 4 * 1024 * 1024;
+    private static final int SUB_WIDTH = 640;
+    private static final int SUB_HEIGHT = 360;
+    private static final int SUB_BIT_RATE = 512 * 1024;
+
+    // === 인코더 ===
+    private static final long CODEC_TIMEOUT_US = 10_000;
+    private static final long ENCODE_LIMIT_MS = 10_000;
+
+    private final float speed;
+
+    // 인코딩한 프레임 (해상도별 1회 생성, 이후 읽기 전용)
+    private List<byte[]> mainFrames;
+    private List<byte[]> subFrames;
+
+    public SyntheticCameraSource(float speed) {
+        this.speed = speed > 0 ? speed : 1.0f;
+    }
+
+    @Override
+    boolean hasSource(CameraInfo camera) {
+        return true;
+    }
+
+    @Override
+    Producer createProducer(CameraInfo camera, boolean subStream) {
+        final List<byte[]> frames = getFrames(subStream);
+        if (frames == null) {
+            return null;
+        }
+        return new Producer() {
+            @Override
+            public void run(long streamHandle, DataSink sink) throws InterruptedException {
+                long intervalNs = (long) (FRAME_INTERVAL_MS * 1_000_000L / speed);
+                long nextDueNs = System.nanoTime();
+                while (true) {
+                    for (byte[] frame : frames) {
+                        sleepUntil(nextDueNs);
+                        nextDueNs += intervalNs;
+                        sink.onData(streamHandle, frame, frame.length);
+                    }
+                }
+            }
+        };
+    }
+
+    private synchronized List<byte[]> getFrames(boolean subStream) {
+        if (subStream) {
+            if (subFrames == null) {
+                subFrames = encodeLoop(SUB_WIDTH, SUB_HEIGHT, SUB_BIT_RATE);
+            }
+            return subFrames;
+        }
+        if (mainFrames == null) {
+            mainFrames = encodeLoop(MAIN_WIDTH, MAIN_HEIGHT, MAIN_BIT_RATE);
+        }
+        return mainFrames;
+    }
+
+    // ========== 인코딩 ==========
+
+    /**
+     * 반복 영상을 H.264 Annex-B 프레임 목록으로 인코딩 (I-프레임 앞에 SPS/PPS를 붙임)
+     *
+     * @return 프레임 목록, 실패 시 null
+     */
+    private static List<byte[]> encodeLoop(int width, int height, int bitRate) {
+        long startMs = System.currentTimeMillis();
+        MediaCodec encoder = null;
+        try {
+            MediaFormat format = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, width, height);
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, bitRate);
+            format.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
+            format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, LOOP_FRAMES / FRAME_RATE);
+
+            encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_VIDEO_AVC);
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            encoder.start();
+
+            List<byte[]> frames = new ArrayList<>();
+            byte[] codecConfig = new byte[0];
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            int inputIndex = 0;
+            boolean outputDone = false;
+
+            while (!outputDone) {
+                if (System.currentTimeMillis() - startMs > ENCODE_LIMIT_MS) {
+                    Timber.tag(TAG).e("합성 영상 인코딩 시간 초과 - %dx%d", width, height);
+                    return null;
+                }
+
+                if (inputIndex <= LOOP_FRAMES) {
+                    int bufferIndex = encoder.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                    if (bufferIndex >= 0) {
+                        long ptsUs = inputIndex * FRAME_INTERVAL_MS * 1000;
+                        if (inputIndex == LOOP_FRAMES) {
+                            encoder.queueInputBuffer(bufferIndex, 0, 0, ptsUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        } else {
+                            Image image = encoder.getInputImage(bufferIndex);
+                            drawFrame(image, inputIndex);
+                            encoder.queueInputBuffer(bufferIndex, 0, width * height * 3 / 2, ptsUs, 0);
+                        }
+                        inputIndex++;
+                    }
+                }
+
+                int outputIndex = encoder.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+                if (outputIndex < 0) {
+                    continue;   // INFO_TRY_AGAIN_LATER / INFO_OUTPUT_FORMAT_CHANGED
+                }
+
+                ByteBuffer output = encoder.getOutputBuffer(outputIndex);
+                byte[] data = new byte[info.size];
+                output.position(info.offset);
+                output.get(data, 0, info.size);
+                encoder.releaseOutputBuffer(outputIndex, false);
+
+                if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
+                    codecConfig = data;
+                } else if (info.size > 0) {
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0) {
+                        ByteArrayOutputStream keyFrame = new ByteArrayOutputStream(codecConfig.length + data.length);
+                        keyFrame.write(codecConfig, 0, codecConfig.length);
+                        keyFrame.write(data, 0, data.length);
+                        data = keyFrame.toByteArray();
+                    }
+                    frames.add(data);
+                }
+                outputDone = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+            }
+
+            Timber.tag(TAG).i("합성 영상 준비 - %dx%d, %d프레임, %dms",
+                width, height, frames.size(), System.currentTimeMillis() - startMs);
+            return frames.isEmpty() ? null : frames;
+        } catch (Exception e) {
+            Timber.tag(TAG).e(e, "합성 영상 인코딩 실패 - %dx%d", width, height);
+            return null;
+        } finally {
+            if (encoder != null) {
+                try {
+                    encoder.stop();
+                } catch (Exception e) {
+                    // 이미 오류 상태
+                }
+                encoder.release();
+            }
+        }
+    }
+
+    /**
+     * 녹색 그라데이션 배경 + 좌우로 움직이는 흰 공 (YUV420, 평면/반평면 모두 stride로 처리)
+     */
+    private static void drawFrame(Image image, int frameIndex) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Image.Plane[] planes = image.getPlanes();
+
+        // 공 위치: 반복 구간 동안 한 번 왕복
+        int radius = height / 12;
+        double phase = 2 * Math.PI * frameIndex / LOOP_FRAMES;
+        int ballX = (int) (width / 2 + (width / 2 - radius * 2) * Math.sin(phase));
+        int ballY = (int) (height * 0.6 - height / 4 * Math.abs(Math.sin(phase)));
+
+        ByteBuffer y = planes[0].getBuffer();
+        int yStride = planes[0].getRowStride();
+        for (int row = 0; row < height; row++) {
+            int base = row * yStride;
+            int background = 60 + 60 * row / height;
+            for (int col = 0; col < width; col++) {
+                int dx = col - ballX;
+                int dy = row - ballY;
+                y.put(base + col, (byte) (dx * dx + dy * dy <= radius * radius ? 235 : background));
+            }
+        }
+
+        ByteBuffer u = planes[1].getBuffer();
+        ByteBuffer v = planes[2].getBuffer();
+        int chromaStride = planes[1].getRowStride();
+        int pixelStride = planes[1].getPixelStride();
+        for (int row = 0; row < height / 2; row++) {
+            for (int col = 0; col < width / 2; col++) {
+                int dx = col * 2 - ballX;
+                int dy = row * 2 - ballY;
+                boolean inBall = dx * dx + dy * dy <= radius * radius;
+                int index = row * chromaStride + col * pixelStride;
+                u.put(index, (byte) (inBall ? 128 : 90));
+                v.put(index, (byte) (inBall ? 128 : 80));
+            }
+        }
+    }
+}
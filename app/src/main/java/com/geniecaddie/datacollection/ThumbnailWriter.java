@@ -0,0 +1,183 @@
+package com.geniecaddie.datacollection;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+
+import timber.log.Timber;
+
+/**
+ * 학습용 축소본 (가로 THUMBNAIL_WIDTH) 생성
+ * - 원본과 같은 프레임에서 만들어 SnapshotWriter에 원본과 한 번에 저장 요청
+ *   (서버에서 원본을 다시 디코딩/인코딩해 줄이는 작업과 전송량을 없앰)
+ * - 디코딩 프레임(BGR)이 있으면 그대로 축소, JPEG만 있으면 DCT 축소 디코딩(1/2~1/8)으로 읽은 뒤 축소
+ * - 저장 위치: 원본 폴더/THUMBNAIL_DIR/같은 파일명
+ *
+ * 작업 Mat은 재사용 (명령 스레드에서만 호출)
+ */
+public class ThumbnailWriter {
+    private static final String TAG = "ThumbnailWriter";
+
+    private final SnapshotWriter snapshotWriter;
+    private final int targetWidth = CameraConfig.THUMBNAIL_WIDTH;
+
+    // OpenCV 작업 버퍼 (첫 사용 시 생성)
+    private Mat resized;
+    private MatOfByte jpeg;
+    private MatOfInt params;
+    private int thumbLength;
+
+    public ThumbnailWriter(SnapshotWriter snapshotWriter) {
+        this.snapshotWriter = snapshotWriter;
+    }
+
+    /**
+     * 원본 경로 → 축소본 경로
+     */
+    public static String thumbnailPath(String filePath) {
+        File file = new File(filePath);
+        return new File(new File(file.getParentFile(), CameraConfig.THUMBNAIL_DIR), file.getName()).getPath();
+    }
+
+    public boolean isEnabled() {
+        return targetWidth > 0;
+    }
+
+    /**
+     * 원본 JPEG + 디코딩 프레임에서 만든 축소본 저장 요청 (원본 버퍼 소유권은 writer로 넘어감)
+     */
+    public boolean write(byte[] buffer, int length, Mat bgr, String filePath, CaptureManifest.Entry entry) {
+        byte[] thumb = isEnabled() ? encode(bgr) : null;
+        return submit(buffer, length, thumb, filePath, entry);
+    }
+
+    /**
+     * 원본 JPEG만 있는 경우 (PLAYGetPicJPEG) - 메모리에서 축소 디코딩 후 축소본 생성
+     *
+     * @param sourceWidth 원본 가로 (축소 디코딩 배율 선택용)
+     */
+    public boolean write(byte[] buffer, int length, int sourceWidth, String filePath, CaptureManifest.Entry entry) {
+        byte[] thumb = null;
+        if (isEnabled()) {
+            Mat encoded = null;
+            Mat bgr = null;
+            try {
+                encoded = new Mat(1, length, CvType.CV_8UC1);
+                encoded.put(0, 0, buffer, 0, length);
+                bgr = Imgcodecs.imdecode(encoded, reducedReadFlag(sourceWidth));
+                thumb = encode(bgr);
+            } catch (UnsatisfiedLinkError e) {
+                Timber.tag(TAG).w("OpenCV 라이브러리 없음 - 축소본 생략");
+            } finally {
+                release(encoded);
+                release(bgr);
+            }
+        }
+        return submit(buffer, length, thumb, filePath, entry);
+    }
+
+    /**
+     * 이미 저장된 원본 파일의 축소본 저장 요청 (장비 스냅샷 / 동기 캡처)
+     *
+     * @return 축소본 저장 요청 여부
+     */
+    public boolean writeFor(String filePath) {
+        if (!isEnabled()) {
+            return false;
+        }
+        Mat bgr = null;
+        try {
+            // 장비 스냅샷은 메인 스트림 해상도 (가로 1280 이상) → 1/2 축소 디코딩
+            bgr = Imgcodecs.imread(filePath, Imgcodecs.IMREAD_REDUCED_COLOR_2);
+            byte[] thumb = encode(bgr);
+            return thumb != null && snapshotWriter.write(thumb, thumbLength, thumbnailPath(filePath));
+        } catch (UnsatisfiedLinkError e) {
+            Timber.tag(TAG).w("OpenCV 라이브러리 없음 - 축소본 생략");
+            return false;
+        } finally {
+            release(bgr);
+        }
+    }
+
+    public void release() {
+        if (resized != null) {
+            resized.release();
+            jpeg.release();
+            params.release();
+            resized = null;
+        }
+    }
+
+    private boolean submit(byte[] buffer, int length, byte[] thumb, String filePath, CaptureManifest.Entry entry) {
+        if (thumb == null) {
+            return snapshotWriter.write(buffer, length, filePath, null, 0, null, entry);
+        }
+        if (entry != null) {
+            entry.flags |= CaptureManifest.FLAG_THUMBNAIL;
+        }
+        return snapshotWriter.write(buffer, length, filePath, thumb, thumbLength, thumbnailPath(filePath), entry);
+    }
+
+    /**
+     * 가로 targetWidth로 축소 후 JPEG 인코딩 (원본이 더 작으면 그대로 인코딩)
+     *
+     * @return 풀 버퍼 (길이는 thumbLength), 실패 시 null
+     */
+    private byte[] encode(Mat bgr) {
+        if (bgr == null || bgr.empty()) {
+            return null;
+        }
+        if (resized == null) {
+            resized = new Mat();
+            jpeg = new MatOfByte();
+            params = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, CameraConfig.THUMBNAIL_JPEG_QUALITY);
+        }
+
+        Mat source = bgr;
+        if (bgr.cols() > targetWidth) {
+            int targetHeight = Math.round((float) bgr.rows() * targetWidth / bgr.cols());
+            Imgproc.resize(bgr, resized, new Size(targetWidth, targetHeight), 0, 0, Imgproc.INTER_AREA);
+            source = resized;
+        }
+        if (!Imgcodecs.imencode(".jpg", source, jpeg, params)) {
+            Timber.tag(TAG).w("축소본 JPEG 인코딩 실패");
+            return null;
+        }
+
+        thumbLength = (int) jpeg.total();
+        byte[] buffer = snapshotWriter.acquire(thumbLength);
+        if (buffer == null) {
+            return null;    // 저장 대기가 밀림 - 원본만 저장
+        }
+        jpeg.get(0, 0, buffer);
+        return buffer;
+    }
+
+    /**
+     * 축소 디코딩 후에도 가로가 targetWidth 이상인 가장 큰 배율
+     */
+    private int reducedReadFlag(int sourceWidth) {
+        if (sourceWidth >= targetWidth * 8) {
+            return Imgcodecs.IMREAD_REDUCED_COLOR_8;
+        }
+        if (sourceWidth >= targetWidth * 4) {
+            return Imgcodecs.IMREAD_REDUCED_COLOR_4;
+        }
+        if (sourceWidth >= targetWidth * 2) {
+            return Imgcodecs.IMREAD_REDUCED_COLOR_2;
+        }
+        return Imgcodecs.IMREAD_COLOR;
+    }
+
+    private static void release(Mat mat) {
+        if (mat != null) {
+            mat.release();
+        }
+    }
+}